@@ -1,49 +1,45 @@
 package com.example.positionalaudio;
 
 import android.app.Activity;
-import android.media.MediaPlayer;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.widget.SeekBar;
 
+import com.example.spatialaudio.AudioEngine;
+import com.example.spatialaudio.CueSynth;
+import com.example.spatialaudio.SoundBank;
+import com.example.spatialaudio.android.AudioTrackSink;
+import com.example.spatialaudio.android.BankLoadBenchmark;
+import com.example.spatialaudio.android.SoundBankLoader;
+
+import java.io.IOException;
+
 
 public class MyActivity extends Activity {
+    //The Tag for the logcat
+    private static final String TAG = "PositionalAudio";
     //Initialize angle, height, and distance (of the object)
     int angle = -90;
-    int height = 0;
+    float height = 0;
     int distance = 1;
-    //The sound file that is currently playing
-    int currentFile = R.raw.height0angle_85;
-    //The media player to play the sound file
-    MediaPlayer mediaPlayer;
-
-
-    //Initialize the Message Handler
-    public Handler soundHandler = new Handler() {
-
-        //When the media player gets a message
-        @Override
-        public void handleMessage(Message msg) {
-
-            //If the message is from the angle or height changing
-            if (msg.what == 0) {
-                //If the current sound file is still the same as the one we wanted to play, play the file
-                if (msg.arg1 == currentFile) {
-                    playSound(currentFile);
-                }
-                //The message is from wanting to repeat the last sound played
-            } else if (msg.what == 1) {
-                //Only repeat if we are still playing the current sound file
-                if (msg.arg1 == currentFile) {
-                    playSound(currentFile);
-                }
-
-            }
-        }
-    };
+    //The sound bank index of the sound file that is currently playing
+    int currentFile;
+    //The sound files packed into one asset (built with SpatialAudio's BankPacker)
+    static final String PACKED_SOUND_BANK = "sound_bank.bank";
+    //Which sound file goes with which angle and height
+    SoundBank soundBank;
+    //The audio engine that plays the sound files, and the decoded files it plays
+    AudioEngine audioEngine;
+    SoundBankLoader soundBankLoader;
+    //Synthesize the cue instead of playing the recorded sound files: nothing is loaded, so it plays straight away,
+    //and the pitch and timbre follow the height and distance smoothly. Switched from the menu, or started with
+    //EXTRA_SYNTHESIZED_CUES set. The sound bank is only loaded once the recorded files are played.
+    static final String EXTRA_SYNTHESIZED_CUES = "com.example.positionalaudio.SYNTHESIZED_CUES";
+    volatile boolean synthesizedCues;
+    CueSynth cueSynth;
+    AudioTrackSink sink;
 
 
     @Override
@@ -51,8 +47,31 @@ public class MyActivity extends Activity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_my);
 
+        //Build the sound bank, start decoding its sound files in the background and start the audio engine
+        soundBank = new SoundBank(SoundBankLoader.readManifest(getResources(), R.array.sound_bank_grid, R.array.sound_files));
+        currentFile = getSoundFile();
+        //Play at the device's own rate so the system mixer can take the fast path, converting the sound files to it
+        sink = AudioTrackSink.forDevice(this);
+        //Keep the choice from the menu if the activity is being recreated
+        if (savedInstanceState != null) {
+            synthesizedCues = savedInstanceState.getBoolean(EXTRA_SYNTHESIZED_CUES);
+        } else {
+            synthesizedCues = getIntent().getBooleanExtra(EXTRA_SYNTHESIZED_CUES, false);
+        }
+        //The synth is cheap to build (a few milliseconds for its tables), so it is always there to switch to
+        cueSynth = new CueSynth(sink.getSampleRate());
+        if (!synthesizedCues) {
+            startLoadingSoundBank();
+        }
+        audioEngine = new AudioEngine(sink, 4);
+        //Repeat every 600ms per unit of distance (the distance slider goes from 1 to 11)
+        audioEngine.setRepeatPeriod(600, 600, 6600);
+        //The height slider goes from 0 to 7.9: hear that as 40 degrees below ear level up to about 60 above
+        audioEngine.setElevationMapping(-40, 12.5f);
+        //And the nearest distance as the sound was recorded, getting quieter and duller out to the far end
+        audioEngine.setDistanceModel(1, 11);
+        audioEngine.start();
         //Start playing the sound file in the beginning
-        mediaPlayer = MediaPlayer.create(this.getApplicationContext(),currentFile);
         playSound(currentFile);
 
         //Initialize the Seekbars
@@ -76,16 +95,8 @@ public class MyActivity extends Activity {
 
                 //Set the angle
                 angle = seekBar.getProgress() - 90;
-                //Check if the file corresponding to the current angle is different from the current sound file
-                int tempCurrentFile = getSoundFile();
-                if (tempCurrentFile != currentFile) {
-                    //If it is, send a message to play a new sound file, and update the current sound file
-                    Message msg = Message.obtain();
-                    msg.what = 0;
-                    msg.arg1 = tempCurrentFile;
-                    currentFile = tempCurrentFile;
-                    soundHandler.sendMessage(msg);
-                }
+                //Move the sound to the new angle
+                moveSound();
 
             }
         });
@@ -97,6 +108,8 @@ public class MyActivity extends Activity {
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                 //When the value of the seekbar changes, update distance. (+1 so that we don't have distance = 0)
                 distance = progress + 1;
+                //The time between beeps follows the distance straight away
+                moveSound();
 
             }
 
@@ -127,21 +140,80 @@ public class MyActivity extends Activity {
             @Override
             public void onStopTrackingTouch(SeekBar seekBar) {
 
-                //set the new height
-                height = seekBar.getProgress()/10;
-                //Check if the sound file corresponding to the current height is different from the current sound file
-                int tempCurrentFile = getSoundFile();
-                if (tempCurrentFile != currentFile) {
-                    //If it is, send a message to play a new sound file, and update the current sound file.
-                    Message msg = Message.obtain();
-                    msg.what = 0;
-                    msg.arg1 = tempCurrentFile;
-                    currentFile = tempCurrentFile;
-                    soundHandler.sendMessage(msg);
-                }
+                //set the new height. It doesn't have to be a whole number, the audio engine filters in any height.
+                height = seekBar.getProgress()/10.0f;
+                //Move the sound to the new height
+                moveSound();
+            }
+        });
+
+    }
+
+    //Start decoding the sound files in the background, the first time they are needed
+    private void startLoadingSoundBank() {
+        if (soundBankLoader != null) {
+            return;
+        }
+        soundBankLoader = new SoundBankLoader(getResources(), soundBank, PACKED_SOUND_BANK);
+        soundBankLoader.setSampleRate(sink.getSampleRate());
+        //On low memory devices only the clips around the current one are kept decoded
+        soundBankLoader.setCacheBudget(SoundBankLoader.cacheBudgetFor(this));
+        //The current cell is decoded first, so the sound starts after one file rather than the whole bank
+        soundBankLoader.startLoading(angle, height, new SoundBankLoader.Listener() {
+            @Override
+            public void onReady() {
+                Log.i(TAG, "First sound file ready after " + soundBankLoader.getTimeToFirstClipMillis() + "ms");
+                playSound(currentFile);
+            }
+
+            @Override
+            public void onProgress(int loaded, int total) {
+                Log.i(TAG, "Loaded " + loaded + " of " + total + " sound files");
+                //Pick up the exact file if it has just come in and a neighbouring one was standing in for it
+                playSound(currentFile);
+            }
+
+            @Override
+            public void onLoaded() {
+                Log.i(TAG, "Sound bank loaded after " + soundBankLoader.getTimeToFullBankMillis() + "ms");
             }
         });
+    }
 
+    //Switch between the synthesized cue and the recorded sound files while the sound plays
+    private void setSynthesizedCues(boolean synthesized) {
+        synthesizedCues = synthesized;
+        if (!synthesized) {
+            startLoadingSoundBank();
+            soundBankLoader.track(angle, height);
+            if (!soundBankLoader.isReady()) {
+                //Silent until the first file is decoded, then onReady starts the sound
+                audioEngine.stopRepeating();
+            }
+        }
+        playSound(currentFile);
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(EXTRA_SYNTHESIZED_CUES, synthesizedCues);
+    }
+
+    @Override
+    protected void onDestroy() {
+        //Stop repeating the sound and shut the audio engine down
+        audioEngine.stopRepeating();
+        audioEngine.stop();
+        Log.i(TAG, "Beat jitter: " + audioEngine.getBeatJitter() + " (render clock: " + audioEngine.getRenderClockJitter() + ")");
+        Log.i(TAG, "Render: " + audioEngine.getRenderStats());
+        if (soundBankLoader != null) {
+            if (soundBankLoader.getCacheStats() != null) {
+                Log.i(TAG, "Sound cache: " + soundBankLoader.getCacheStats());
+            }
+            soundBankLoader.release();
+        }
+        super.onDestroy();
     }
 
     @Override
@@ -151,6 +223,12 @@ public class MyActivity extends Activity {
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(R.id.action_synthesized_cues).setChecked(synthesizedCues);
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         // Handle action bar item clicks here. The action bar will
@@ -160,359 +238,65 @@ public class MyActivity extends Activity {
         if (id == R.id.action_settings) {
             return true;
         }
+        if (id == R.id.action_synthesized_cues) {
+            setSynthesizedCues(!synthesizedCues);
+            return true;
+        }
+        if (id == R.id.action_benchmark_bank) {
+            benchmarkSoundBank();
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 
-    //Decide which sound file to play
-    public int getSoundFile(){
-        int angleFile;
-
-        //If the height is less than one, chose a sound file based on angle. Angles are in the middle of angle ranges of 10 degrees
-        //For Example angles 1-10 -> angle5
-        if (height < 1){
-            if (angle <= -80) {
-                angleFile = R.raw.height0angle_85;
-            } else if (angle <= -70) {
-                angleFile = R.raw.height0angle_75;
-            } else if (angle <= -60) {
-                angleFile = R.raw.height0angle_65;
-            } else if (angle <= -50) {
-                angleFile = R.raw.height0angle_55;
-            } else if (angle <= -40) {
-                angleFile = R.raw.height0angle_45;
-            } else if (angle <= -30) {
-                angleFile = R.raw.height0angle_35;
-            } else if (angle <= -20) {
-                angleFile = R.raw.height0angle_25;
-            } else if (angle <= -10) {
-                angleFile = R.raw.height0angle_15;
-            } else if (angle <= 0) {
-                angleFile = R.raw.height0angle_5;
-            } else if (angle <= 10) {
-                angleFile = R.raw.height0angle5;
-            } else if (angle <= 20) {
-                angleFile = R.raw.height0angle15;
-            } else if (angle <= 30) {
-                angleFile = R.raw.height0angle25;
-            } else if (angle <= 40) {
-                angleFile = R.raw.height0angle35;
-            } else if (angle <= 50) {
-                angleFile = R.raw.height0angle45;
-            } else if (angle <= 60) {
-                angleFile = R.raw.height0angle55;
-            } else if (angle <= 70) {
-                angleFile = R.raw.height0angle65;
-            } else if (angle <= 80) {
-                angleFile = R.raw.height0angle75;
-            } else {
-                angleFile = R.raw.height0angle85;
+    //Time the ways of loading the sound bank and log the results. Runs in the background since it takes a while.
+    private void benchmarkSoundBank() {
+        final int[] rawIds = new int[soundBank.size()];
+        for (int i = 0; i < rawIds.length; i++) {
+            rawIds[i] = soundBank.getClipId(i);
+        }
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Log.i(TAG, "Sound bank load times:\n" + BankLoadBenchmark.run(getApplicationContext(), PACKED_SOUND_BANK, rawIds));
+                } catch (IOException e) {
+                    Log.e(TAG, "Sound bank benchmark failed", e);
+                }
             }
+        }, "BankLoadBenchmark").start();
+    }
 
-        //If the height is less than 2, choose a sound file corresponding to height 1 and some angle
-        } else if (height < 2){
-            if (angle <= -80) {
-                angleFile = R.raw.height1angle_85;
-            } else if (angle <= -70) {
-                angleFile = R.raw.height1angle_75;
-            } else if (angle <= -60) {
-                angleFile = R.raw.height1angle_65;
-            } else if (angle <= -50) {
-                angleFile = R.raw.height1angle_55;
-            } else if (angle <= -40) {
-                angleFile = R.raw.height1angle_45;
-            } else if (angle <= -30) {
-                angleFile = R.raw.height1angle_35;
-            } else if (angle <= -20) {
-                angleFile = R.raw.height1angle_25;
-            } else if (angle <= -10) {
-                angleFile = R.raw.height1angle_15;
-            } else if (angle <= 0) {
-                angleFile = R.raw.height1angle_5;
-            } else if (angle <= 10) {
-                angleFile = R.raw.height1angle5;
-            } else if (angle <= 20) {
-                angleFile = R.raw.height1angle15;
-            } else if (angle <= 30) {
-                angleFile = R.raw.height1angle25;
-            } else if (angle <= 40) {
-                angleFile = R.raw.height1angle35;
-            } else if (angle <= 50) {
-                angleFile = R.raw.height1angle45;
-            } else if (angle <= 60) {
-                angleFile = R.raw.height1angle55;
-            } else if (angle <= 70) {
-                angleFile = R.raw.height1angle65;
-            } else if (angle <= 80) {
-                angleFile = R.raw.height1angle75;
-            } else {
-                angleFile = R.raw.height1angle85;
-            }
-            //If the height is less than 3, choose a sound file corresponding to height 2 and the angle
-        } else if (height < 3){
-            if (angle <= -80) {
-                angleFile = R.raw.height2angle_85;
-            } else if (angle <= -70) {
-                angleFile = R.raw.height2angle_75;
-            } else if (angle <= -60) {
-                angleFile = R.raw.height2angle_65;
-            } else if (angle <= -50) {
-                angleFile = R.raw.height2angle_55;
-            } else if (angle <= -40) {
-                angleFile = R.raw.height2angle_45;
-            } else if (angle <= -30) {
-                angleFile = R.raw.height2angle_35;
-            } else if (angle <= -20) {
-                angleFile = R.raw.height2angle_25;
-            } else if (angle <= -10) {
-                angleFile = R.raw.height2angle_15;
-            } else if (angle <= 0) {
-                angleFile = R.raw.height2angle_5;
-            } else if (angle <= 10) {
-                angleFile = R.raw.height2angle5;
-            } else if (angle <= 20) {
-                angleFile = R.raw.height2angle15;
-            } else if (angle <= 30) {
-                angleFile = R.raw.height2angle25;
-            } else if (angle <= 40) {
-                angleFile = R.raw.height2angle35;
-            } else if (angle <= 50) {
-                angleFile = R.raw.height2angle45;
-            } else if (angle <= 60) {
-                angleFile = R.raw.height2angle55;
-            } else if (angle <= 70) {
-                angleFile = R.raw.height2angle65;
-            } else if (angle <= 80) {
-                angleFile = R.raw.height2angle75;
-            } else {
-                angleFile = R.raw.height2angle85;
-            }
-            //If the height is less than 4, choose a sound file corresponding to height 3 and the angle
-        } else if (height < 4){
-            if (angle <= -80) {
-                angleFile = R.raw.height3angle_85;
-            } else if (angle <= -70) {
-                angleFile = R.raw.height3angle_75;
-            } else if (angle <= -60) {
-                angleFile = R.raw.height3angle_65;
-            } else if (angle <= -50) {
-                angleFile = R.raw.height3angle_55;
-            } else if (angle <= -40) {
-                angleFile = R.raw.height3angle_45;
-            } else if (angle <= -30) {
-                angleFile = R.raw.height3angle_35;
-            } else if (angle <= -20) {
-                angleFile = R.raw.height3angle_25;
-            } else if (angle <= -10) {
-                angleFile = R.raw.height3angle_15;
-            } else if (angle <= 0) {
-                angleFile = R.raw.height3angle_5;
-            } else if (angle <= 10) {
-                angleFile = R.raw.height3angle5;
-            } else if (angle <= 20) {
-                angleFile = R.raw.height3angle15;
-            } else if (angle <= 30) {
-                angleFile = R.raw.height3angle25;
-            } else if (angle <= 40) {
-                angleFile = R.raw.height3angle35;
-            } else if (angle <= 50) {
-                angleFile = R.raw.height3angle45;
-            } else if (angle <= 60) {
-                angleFile = R.raw.height3angle55;
-            } else if (angle <= 70) {
-                angleFile = R.raw.height3angle65;
-            } else if (angle <= 80) {
-                angleFile = R.raw.height3angle75;
-            } else {
-                angleFile = R.raw.height3angle85;
-            }
-            //If the height is less than 5, choose a sound file corresponding to height 4 and the angle
-        } else if (height < 5){
-            if (angle <= -80) {
-                angleFile = R.raw.height4angle_85;
-            } else if (angle <= -70) {
-                angleFile = R.raw.height4angle_75;
-            } else if (angle <= -60) {
-                angleFile = R.raw.height4angle_65;
-            } else if (angle <= -50) {
-                angleFile = R.raw.height4angle_55;
-            } else if (angle <= -40) {
-                angleFile = R.raw.height4angle_45;
-            } else if (angle <= -30) {
-                angleFile = R.raw.height4angle_35;
-            } else if (angle <= -20) {
-                angleFile = R.raw.height4angle_25;
-            } else if (angle <= -10) {
-                angleFile = R.raw.height4angle_15;
-            } else if (angle <= 0) {
-                angleFile = R.raw.height4angle_5;
-            } else if (angle <= 10) {
-                angleFile = R.raw.height4angle5;
-            } else if (angle <= 20) {
-                angleFile = R.raw.height4angle15;
-            } else if (angle <= 30) {
-                angleFile = R.raw.height4angle25;
-            } else if (angle <= 40) {
-                angleFile = R.raw.height4angle35;
-            } else if (angle <= 50) {
-                angleFile = R.raw.height4angle45;
-            } else if (angle <= 60) {
-                angleFile = R.raw.height4angle55;
-            } else if (angle <= 70) {
-                angleFile = R.raw.height4angle65;
-            } else if (angle <= 80) {
-                angleFile = R.raw.height4angle75;
-            } else {
-                angleFile = R.raw.height4angle85;
-            }
+    //Decide which sound file to play: the index of the sound bank cell for the current angle and height
+    public int getSoundFile(){
+        return soundBank.indexOf(angle, height);
+    }
 
-            //If the height is less than 6, choose a sound file corresponding to height 5 and the angle
-        } else if (height < 6){
-            if (angle <= -80) {
-                angleFile = R.raw.height5angle_85;
-            } else if (angle <= -70) {
-                angleFile = R.raw.height5angle_75;
-            } else if (angle <= -60) {
-                angleFile = R.raw.height5angle_65;
-            } else if (angle <= -50) {
-                angleFile = R.raw.height5angle_55;
-            } else if (angle <= -40) {
-                angleFile = R.raw.height5angle_45;
-            } else if (angle <= -30) {
-                angleFile = R.raw.height5angle_35;
-            } else if (angle <= -20) {
-                angleFile = R.raw.height5angle_25;
-            } else if (angle <= -10) {
-                angleFile = R.raw.height5angle_15;
-            } else if (angle <= 0) {
-                angleFile = R.raw.height5angle_5;
-            } else if (angle <= 10) {
-                angleFile = R.raw.height5angle5;
-            } else if (angle <= 20) {
-                angleFile = R.raw.height5angle15;
-            } else if (angle <= 30) {
-                angleFile = R.raw.height5angle25;
-            } else if (angle <= 40) {
-                angleFile = R.raw.height5angle35;
-            } else if (angle <= 50) {
-                angleFile = R.raw.height5angle45;
-            } else if (angle <= 60) {
-                angleFile = R.raw.height5angle55;
-            } else if (angle <= 70) {
-                angleFile = R.raw.height5angle65;
-            } else if (angle <= 80) {
-                angleFile = R.raw.height5angle75;
-            } else {
-                angleFile = R.raw.height5angle85;
-            }
-            //If the height is less than 7, choose a sound file corresponding to height 6 and the angle
-        } else if (height < 7) {
-            if (angle <= -80) {
-                angleFile = R.raw.height6angle_85;
-            } else if (angle <= -70) {
-                angleFile = R.raw.height6angle_75;
-            } else if (angle <= -60) {
-                angleFile = R.raw.height6angle_65;
-            } else if (angle <= -50) {
-                angleFile = R.raw.height6angle_55;
-            } else if (angle <= -40) {
-                angleFile = R.raw.height6angle_45;
-            } else if (angle <= -30) {
-                angleFile = R.raw.height6angle_35;
-            } else if (angle <= -20) {
-                angleFile = R.raw.height6angle_25;
-            } else if (angle <= -10) {
-                angleFile = R.raw.height6angle_15;
-            } else if (angle <= 0) {
-                angleFile = R.raw.height6angle_5;
-            } else if (angle <= 10) {
-                angleFile = R.raw.height6angle5;
-            } else if (angle <= 20) {
-                angleFile = R.raw.height6angle15;
-            } else if (angle <= 30) {
-                angleFile = R.raw.height6angle25;
-            } else if (angle <= 40) {
-                angleFile = R.raw.height6angle35;
-            } else if (angle <= 50) {
-                angleFile = R.raw.height6angle45;
-            } else if (angle <= 60) {
-                angleFile = R.raw.height6angle55;
-            } else if (angle <= 70) {
-                angleFile = R.raw.height6angle65;
-            } else if (angle <= 80) {
-                angleFile = R.raw.height6angle75;
-            } else {
-                angleFile = R.raw.height6angle85;
-            }
-            //Otherwise, choose a sound file corresponding to height 7 and the angle.
-        } else {
-            if (angle <= -80) {
-                angleFile = R.raw.height7angle_85;
-            } else if (angle <= -70) {
-                angleFile = R.raw.height7angle_75;
-            } else if (angle <= -60) {
-                angleFile = R.raw.height7angle_65;
-            } else if (angle <= -50) {
-                angleFile = R.raw.height7angle_55;
-            } else if (angle <= -40) {
-                angleFile = R.raw.height7angle_45;
-            } else if (angle <= -30) {
-                angleFile = R.raw.height7angle_35;
-            } else if (angle <= -20) {
-                angleFile = R.raw.height7angle_25;
-            } else if (angle <= -10) {
-                angleFile = R.raw.height7angle_15;
-            } else if (angle <= 0) {
-                angleFile = R.raw.height7angle_5;
-            } else if (angle <= 10) {
-                angleFile = R.raw.height7angle5;
-            } else if (angle <= 20) {
-                angleFile = R.raw.height7angle15;
-            } else if (angle <= 30) {
-                angleFile = R.raw.height7angle25;
-            } else if (angle <= 40) {
-                angleFile = R.raw.height7angle35;
-            } else if (angle <= 50) {
-                angleFile = R.raw.height7angle45;
-            } else if (angle <= 60) {
-                angleFile = R.raw.height7angle55;
-            } else if (angle <= 70) {
-                angleFile = R.raw.height7angle65;
-            } else if (angle <= 80) {
-                angleFile = R.raw.height7angle75;
-            } else {
-                angleFile = R.raw.height7angle85;
-            }
+    //The angle, height or distance changed: switch to the sound file for the new position. If a beep is
+    //playing, the audio engine fades it over to the new file rather than cutting it off and starting again.
+    public void moveSound(){
+        currentFile = getSoundFile();
+        if (synthesizedCues) {
+            //The synth glides to the new pitch and timbre itself
+            audioEngine.repeat(cueSynth, angle, height, distance);
+            return;
+        }
+        soundBankLoader.track(angle, height);
+        if (soundBankLoader.isReady()) {
+            audioEngine.repeat(soundBankLoader.getClip(currentFile), angle, height, distance);
         }
-
-        //Return which file to play
-        return angleFile;
     }
 
-    //Play a sound given the resource
-    public void playSound(int fileResource){
-        //If a sound is currently playing, stop it.
-        mediaPlayer.release();
-        //Set up the media player
-        mediaPlayer = MediaPlayer.create(this.getApplicationContext(), fileResource);
-        //Start playing
-        mediaPlayer.start(); // no need to call prepare(); create() does that for you
-        //Listen for completion
-        mediaPlayer.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
-            @Override
-            public void onCompletion(MediaPlayer mp) {
-                //Release the media player on completion
-                mp.release();
-            }
-        });
-
-        //Send a message to repeat the sound file some time later
-        Message msg = Message.obtain();
-        //Msg.what = 1 means that this is to repeat a sound file
-        msg.what = 1;
-        msg.arg1 = fileResource;
-        //Delay sending based on the distance from the object
-        soundHandler.sendMessageDelayed(msg, distance*600L);
-
+    //Play a sound given its index in the sound bank, and keep repeating it. Until the first file is decoded this does
+    //nothing, and onReady starts the sound.
+    public void playSound(int soundFile){
+        if (synthesizedCues) {
+            audioEngine.repeat(cueSynth, angle, height, distance);
+        } else if (soundBankLoader.isReady()) {
+            //The audio engine repeats the decoded file itself, timed by the audio clock. While the bank is
+            //still loading this may be the nearest file that is decoded.
+            audioEngine.repeat(soundBankLoader.getClip(soundFile), angle, height, distance);
+        }
     }
 
 
@@ -5,13 +5,19 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
-import android.media.MediaPlayer;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.WindowManager;
 import android.widget.TextView;
 
+import com.example.spatialaudio.AudioEngine;
+import com.example.spatialaudio.LatencyHistogram;
+import com.example.spatialaudio.LatencyStages;
+import com.example.spatialaudio.SoundBank;
+import com.example.spatialaudio.android.AudioTrackSink;
+import com.example.spatialaudio.android.SoundBankLoader;
+
 import org.opencv.android.BaseLoaderCallback;
 import org.opencv.android.CameraBridgeViewBase;
 import org.opencv.android.LoaderCallbackInterface;
@@ -25,6 +31,8 @@ import org.opencv.core.Rect;
 import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import butterknife.ButterKnife;
@@ -53,14 +61,29 @@ public class MyActivity extends Activity implements CameraBridgeViewBase.CvCamer
     private int imgHeight = 512;
     private int sensorHeight = 4;
 
-    //Position Variables
-    private double distance = 100;
-    private double angle = 0;
-    private double height = 0;
+    //Position Variables, for the largest blob. Written by the camera thread and read by the UI and sound threads, so
+    //volatile; the audio engine gets the positions themselves through repeat(), which hands them over consistently.
+    private volatile double distance = 100;
+    private volatile double angle = 0;
+    private volatile double height = 0;
+
+    //How many blobs are voiced at once, largest first. Each one is its own source in the audio engine.
+    private static final int MAX_BLOBS = 4;
+    //The largest blobs in this frame, and how many there are
+    private final Rect[] blobs = new Rect[MAX_BLOBS];
+    private int blobCount;
+    //Smoothed distance for each source; blobs are matched to sources by size order
+    private final double[] blobDistances = new double[MAX_BLOBS];
 
     //Sound Variables
-    private MediaPlayer mediaPlayer = new MediaPlayer();
-    private int currentFile = R.raw.height0angle_85;
+    //The sound files packed into one asset (built with SpatialAudio's BankPacker)
+    private static final String PACKED_SOUND_BANK = "sound_bank.bank";
+    //Which sound file goes with which angle and height
+    private SoundBank soundBank;
+    private AudioEngine audioEngine;
+    private SoundBankLoader soundBankLoader;
+    //The sound bank index of the sound file to play
+    private volatile int currentFile;
 
     //Camera View
     @InjectView(R.id.camera_view)
@@ -90,7 +113,18 @@ public class MyActivity extends Activity implements CameraBridgeViewBase.CvCamer
     private float[] gravity;
     private float[] geomagnetic;
 
-    private volatile boolean soundRunning;
+    //How long each camera frame spends in each stage on its way to being heard
+    //The frame waiting for the processing thread, and being converted to RGBa
+    private static final int STAGE_QUEUE = 0;
+    private static final int STAGE_CONVERT = 1;
+    //ColorBlobDetector.process()
+    private static final int STAGE_DETECT = 2;
+    //From the detector finishing to the audio engine being told about the blobs
+    private static final int STAGE_TRIGGER = 3;
+    private static final int STAGE_FRAME_TO_TRIGGER = 4;
+    private final LatencyStages latency = new LatencyStages("queue", "convert", "detect", "trigger", "frame to trigger");
+    //Where the histograms are written when the app is paused
+    private static final String LATENCY_FILE = "latency.txt";
 
     //This is what we use to determine whether or not the app loaded successfully
     private BaseLoaderCallback loaderCallback = new BaseLoaderCallback(this) {
@@ -128,6 +162,48 @@ public class MyActivity extends Activity implements CameraBridgeViewBase.CvCamer
 
         // Make this activity the listener for our camera view
         openCvCameraView.setCvCameraViewListener(this);
+
+        //The audio engine plays decoded sound files through one audio track for the whole activity.
+        //The files are decoded in the background so they don't hold up the camera starting.
+        soundBank = new SoundBank(SoundBankLoader.readManifest(getResources(), R.array.sound_bank_grid, R.array.sound_files));
+        currentFile = soundBank.indexOf(angle, height);
+        soundBankLoader = new SoundBankLoader(getResources(), soundBank, PACKED_SOUND_BANK);
+        //Play at the device's own rate so the system mixer can take the fast path, converting the sound files to it
+        AudioTrackSink sink = AudioTrackSink.forDevice(this);
+        soundBankLoader.setSampleRate(sink.getSampleRate());
+        //On low memory devices only the clips around the blob are kept decoded
+        soundBankLoader.setCacheBudget(SoundBankLoader.cacheBudgetFor(this));
+        //Straight ahead first, then outwards; until a blob's file is in, the nearest decoded one stands in for it
+        soundBankLoader.startLoading((float) angle, (float) height, new SoundBankLoader.Listener() {
+            @Override
+            public void onReady() {
+                Log.i(TAG, "First sound file ready after " + soundBankLoader.getTimeToFirstClipMillis() + "ms");
+                playSound();
+            }
+
+            @Override
+            public void onProgress(int loaded, int total) {
+                Log.i(TAG, "Loaded " + loaded + " of " + total + " sound files");
+            }
+
+            @Override
+            public void onLoaded() {
+                Log.i(TAG, "Sound bank loaded after " + soundBankLoader.getTimeToFullBankMillis() + "ms, "
+                        + soundBankLoader.getSubstitutions() + " lookups answered by a neighbouring file");
+            }
+        });
+        //Enough voices for a beep from every blob with room for them to overlap
+        audioEngine = new AudioEngine(sink, 2 * MAX_BLOBS);
+        for (int i = 0; i < MAX_BLOBS; i++) {
+            blobDistances[i] = distance;
+        }
+        //Beep every 5ms per cm of distance, so 500ms at a meter
+        audioEngine.setRepeatPeriod(5, 150, 2000);
+        //The height formula in onCameraFrame spreads the camera's 62 degree vertical view over heights 2 to 5,
+        //so turn heights back into the blob's elevation from the centre of the view
+        audioEngine.setElevationMapping(-31 - 2 * 62 / 3.0f, 62 / 3.0f);
+        //Blobs within half a meter sound as recorded, getting quieter and duller out to 5 meters
+        audioEngine.setDistanceModel(50, 500);
     }
 
     @Override
@@ -137,39 +213,33 @@ public class MyActivity extends Activity implements CameraBridgeViewBase.CvCamer
         if (openCvCameraView != null) {
             openCvCameraView.disableView();
         }
-        soundRunning = false;
+        audioEngine.stop();
+        Log.i(TAG, "Beat jitter: " + audioEngine.getBeatJitter() + " (render clock: " + audioEngine.getRenderClockJitter() + ")");
+        Log.i(TAG, "Mixer: " + audioEngine.getMixerStats());
+        Log.i(TAG, "Render: " + audioEngine.getRenderStats());
+        dumpLatency();
+        if (soundBankLoader.getCacheStats() != null) {
+            Log.i(TAG, "Sound cache: " + soundBankLoader.getCacheStats());
+        }
         super.onPause();
     }
 
+    @Override
+    public void onDestroy() {
+        soundBankLoader.release();
+        super.onDestroy();
+    }
+
     @Override
     public void onResume() {
         //When the app is resumed, restart the camera asynchronously
         OpenCVLoader.initAsync(OpenCVLoader.OPENCV_VERSION_2_4_3, this, loaderCallback);
         sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_UI);
         sensorManager.registerListener(this, magnetometer, SensorManager.SENSOR_DELAY_UI);
-        startSoundThread();
+        audioEngine.start();
         super.onResume();
     }
 
-    private void startSoundThread() {
-        soundRunning = true;
-        Thread soundThread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                while (soundRunning) {
-                    try {
-                        Thread.sleep(500);
-                        playSound();
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-
-                }
-            }
-        });
-        soundThread.start();
-    }
-
     //When a user swipes down to quit, finish the app
     @Override
     public boolean onKeyDown(int keycode, KeyEvent event) {
@@ -206,57 +276,81 @@ public class MyActivity extends Activity implements CameraBridgeViewBase.CvCamer
     //Every time we get a new camera frame
     @Override
     public Mat onCameraFrame(CameraBridgeViewBase.CvCameraViewFrame inputFrame) {
+        //When the frame arrived and when this thread picked it up, for the latency histograms
+        long frameNanos = openCvCameraView.getFrameTimestampNanos();
+        long deliverNanos = openCvCameraView.getDeliverTimestampNanos();
         //the image matrix is the input frame converted to RGBa
         rgba = inputFrame.rgba();
+        long convertedNanos = System.nanoTime();
+        latency.record(STAGE_QUEUE, frameNanos, deliverNanos);
+        latency.record(STAGE_CONVERT, deliverNanos, convertedNanos);
         //Log.e(TAG, "Size " + rgba.size());
         //if we are tracking a color
         if (isColorSelected) {
             //process the color
             detector.process(rgba);
+            long detectedNanos = System.nanoTime();
+            latency.record(STAGE_DETECT, convertedNanos, detectedNanos);
             //get the contours from that color
             List<MatOfPoint> contours = detector.getContours();
             //Log.e(TAG, "Contours count: " + contours.size());
             //Draw the contours
             //Imgproc.drawContours(rgba, contours, -1, CONTOUR_COLOR);
 
-            //For each set of contours, draw a rectangle
+            //Find the largest blobs, and give each a rectangle and a voice
             if (!contours.isEmpty()) {
-                Rect largestContourRect = Imgproc.boundingRect(contours.get(0));
-
-                for (MatOfPoint contour : contours) {
-                    Rect bounding = Imgproc.boundingRect(contour);
-                    if (bounding.area() > largestContourRect.area()) {
-                        largestContourRect = bounding;
+                int previousCount = blobCount;
+                findLargestBlobs(contours);
+                double largestArea = blobs[0].area();
+
+                for (int i = 0; i < blobCount; i++) {
+                    Rect blob = blobs[i];
+                    Point p1 = new Point(blob.x, blob.y);
+                    Point p2 = new Point(blob.x + blob.width, blob.y + blob.height);
+                    Core.rectangle(rgba, p1, p2, CONTOUR_COLOR, 1);
+
+                    //distance in mm
+                    double tempDistance = (focal * objWidth * imgHeight) / (blob.width * sensorHeight);
+                    //Smoothing the distance signal
+                    double smoothing = 10.0;
+                    blobDistances[i] += ((tempDistance / 10) - blobDistances[i]) / smoothing;
+
+                    //Calculating angle
+                    //angle = (76 * (blob.x + blob.width / 2) / 512.0) - 38;
+                    double blobAngle = -((180 * (blob.x + blob.width / 2) / 512.0) - 90);
+
+                    //Assuming that the average person is 175 cm
+                    //height = 175 - distance**Math.sin(Math.toRadians(elivAngle));
+                    double blobHeight = (3 * (1 - ((blob.y + blob.height / 2) / 288.0))) + 2;
+
+                    if (i == 0) {
+                        //The largest blob is the one shown on the display
+                        distance = blobDistances[0];
+                        angle = blobAngle;
+                        height = blobHeight;
+                        currentFile = getSoundFile();
+                    }
+                    //Prefetch the sound files around every blob, each as its own source
+                    soundBankLoader.track(i, (float) blobAngle, (float) blobHeight);
+                    //get the sound file for each blob's angle and height, and tell the audio engine. If the file
+                    //changed while a beep is playing, the engine fades the beep over to the new file.
+                    //Smaller blobs are quieter, by their size relative to the largest.
+                    if (soundBankLoader.isReady()) {
+                        int file = soundBank.indexOf(blobAngle, blobHeight);
+                        float gain = (float) Math.sqrt(blob.area() / largestArea);
+                        audioEngine.repeat(i, soundBankLoader.getClip(file), (float) blobAngle, (float) blobHeight,
+                                (float) blobDistances[i], gain, 0.0f, frameNanos);
                     }
                 }
-
-                Point p1 = new Point(largestContourRect.x, largestContourRect.y);
-
-                Point p2 = new Point(largestContourRect.x + largestContourRect.width, largestContourRect.y + largestContourRect.height);
-
-                Core.rectangle(rgba, p1, p2, CONTOUR_COLOR, 1);
-                //Log.e(TAG, "Width: " + largestContourRect.width + " Height: " + largestContourRect.height);
-                //Log.e(TAG, "X: " + largestContourRect.x + " Y: " + largestContourRect.y);
-                //distance in mm
-
-
-                double tempDistance = (focal * objWidth * imgHeight) / (largestContourRect.width * sensorHeight);
-                //Smoothing the distance signal
-                double smoothing = 10.0;
-                distance += ((tempDistance / 10) - distance) / smoothing;
-
-                //Calculating angle
-                //angle = (76 * (largestContourRect.x + largestContourRect.width / 2) / 512.0) - 38;
-                angle = -((180 * (largestContourRect.x + largestContourRect.width / 2) / 512.0) - 90);
-
-
-                double elivAngle = (62 * (largestContourRect.y + largestContourRect.height / 2) / 288.0) - 31;
-
-                //Assuming that the average person is 175 cm
-                //height = 175 - distance**Math.sin(Math.toRadians(elivAngle));
-                height = (3 * (1 - ((largestContourRect.y + largestContourRect.height / 2) / 288.0))) + 2;
-                //get the current sound file based on angle and height
-                currentFile = getSoundFile();
+                if (soundBankLoader.isReady()) {
+                    long triggeredNanos = System.nanoTime();
+                    latency.record(STAGE_TRIGGER, detectedNanos, triggeredNanos);
+                    latency.record(STAGE_FRAME_TO_TRIGGER, frameNanos, triggeredNanos);
+                }
+                //Silence the sources for blobs that have gone
+                for (int i = blobCount; i < previousCount; i++) {
+                    audioEngine.stopRepeating(i);
+                }
 
 //                Log.e(TAG, "Distance: " + distance);
 //                Log.e(TAG, "Angle: " + angle);
@@ -278,6 +372,45 @@ public class MyActivity extends Activity implements CameraBridgeViewBase.CvCamer
         return rgba;
     }
 
+    //Log the latency of each stage and write the histograms, with the audio engine's, to a file
+    private void dumpLatency() {
+        Log.i(TAG, "Latency:\n" + latency);
+        Log.i(TAG, "Trigger to audio write: " + audioEngine.getTriggerLatency());
+        Log.i(TAG, "Frame to audio write: " + audioEngine.getOriginLatency());
+        File directory = getExternalFilesDir(null);
+        if (directory == null) {
+            return;
+        }
+        File file = new File(directory, LATENCY_FILE);
+        try {
+            latency.writeTo(file, new String[]{"trigger to audio write", "frame to audio write"},
+                    new LatencyHistogram[]{audioEngine.getTriggerLatency(), audioEngine.getOriginLatency()});
+            Log.i(TAG, "Latency histograms written to " + file);
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't write " + file, e);
+        }
+    }
+
+    //Keep the MAX_BLOBS largest bounding rectangles in blobs, largest first
+    private void findLargestBlobs(List<MatOfPoint> contours) {
+        blobCount = 0;
+        for (MatOfPoint contour : contours) {
+            Rect bounding = Imgproc.boundingRect(contour);
+            double area = bounding.area();
+            if (blobCount == MAX_BLOBS && area <= blobs[MAX_BLOBS - 1].area()) {
+                continue;
+            }
+            //Insertion sort, dropping the smallest if it is full
+            int i = Math.min(blobCount, MAX_BLOBS - 1);
+            while (i > 0 && blobs[i - 1].area() < area) {
+                blobs[i] = blobs[i - 1];
+                i--;
+            }
+            blobs[i] = bounding;
+            blobCount = Math.min(blobCount + 1, MAX_BLOBS);
+        }
+    }
+
     //Update text on the glass's display
     public void updateText() {
         //In order to update UI elements, we have to run on the UI thread
@@ -297,39 +430,18 @@ public class MyActivity extends Activity implements CameraBridgeViewBase.CvCamer
 
     }
 
-    //Decide which sound file to play
+    //Decide which sound file to play: the index of the sound bank cell for the current angle and height.
+    //This runs on every camera frame, so it must not allocate (no logging here).
     public int getSoundFile() {
-        Log.i("Calculating which sound file", "height :" + height + ", angle :" + angle);
-
-        // Floor the double and limit to 0 <= height <= 7
-        int roundedHeight = Math.max(Math.min((int) Math.floor(height),7),0);
-        // Round to the nearest multiple of 5 and limit to -85 <= angle <= 85
-        int roundedAngle = Math.max(Math.min(5*(Math.round((int)(height/5))), 85), -85);
-        // Chosen file based on height and angle -> index in resource array
-        int chosenFile = roundedHeight * 16 + (roundedAngle + 5)/10 + 9;
-
-        Log.i("Getting Sound File", "roundedHeight: " + roundedHeight + ", roundedAngle" + roundedAngle + ", chosen soundFile: " + chosenFile);
-        return getResources().obtainTypedArray(R.array.sound_files).getResourceId(chosenFile, -1);
+        return soundBank.indexOf(angle, height);
     }
 
-    //Play a sound given the resource
+    //Play the current sound file, once the first one is decoded
     public void playSound() {
-        //If a sound is currently playing, stop it.
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
+        if (soundBankLoader.isReady()) {
+            //The audio engine repeats the decoded file itself, timed by the audio clock
+            audioEngine.repeat(soundBankLoader.getClip(currentFile), (float) angle, (float) height, (float) distance);
         }
-        //Set up the media player
-        mediaPlayer = MediaPlayer.create(this.getApplicationContext(), currentFile);
-        mediaPlayer.start();
-
-        //Listen for completion
-        mediaPlayer.setOnCompletionListener(new MediaPlayer.OnCompletionListener() {
-            @Override
-            public void onCompletion(MediaPlayer mp) {
-                //Release the media player on completion
-                mp.release();
-            }
-        });
     }
 
     //When the accuracy of a sensor changes
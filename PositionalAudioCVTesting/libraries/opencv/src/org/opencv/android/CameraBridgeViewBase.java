@@ -50,6 +50,9 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
     protected int mCameraIndex = CAMERA_ID_ANY;
     protected boolean mEnabled;
     protected FpsMeter mFpsMeter = null;
+    //When the frame being delivered arrived from the camera, and when it started being delivered (System.nanoTime())
+    private long mFrameTimestampNanos;
+    private long mDeliverTimestampNanos;
 
     public static final int CAMERA_ID_ANY   = -1;
     public static final int CAMERA_ID_BACK  = 99;
@@ -374,6 +377,22 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
         }
     }
 
+    /**
+     * When the frame passed to onCameraFrame() arrived from the camera, by System.nanoTime(). Only meaningful
+     * while onCameraFrame() is running, on the thread that called it.
+     */
+    public long getFrameTimestampNanos() {
+        return mFrameTimestampNanos;
+    }
+
+    /**
+     * When delivery of the frame passed to onCameraFrame() started, by System.nanoTime(); the time since
+     * getFrameTimestampNanos() is how long the frame waited for the processing thread.
+     */
+    public long getDeliverTimestampNanos() {
+        return mDeliverTimestampNanos;
+    }
+
     /**
      * This method shall be called by the subclasses when they have valid
      * object and want it to be delivered to external client (via callback) and
@@ -381,6 +400,15 @@ public abstract class CameraBridgeViewBase extends SurfaceView implements Surfac
      * @param frame - the current frame to be delivered
      */
     protected void deliverAndDrawFrame(CvCameraViewFrame frame) {
+        deliverAndDrawFrame(frame, System.nanoTime());
+    }
+
+    /**
+     * The same, for a frame that arrived from the camera at frameTimestampNanos (from System.nanoTime()).
+     */
+    protected void deliverAndDrawFrame(CvCameraViewFrame frame, long frameTimestampNanos) {
+        mDeliverTimestampNanos = System.nanoTime();
+        mFrameTimestampNanos = frameTimestampNanos;
         Mat modified;
 
         if (mListener != null) {
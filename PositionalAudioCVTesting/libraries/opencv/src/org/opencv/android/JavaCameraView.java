@@ -33,6 +33,8 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
 
     private byte mBuffer[];
     private Mat[] mFrameChain;
+    //When each frame in the chain arrived, by System.nanoTime()
+    private long[] mFrameTimestamps = new long[2];
     private int mChainIdx = 0;
     private Thread mThread;
     private boolean mStopThread;
@@ -273,9 +275,11 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
     }
 
     public void onPreviewFrame(byte[] frame, Camera arg1) {
+        long arrivedNanos = System.nanoTime();
         Log.d(TAG, "Preview Frame received. Frame size: " + frame.length);
         synchronized (this) {
             mFrameChain[1 - mChainIdx].put(0, 0, frame);
+            mFrameTimestamps[1 - mChainIdx] = arrivedNanos;
             this.notify();
         }
         if (mCamera != null)
@@ -325,7 +329,7 @@ public class JavaCameraView extends CameraBridgeViewBase implements PreviewCallb
 
                 if (!mStopThread) {
                     if (!mFrameChain[mChainIdx].empty())
-                        deliverAndDrawFrame(mCameraFrame[mChainIdx]);
+                        deliverAndDrawFrame(mCameraFrame[mChainIdx], mFrameTimestamps[mChainIdx]);
                     mChainIdx = 1 - mChainIdx;
                 }
             } while (!mStopThread);
@@ -0,0 +1,107 @@
+package com.example.spatialaudio.android;
+
+import android.content.Context;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+
+import com.example.spatialaudio.AudioSink;
+
+/**
+ * Streams the {@link com.example.spatialaudio.AudioEngine} mix to a single AudioTrack in stream mode.
+ * The track is kept at the smallest buffer the device allows to keep the latency down.
+ *
+ * Use {@link #forDevice} to run at the device's own output rate and buffer size. A track at any other rate is
+ * resampled by the system mixer and can't use its low latency fast path, so the bank should be converted to the
+ * same rate (see {@link SoundBankLoader#setSampleRate}).
+ */
+public class AudioTrackSink implements AudioSink {
+    private final int sampleRate;
+    private final int framesPerBuffer;
+    private final int bufferSizeInBytes;
+    private AudioTrack audioTrack;
+
+    public AudioTrackSink(int sampleRate) {
+        this(sampleRate, 0);
+    }
+
+    /**
+     * A sink rendering in multiples of the device's own buffer, deviceFrames frames, so every write lines up with
+     * one of the system mixer's; 0 if the device doesn't say.
+     */
+    public AudioTrackSink(int sampleRate, int deviceFrames) {
+        this.sampleRate = sampleRate;
+        //4 bytes per stereo 16 bit frame
+        int minBufferBytes = AudioTrack.getMinBufferSize(sampleRate,
+                AudioFormat.CHANNEL_OUT_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+        //Render in halves of the device buffer so one write is always queued behind the one playing
+        int frames = minBufferBytes / 4 / 2;
+        if (deviceFrames > 0) {
+            frames = Math.max(deviceFrames, frames / deviceFrames * deviceFrames);
+        }
+        framesPerBuffer = frames;
+        bufferSizeInBytes = Math.max(minBufferBytes, framesPerBuffer * 4 * 2);
+    }
+
+    //A sink at the device's output sample rate and buffer size
+    public static AudioTrackSink forDevice(Context context) {
+        int sampleRate = AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_MUSIC);
+        int deviceFrames = 0;
+        if (Build.VERSION.SDK_INT >= 17) {
+            AudioManager audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+            sampleRate = parseProperty(audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE), sampleRate);
+            deviceFrames = parseProperty(audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER), 0);
+        }
+        return new AudioTrackSink(sampleRate, deviceFrames);
+    }
+
+    private static int parseProperty(String value, int otherwise) {
+        if (value == null) {
+            return otherwise;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            return parsed > 0 ? parsed : otherwise;
+        } catch (NumberFormatException e) {
+            return otherwise;
+        }
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getFramesPerBuffer() {
+        return framesPerBuffer;
+    }
+
+    @Override
+    public int getBufferFrames() {
+        return bufferSizeInBytes / 4;
+    }
+
+    @Override
+    public void start() {
+        //start() is called on the render thread, so give it audio priority
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        audioTrack = new AudioTrack(AudioManager.STREAM_MUSIC, sampleRate, AudioFormat.CHANNEL_OUT_STEREO,
+                AudioFormat.ENCODING_PCM_16BIT, bufferSizeInBytes, AudioTrack.MODE_STREAM);
+        audioTrack.play();
+    }
+
+    @Override
+    public void write(short[] buffer, int sampleCount) {
+        audioTrack.write(buffer, 0, sampleCount);
+    }
+
+    @Override
+    public void stop() {
+        audioTrack.stop();
+        audioTrack.release();
+        audioTrack = null;
+    }
+}
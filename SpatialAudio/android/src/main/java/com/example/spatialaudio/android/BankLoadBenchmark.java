@@ -0,0 +1,66 @@
+package com.example.spatialaudio.android;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.PackedBank;
+
+import java.io.IOException;
+
+/**
+ * Compares ways of getting the sound bank ready to play: mapping or reading the packed bank, decoding every raw
+ * wav file, and what the apps used to do, creating a MediaPlayer for every file. Slow, so run it off the UI thread.
+ */
+public class BankLoadBenchmark {
+    private BankLoadBenchmark() {
+    }
+
+    //Run every method once and describe the results
+    public static String run(Context context, String packedBankAsset, int[] rawIds) throws IOException {
+        StringBuilder results = new StringBuilder();
+
+        long start = System.nanoTime();
+        PackedBank mapped = PackedBankAssets.map(context.getAssets(), packedBankAsset);
+        touchAll(mapped);
+        results.append(report("Packed bank, memory mapped", start, mapped.getClipCount()));
+
+        start = System.nanoTime();
+        PackedBank read = PackedBankAssets.read(context.getAssets(), packedBankAsset);
+        touchAll(read);
+        results.append(report("Packed bank, one read", start, read.getClipCount()));
+
+        start = System.nanoTime();
+        RawClipLoader loader = new RawClipLoader(context.getResources());
+        for (int id : rawIds) {
+            loader.decode(id);
+        }
+        results.append(report("Decoding each raw file", start, rawIds.length));
+
+        start = System.nanoTime();
+        for (int id : rawIds) {
+            MediaPlayer player = MediaPlayer.create(context, id);
+            if (player != null) {
+                player.release();
+            }
+        }
+        results.append(report("MediaPlayer.create for each raw file", start, rawIds.length));
+
+        return results.toString();
+    }
+
+    //Copy every clip out, as the sound bank loader does
+    private static void touchAll(PackedBank bank) {
+        for (int i = 0; i < bank.getClipCount(); i++) {
+            Clip clip = bank.getClip(i);
+            if (clip.getFrameCount() == 0) {
+                throw new IllegalStateException("Empty clip " + i);
+            }
+        }
+    }
+
+    private static String report(String name, long startNanos, int clips) {
+        double millis = (System.nanoTime() - startNanos) / 1000000.0;
+        return String.format("%s: %.1fms for %d clips\n", name, millis, clips);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.spatialaudio.android;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import com.example.spatialaudio.HrirSet;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Opens an {@link HrirSet} stored in the app's assets. Like a packed sound bank, the asset has to be stored
+ * uncompressed (aaptOptions { noCompress 'hrir' }) so it can be mapped.
+ */
+public class HrirSetAssets {
+    private HrirSetAssets() {
+    }
+
+    //Memory map the set straight out of the APK
+    public static HrirSet map(AssetManager assets, String name) throws IOException {
+        AssetFileDescriptor descriptor = assets.openFd(name);
+        FileInputStream in = descriptor.createInputStream();
+        try {
+            FileChannel channel = in.getChannel();
+            return HrirSet.map(channel, descriptor.getStartOffset(), descriptor.getLength());
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.spatialaudio.android;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import com.example.spatialaudio.PackedBank;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Opens a {@link PackedBank} stored in the app's assets. The asset has to be stored uncompressed in the APK
+ * (aaptOptions { noCompress 'bank' }) so that it has a file descriptor to map or read.
+ */
+public class PackedBankAssets {
+    private PackedBankAssets() {
+    }
+
+    //Memory map the bank straight out of the APK
+    public static PackedBank map(AssetManager assets, String name) throws IOException {
+        AssetFileDescriptor descriptor = assets.openFd(name);
+        FileInputStream in = descriptor.createInputStream();
+        try {
+            FileChannel channel = in.getChannel();
+            return PackedBank.map(channel, descriptor.getStartOffset(), descriptor.getLength());
+        } finally {
+            in.close();
+        }
+    }
+
+    //Read the bank into a direct buffer with a single read
+    public static PackedBank read(AssetManager assets, String name) throws IOException {
+        AssetFileDescriptor descriptor = assets.openFd(name);
+        FileInputStream in = descriptor.createInputStream();
+        try {
+            FileChannel channel = in.getChannel();
+            return PackedBank.read(channel, descriptor.getStartOffset(), descriptor.getLength());
+        } finally {
+            in.close();
+        }
+    }
+}
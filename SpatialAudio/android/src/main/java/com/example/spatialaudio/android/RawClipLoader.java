@@ -0,0 +1,52 @@
+package com.example.spatialaudio.android;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.PcmFile;
+import com.example.spatialaudio.WavDecoder;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes wav (or AIFF) files in res/raw into {@link Clip}s. Resources stored uncompressed in the APK, as wav
+ * files are by default, are memory mapped and their samples copied out in one go; compressed ones are streamed.
+ */
+public class RawClipLoader {
+    private final Resources resources;
+
+    public RawClipLoader(Resources resources) {
+        this.resources = resources;
+    }
+
+    //Decode a raw resource
+    public Clip decode(int resourceId) {
+        try {
+            AssetFileDescriptor descriptor = resources.openRawResourceFd(resourceId);
+            if (descriptor != null) {
+                try {
+                    FileInputStream in = descriptor.createInputStream();
+                    return PcmFile.map(in.getChannel(), descriptor.getStartOffset(), descriptor.getLength()).toClip();
+                } finally {
+                    descriptor.close();
+                }
+            }
+        } catch (IOException e) {
+            //Fall back to streaming it
+        }
+        InputStream in = resources.openRawResource(resourceId);
+        try {
+            return WavDecoder.decode(in);
+        } catch (IOException e) {
+            throw new Resources.NotFoundException("Could not decode raw resource " + resourceId + ": " + e.getMessage());
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.spatialaudio.android;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.spatialaudio.CacheStats;
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.ClipCache;
+import com.example.spatialaudio.PackedBank;
+import com.example.spatialaudio.ProgressiveBank;
+import com.example.spatialaudio.Resampler;
+import com.example.spatialaudio.SoundBank;
+import com.example.spatialaudio.SoundBankManifest;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Decodes every sound file in a bank into memory once, on a background executor, so triggering a sound
+ * is an array lookup with no I/O. The files are decoded in priority order with a {@link ProgressiveBank}: the cell
+ * the sound starts in, the one straight ahead, then outwards from wherever {@link #track} last put the sound. Once
+ * the first is in {@link #isReady()} is true and {@link #getClip} answers with the nearest decoded cell until the
+ * exact one is, so the first sound plays after one file instead of the whole bank.
+ *
+ * If the bank is also packed into an asset (see {@link PackedBank}) it is loaded from there with one memory map
+ * instead of opening and decoding every raw file.
+ *
+ * On devices short of memory, {@link #setCacheBudget} keeps only some of the clips decoded in a {@link ClipCache}
+ * instead, and {@link #track} prefetches the ones around where each sound is heading. A lookup still never waits
+ * for I/O: a clip that isn't cached is answered with the nearest one that is, and decoded next.
+ *
+ * {@link #setSampleRate} converts each clip to the output's rate as it is loaded, once, so nothing is resampled
+ * while playing.
+ */
+public class SoundBankLoader {
+    private static final String TAG = "SoundBankLoader";
+    //Apps with a heap limit this small (in MB) or less only cache part of the bank
+    private static final int LOW_MEMORY_CLASS = 32;
+    //About 28 of the 44.1kHz stereo sound files
+    private static final long LOW_MEMORY_CACHE_BYTES = 1024 * 1024;
+
+    //Told about loading progress on the UI thread
+    public interface Listener {
+        //The first clip is in, so getClip() can be played
+        void onReady();
+
+        //With a cache, loaded is how many clips are cached, and this is called when a clip that missed comes in
+        void onProgress(int loaded, int total);
+
+        void onLoaded();
+    }
+
+    private final Resources resources;
+    private final RawClipLoader clipLoader;
+    private final SoundBank soundBank;
+    private final String packedBankAsset;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+
+    private volatile boolean loaded;
+    private long cacheBudget;
+    //0 keeps clips at the rate they were recorded at
+    private int sampleRate;
+    private volatile ClipCache cache;
+    private volatile ProgressiveBank progressiveBank;
+    private ExecutorService executor;
+    //The cell to decode around, kept here too in case the sound is tracked before decoding starts
+    private volatile int focusIndex;
+    //When startLoading() was called, which the startup times are measured from
+    private long startNanos;
+    private volatile long cacheReadyNanos = -1;
+
+    //The bank's clip ids are the raw resource ids of its sound files
+    public SoundBankLoader(Resources resources, SoundBank soundBank) {
+        this(resources, soundBank, null);
+    }
+
+    //Load from a packed bank asset with the same grid if there is one, otherwise from the raw files
+    public SoundBankLoader(Resources resources, SoundBank soundBank, String packedBankAsset) {
+        this.resources = resources;
+        this.clipLoader = new RawClipLoader(resources);
+        this.soundBank = soundBank;
+        this.packedBankAsset = packedBankAsset;
+    }
+
+    /**
+     * Read a sound bank manifest from resources: an integer array with the minimum angle, angle step, angles per
+     * height, minimum height and height step, and an array of the raw sound files by height and then angle.
+     */
+    public static SoundBankManifest readManifest(Resources resources, int gridArrayId, int filesArrayId) {
+        int[] grid = resources.getIntArray(gridArrayId);
+        TypedArray files = resources.obtainTypedArray(filesArrayId);
+        int[] ids = new int[files.length()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = files.getResourceId(i, 0);
+        }
+        files.recycle();
+        return new SoundBankManifest(grid[0], grid[1], grid[2], grid[3], grid[4], ids);
+    }
+
+    //A cache budget to suit the device: 0 (decode the whole bank) unless the app's heap is small
+    public static long cacheBudgetFor(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        return activityManager.getMemoryClass() <= LOW_MEMORY_CLASS ? LOW_MEMORY_CACHE_BYTES : 0;
+    }
+
+    //Only keep this many bytes of clips decoded instead of the whole bank. 0 decodes the whole bank. Call before startLoading.
+    public synchronized void setCacheBudget(long bytes) {
+        cacheBudget = bytes;
+    }
+
+    //Convert every clip to this sample rate as it is loaded, e.g. the audio sink's. Call before startLoading.
+    public synchronized void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    //Start decoding the bank in the background, from the cell for the given angle and height. The listener may be null.
+    public synchronized void startLoading(float angle, float height, final Listener listener) {
+        if (executor != null) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        focusIndex = soundBank.indexOf(angle, height);
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "SoundBankLoader");
+            }
+        });
+        final ExecutorService loadExecutor = executor;
+        loadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final PackedBank packedBank = openPackedBank();
+                ClipCache.Loader bankLoader = new ClipCache.Loader() {
+                    @Override
+                    public Clip load(int index) {
+                        return SoundBankLoader.this.load(packedBank, index);
+                    }
+                };
+                if (cacheBudget > 0) {
+                    //Only the first clip is decoded up front, so getClip() has something to answer with. The rest
+                    //are decoded as they are tracked or asked for.
+                    final ClipCache clipCache = new ClipCache(soundBank, bankLoader, cacheBudget);
+                    try {
+                        clipCache.preload(focusIndex);
+                    } catch (RuntimeException e) {
+                        //Ready once tracking has prefetched something else instead
+                        Log.w(TAG, "Couldn't decode the first sound file", e);
+                    }
+                    clipCache.setListener(new ClipCache.Listener() {
+                        @Override
+                        public void onMissLoaded(int index) {
+                            //So the listener picks up the exact clip in place of the neighbour it was given
+                            publishProgress(listener, clipCache.getCachedCount());
+                        }
+                    });
+                    clipCache.start();
+                    cache = clipCache;
+                    if (clipCache.getCachedCount() > 0) {
+                        cacheReadyNanos = System.nanoTime() - startNanos;
+                        publishReady(listener);
+                    }
+                    publishLoaded(listener);
+                    return;
+                }
+                ProgressiveBank bank = new ProgressiveBank(soundBank, bankLoader, new ProgressiveBank.Listener() {
+                    @Override
+                    public void onCellLoaded(int index, int loaded, int total) {
+                        if (loaded == 1) {
+                            publishReady(listener);
+                        }
+                        publishProgress(listener, loaded);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        publishLoaded(listener);
+                    }
+                });
+                progressiveBank = bank;
+                bank.start(loadExecutor, focusIndex, startNanos);
+            }
+        });
+    }
+
+    private void publishReady(final Listener listener) {
+        if (listener != null) {
+            uiHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onReady();
+                }
+            });
+        }
+    }
+
+    private void publishProgress(final Listener listener, final int loaded) {
+        if (listener != null) {
+            uiHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onProgress(loaded, soundBank.size());
+                }
+            });
+        }
+    }
+
+    private Clip load(PackedBank packedBank, int index) {
+        Clip clip = packedBank != null ? packedBank.getClip(index) : clipLoader.decode(soundBank.getClipId(index));
+        return sampleRate > 0 ? Resampler.convert(clip, sampleRate) : clip;
+    }
+
+    private void publishLoaded(final Listener listener) {
+        loaded = true;
+        if (listener != null) {
+            uiHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onLoaded();
+                }
+            });
+        }
+    }
+
+    //Map the packed bank, or return null if there isn't one that matches the sound bank
+    private PackedBank openPackedBank() {
+        if (packedBankAsset == null) {
+            return null;
+        }
+        try {
+            PackedBank packedBank = PackedBankAssets.map(resources.getAssets(), packedBankAsset);
+            SoundBankManifest manifest = packedBank.getManifest();
+            if (manifest.getAngleCount() != soundBank.getAngleCount() || manifest.getHeightCount() != soundBank.getHeightCount()) {
+                Log.w(TAG, packedBankAsset + " doesn't match the sound bank grid, decoding the raw files instead");
+                return null;
+            }
+            return packedBank;
+        } catch (IOException e) {
+            Log.w(TAG, "Couldn't map " + packedBankAsset + ", decoding the raw files instead", e);
+            return null;
+        }
+    }
+
+    //Every clip is decoded (or there is a cache to decode them on demand)
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    //getClip() has something to return without waiting: at least one clip is decoded
+    public boolean isReady() {
+        ClipCache clipCache = cache;
+        if (clipCache != null) {
+            return clipCache.getCachedCount() > 0;
+        }
+        ProgressiveBank bank = progressiveBank;
+        return bank != null && bank.isReady();
+    }
+
+    public int size() {
+        return soundBank.size();
+    }
+
+    //The decoded clip at a bank index, or the nearest decoded one while it is still loading or isn't cached. Only
+    //valid once isReady() is true.
+    public Clip getClip(int index) {
+        ClipCache clipCache = cache;
+        if (clipCache != null) {
+            return clipCache.get(index);
+        }
+        ProgressiveBank bank = progressiveBank;
+        return bank != null ? bank.getClip(index) : null;
+    }
+
+    //Tell the loader where the sound is, so the clips around it are decoded next (or prefetched into the cache)
+    public void track(float angle, float height) {
+        track(0, angle, height);
+    }
+
+    //The same for one of several sounds, e.g. an audio engine source. The cache prefetches around every one of
+    //them; the whole bank is decoded outwards from source 0.
+    public void track(int source, float angle, float height) {
+        ClipCache clipCache = cache;
+        if (clipCache != null) {
+            clipCache.track(source, angle, height);
+        }
+        if (source != 0) {
+            return;
+        }
+        focusIndex = soundBank.indexOf(angle, height);
+        ProgressiveBank bank = progressiveBank;
+        if (bank != null) {
+            bank.focus(focusIndex);
+        }
+    }
+
+    //How long after startLoading() the first clip could be played, or -1 if none can yet
+    public double getTimeToFirstClipMillis() {
+        ProgressiveBank bank = progressiveBank;
+        if (bank != null) {
+            return bank.getFirstClipMillis();
+        }
+        long nanos = cacheReadyNanos;
+        return nanos < 0 ? -1 : nanos / 1e6;
+    }
+
+    //How long after startLoading() the whole bank was decoded, or -1 if it isn't yet or there is a cache instead
+    public double getTimeToFullBankMillis() {
+        ProgressiveBank bank = progressiveBank;
+        return bank != null ? bank.getFullBankMillis() : -1;
+    }
+
+    //Lookups answered with a neighbouring cell because the exact one wasn't decoded yet
+    public long getSubstitutions() {
+        ProgressiveBank bank = progressiveBank;
+        return bank != null ? bank.getSubstitutions() : 0;
+    }
+
+    //The cache's hit, miss and prefetch counts, or null if the whole bank is decoded
+    public CacheStats getCacheStats() {
+        ClipCache clipCache = cache;
+        return clipCache != null ? clipCache.getStats() : null;
+    }
+
+    //Stop prefetching or loading
+    public synchronized void release() {
+        ClipCache clipCache = cache;
+        if (clipCache != null) {
+            clipCache.stop();
+        }
+        ProgressiveBank bank = progressiveBank;
+        if (bank != null) {
+            bank.stop();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
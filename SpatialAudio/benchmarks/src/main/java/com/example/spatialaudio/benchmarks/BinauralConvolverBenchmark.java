@@ -0,0 +1,95 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.BinauralConvolver;
+import com.example.spatialaudio.HrirFilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many voices one core can convolve in real time at 44.1kHz. Each operation renders one second of audio for
+ * one voice, so the score in ops/s is the number of voices a core keeps up with.
+ *
+ * The moving variant swaps HRIRs every block, so every block is rendered twice and crossfaded; that is the worst
+ * case for a sound that never stops moving.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BinauralConvolverBenchmark {
+    static final int SAMPLE_RATE = 44100;
+
+    @Param({"64", "128", "256"})
+    public int blockSize;
+
+    //128 taps is a typical trimmed HRIR at 44.1kHz, 512 an untrimmed one
+    @Param({"128", "512"})
+    public int hrirLength;
+
+    private BinauralConvolver convolver;
+    private HrirFilter[] filters;
+    private float[] input;
+    private float[] block;
+    private float[] output;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        //Two different HRIR pairs to switch between
+        filters = new HrirFilter[2];
+        for (int f = 0; f < filters.length; f++) {
+            float[] left = new float[hrirLength];
+            float[] right = new float[hrirLength];
+            for (int i = 0; i < hrirLength; i++) {
+                float decay = (float) Math.exp(-4.0 * i / hrirLength);
+                left[i] = (float) random.nextGaussian() * decay;
+                right[i] = (float) random.nextGaussian() * decay;
+            }
+            filters[f] = new HrirFilter(left, right, blockSize);
+        }
+        convolver = new BinauralConvolver(filters[0]);
+        input = new float[SAMPLE_RATE];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        block = new float[blockSize];
+        output = new float[2 * blockSize];
+    }
+
+    @Benchmark
+    public float still() {
+        for (int start = 0; start < SAMPLE_RATE; start += blockSize) {
+            renderBlock(start);
+        }
+        return output[0];
+    }
+
+    @Benchmark
+    public float moving() {
+        int next = 1;
+        for (int start = 0; start < SAMPLE_RATE; start += blockSize) {
+            convolver.setFilter(filters[next]);
+            next ^= 1;
+            renderBlock(start);
+        }
+        return output[0];
+    }
+
+    //Render one block the way a mixer would, into a buffer shared by all the voices
+    private void renderBlock(int start) {
+        int frames = Math.min(blockSize, SAMPLE_RATE - start);
+        System.arraycopy(input, start, block, 0, frames);
+        Arrays.fill(output, 0.0f);
+        convolver.render(block, frames, output, 0, 1.0f);
+    }
+}
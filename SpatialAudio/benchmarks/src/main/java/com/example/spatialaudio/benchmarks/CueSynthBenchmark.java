@@ -0,0 +1,69 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.AudioEngine;
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.CueSynth;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a {@link CueSynth} costs against recorded clips. build is the startup cost, making the wavetables, to set
+ * against decoding the sound bank (BankLoadBenchmark on a device). mix renders one block with the given number of
+ * sources repeating at different angles and heights, either synthesized or from a recorded clip of the same length,
+ * so the difference is what the oscillator costs per voice on top of reading samples.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CueSynthBenchmark {
+    private static final int SAMPLE_RATE = MixerBenchmark.SAMPLE_RATE;
+    private static final int BLOCK_SIZE = 256;
+
+    @Param({"1", "8"})
+    public int voices;
+
+    @Param({"false", "true"})
+    public boolean synthesized;
+
+    private AudioEngine engine;
+    private short[] output;
+
+    @Setup
+    public void setUp() {
+        CueSynth synth = new CueSynth(SAMPLE_RATE);
+        //The synth's first note, so both play the same sound
+        short[] samples = new short[synth.getFrameCount()];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) Math.round(12000 * Math.sin(2 * Math.PI * 220 * i / SAMPLE_RATE));
+        }
+        Clip clip = synthesized ? synth : new Clip(samples, 1, SAMPLE_RATE);
+        engine = new AudioEngine(new MixerBenchmark.NullSink(BLOCK_SIZE), 2 * voices);
+        engine.setRenderBudget(100.0f);
+        float period = synth.getFrameCount() * 1000.0f / SAMPLE_RATE;
+        engine.setRepeatPeriod(0, period, period);
+        for (int v = 0; v < voices; v++) {
+            engine.repeat(v, clip, -90.0f + 180.0f * v / voices, 8.0f * v / voices, 1, 1.0f / voices, 0.0f);
+        }
+        output = new short[BLOCK_SIZE * 2];
+    }
+
+    @Benchmark
+    public CueSynth build() {
+        return new CueSynth(SAMPLE_RATE);
+    }
+
+    @Benchmark
+    public short mix() {
+        engine.render(output, BLOCK_SIZE);
+        return output[0];
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.AudioEngine;
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.CueSynth;
+
+import java.util.zip.CRC32;
+
+/**
+ * Renders the same few seconds of sound through the engine in floating point and in fixed point
+ * ({@link AudioEngine#setFixedPoint}) and compares them: mono voices placed at different angles, heights and
+ * distances and then moved, a stereo voice crossfading to another clip, two repeating sources, a synthesized cue
+ * gliding to a new height and distance, and a loud sound that makes the limiter work, so every fixed-point kernel
+ * is in there. Prints the largest and RMS difference in bits of the 16 bit output, and a checksum of the
+ * fixed-point output, which is the same on every JVM and device.
+ *
+ * Run with: gradle :benchmarks:fixedPointAccuracy
+ * Exits with status 1 if any sample differs by more than MAX_DIFFERENCE, or two fixed-point runs differ at all.
+ */
+public class FixedPointAccuracy {
+    private static final int SAMPLE_RATE = MixerBenchmark.SAMPLE_RATE;
+    private static final int BLOCK_SIZE = 256;
+    private static final int BLOCKS = 4 * SAMPLE_RATE / BLOCK_SIZE;
+    //In bits of the 16 bit output
+    private static final int MAX_DIFFERENCE = 4;
+
+    public static void main(String[] args) {
+        short[] floating = render(false);
+        short[] fixed = render(true);
+        short[] again = render(true);
+
+        int largest = 0;
+        double squares = 0;
+        for (int i = 0; i < floating.length; i++) {
+            int difference = Math.abs(floating[i] - fixed[i]);
+            largest = Math.max(largest, difference);
+            squares += (double) difference * difference;
+        }
+        double rms = Math.sqrt(squares / floating.length);
+        boolean repeatable = java.util.Arrays.equals(fixed, again);
+        double peak = 0;
+        for (short sample : floating) {
+            peak = Math.max(peak, Math.abs(sample));
+        }
+
+        System.out.println(floating.length / 2 + " frames, peak " + (int) peak);
+        System.out.println(String.format("Largest difference: %d bits, RMS %.3f bits", largest, rms));
+        System.out.println("Fixed point checksum: " + Long.toHexString(checksum(fixed))
+                + (repeatable ? "" : " (different the second time)"));
+        if (largest > MAX_DIFFERENCE || !repeatable) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static short[] render(boolean fixedPoint) {
+        AudioEngine engine = new AudioEngine(new MixerBenchmark.NullSink(BLOCK_SIZE), 16);
+        //Full rendering for every voice, so how long blocks take doesn't change what is heard
+        engine.setRenderBudget(100.0f);
+        engine.setElevationMapping(-40, 12.5f);
+        engine.setDistanceModel(1, 11);
+        engine.setFixedPoint(fixedPoint);
+        engine.setRepeatPeriod(300, 300, 3300);
+
+        Clip beep = tone(1, 880, SAMPLE_RATE / 5);
+        Clip low = tone(1, 220, SAMPLE_RATE);
+        Clip high = tone(1, 3520, SAMPLE_RATE);
+        Clip stereo = tone(2, 440, 2 * SAMPLE_RATE);
+        Clip otherStereo = tone(2, 660, 2 * SAMPLE_RATE);
+        CueSynth synth = new CueSynth(SAMPLE_RATE);
+
+        short[] output = new short[BLOCKS * BLOCK_SIZE * 2];
+        short[] block = new short[BLOCK_SIZE * 2];
+        int lowVoice = 0;
+        int highVoice = 0;
+        int stereoVoice = 0;
+        for (int b = 0; b < BLOCKS; b++) {
+            if (b == 0) {
+                lowVoice = engine.play(low, 60, 0, 1);
+                highVoice = engine.play(high, -30, 6, 4, 0.7f, 0.2f);
+                stereoVoice = engine.play(stereo, 0, 3, 2, 0.5f, 0.0f);
+                engine.repeat(0, beep, 80, 1, 2, 0.8f, 0.0f);
+                engine.repeat(1, beep, -70, 5, 7, 0.8f, -0.3f);
+                engine.repeat(2, synth, 30, 2, 1, 0.8f, 0.0f);
+            } else if (b == 50) {
+                engine.move(lowVoice, low, -45, 7, 9);
+                engine.move(highVoice, high, 20, 0, 1, 1.0f, -0.5f);
+                engine.move(stereoVoice, otherStereo, 0, 0, 5);
+            } else if (b == 120) {
+                engine.repeat(0, beep, -10, 7, 11, 0.8f, 0.5f);
+                engine.repeat(2, synth, 40, 6, 6, 0.8f, 0.0f);
+            } else if (b == 200) {
+                engine.play(low, 10, 2, 1, 8.0f, 0.0f);
+            }
+            engine.render(block, BLOCK_SIZE);
+            System.arraycopy(block, 0, output, b * block.length, block.length);
+        }
+        return output;
+    }
+
+    //A sine with a few harmonics, so the filters have something to work on
+    private static Clip tone(int channels, double frequency, int frames) {
+        short[] samples = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            double phase = 2 * Math.PI * frequency * i / SAMPLE_RATE;
+            double value = 0.5 * Math.sin(phase) + 0.2 * Math.sin(3 * phase) + 0.1 * Math.sin(7 * phase);
+            for (int c = 0; c < channels; c++) {
+                //The channels a little apart, as recorded stereo would be
+                samples[i * channels + c] = (short) Math.round(12000 * value * (1 - 0.3 * c));
+            }
+        }
+        return new Clip(samples, channels, SAMPLE_RATE);
+    }
+
+    private static long checksum(short[] samples) {
+        CRC32 crc = new CRC32();
+        for (short sample : samples) {
+            crc.update(sample & 0xff);
+            crc.update((sample >> 8) & 0xff);
+        }
+        return crc.getValue();
+    }
+}
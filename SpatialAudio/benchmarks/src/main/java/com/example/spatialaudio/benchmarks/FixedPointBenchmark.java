@@ -0,0 +1,156 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.DistanceFilter;
+import com.example.spatialaudio.DistanceTable;
+import com.example.spatialaudio.ElevationFilter;
+import com.example.spatialaudio.ElevationTable;
+import com.example.spatialaudio.FixedPoint;
+import com.example.spatialaudio.Limiter;
+import com.example.spatialaudio.SpatialRenderer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each kernel of a voice in floating point and in {@link FixedPoint}, one block at a time: placing it by delay and
+ * gain (still and gliding), the elevation biquads, the distance filter and the limiter. Which is faster depends on
+ * the CPU, so run it on the device to choose. MixerBenchmark with fixedPoint has the whole mix.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FixedPointBenchmark {
+    static final int SAMPLE_RATE = 44100;
+
+    @Param({"64", "256", "1024"})
+    public int blockSize;
+
+    private SpatialRenderer renderer;
+    private ElevationFilter elevationFilter;
+    private DistanceTable distanceTable;
+    private DistanceFilter distanceFilter;
+    private Limiter limiter;
+    private float[] input;
+    private int[] fixedInput;
+    private float[] mono;
+    private int[] fixedMono;
+    private float[] stereo;
+    private int[] fixedStereo;
+    private float angle = 45.0f;
+    private float elevation = 30.0f;
+    private float distance = 5.0f;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        renderer = new SpatialRenderer(SAMPLE_RATE);
+        renderer.setAngle(angle);
+        elevationFilter = new ElevationFilter(new ElevationTable(SAMPLE_RATE));
+        distanceTable = new DistanceTable(SAMPLE_RATE, 1, 20);
+        distanceFilter = new DistanceFilter();
+        distanceFilter.reset(distanceTable, distance);
+        limiter = new Limiter(SAMPLE_RATE);
+        input = new float[2 * blockSize];
+        fixedInput = new int[2 * blockSize];
+        for (int i = 0; i < input.length; i++) {
+            //Loud enough that the limiter has work to do
+            input[i] = (float) random.nextGaussian() * 0.5f;
+            fixedInput[i] = FixedPoint.toFixed(input[i], FixedPoint.SAMPLE_BITS);
+        }
+        mono = new float[blockSize];
+        fixedMono = new int[blockSize];
+        stereo = new float[2 * blockSize];
+        fixedStereo = new int[2 * blockSize];
+    }
+
+    @Benchmark
+    public float rendererStill() {
+        Arrays.fill(stereo, 0.0f);
+        renderer.render(input, blockSize, stereo, 0, 1.0f);
+        return stereo[0];
+    }
+
+    @Benchmark
+    public int rendererStillFixed() {
+        Arrays.fill(fixedStereo, 0);
+        renderer.render(fixedInput, blockSize, fixedStereo, 0);
+        return fixedStereo[0];
+    }
+
+    @Benchmark
+    public float rendererMoving() {
+        angle = -angle;
+        renderer.moveTo(angle, 4 * blockSize);
+        Arrays.fill(stereo, 0.0f);
+        renderer.render(input, blockSize, stereo, 0, 1.0f);
+        return stereo[0];
+    }
+
+    @Benchmark
+    public int rendererMovingFixed() {
+        angle = -angle;
+        renderer.moveTo(angle, 4 * blockSize);
+        Arrays.fill(fixedStereo, 0);
+        renderer.render(fixedInput, blockSize, fixedStereo, 0);
+        return fixedStereo[0];
+    }
+
+    @Benchmark
+    public float elevation() {
+        //A new elevation every block, so the coefficients ramp
+        elevation = -elevation;
+        System.arraycopy(input, 0, mono, 0, blockSize);
+        elevationFilter.setElevation(elevation);
+        elevationFilter.process(mono, 0, blockSize, 1);
+        return mono[0];
+    }
+
+    @Benchmark
+    public int elevationFixed() {
+        elevation = -elevation;
+        System.arraycopy(fixedInput, 0, fixedMono, 0, blockSize);
+        elevationFilter.setElevation(elevation);
+        elevationFilter.process(fixedMono, 0, blockSize, 1);
+        return fixedMono[0];
+    }
+
+    @Benchmark
+    public float distance() {
+        distance = 25.0f - distance;
+        System.arraycopy(input, 0, stereo, 0, stereo.length);
+        distanceFilter.process(stereo, blockSize, distanceTable, distance);
+        return stereo[0];
+    }
+
+    @Benchmark
+    public int distanceFixed() {
+        distance = 25.0f - distance;
+        System.arraycopy(fixedInput, 0, fixedStereo, 0, fixedStereo.length);
+        distanceFilter.process(fixedStereo, blockSize, distanceTable, distance);
+        return fixedStereo[0];
+    }
+
+    @Benchmark
+    public float limiter() {
+        System.arraycopy(input, 0, stereo, 0, stereo.length);
+        limiter.process(stereo, blockSize);
+        return stereo[0];
+    }
+
+    @Benchmark
+    public int limiterFixed() {
+        System.arraycopy(fixedInput, 0, fixedStereo, 0, fixedStereo.length);
+        limiter.process(fixedStereo, blockSize);
+        return fixedStereo[0];
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.AudioEngine;
+import com.example.spatialaudio.AudioSink;
+import com.example.spatialaudio.Clip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What each extra voice costs the mixer. Each operation renders one block of the whole mix with the given number of
+ * sources repeating at different angles and gains, through the limiter and into 16 bit output, the same way the
+ * render thread does, so the score is the time per block. Each source's beep is exactly as long as its period, so
+ * the number of voices playing stays put and nothing is allocated once the sources are going. The time per block
+ * against the number of voices gives the cost of one more voice; the engine's own
+ * {@link com.example.spatialaudio.MixerStats} are printed at the end of each trial for comparison. With distance cues
+ * on, every voice is at a different distance and goes through the distance filter as well. With fixedPoint the
+ * voices and the bus are mixed in {@link com.example.spatialaudio.FixedPoint}, to compare with floating point on
+ * a device; FixedPointBenchmark has the kernels one at a time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MixerBenchmark {
+    static final int SAMPLE_RATE = 44100;
+    static final float MAX_DISTANCE = 20.0f;
+    //How many blocks long each beep is
+    static final int BEEP_BLOCKS = 64;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int voices;
+
+    @Param({"64", "256", "1024"})
+    public int blockSize;
+
+    //Mono clips are placed by the renderer, stereo ones are mixed as they are
+    @Param({"1", "2"})
+    public int channels;
+
+    @Param({"false", "true"})
+    public boolean distanceCues;
+
+    @Param({"false", "true"})
+    public boolean fixedPoint;
+
+    private AudioEngine engine;
+    private short[] output;
+
+    //A sink that is never started; the benchmark calls render() itself
+    static class NullSink implements AudioSink {
+        private final int framesPerBuffer;
+
+        NullSink(int framesPerBuffer) {
+            this.framesPerBuffer = framesPerBuffer;
+        }
+
+        @Override
+        public int getSampleRate() {
+            return SAMPLE_RATE;
+        }
+
+        @Override
+        public int getFramesPerBuffer() {
+            return framesPerBuffer;
+        }
+
+        @Override
+        public int getBufferFrames() {
+            return 2 * framesPerBuffer;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void write(short[] buffer, int sampleCount) {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int frames = BEEP_BLOCKS * blockSize;
+        short[] samples = new short[frames * channels];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (random.nextGaussian() * 3000);
+        }
+        Clip clip = new Clip(samples, channels, SAMPLE_RATE);
+        //Room for each source's next beep to start while the renderer tail of the last one finishes
+        engine = new AudioEngine(new NullSink(blockSize), 2 * voices);
+        //Give every source full rendering however slow the machine is
+        engine.setRenderBudget(100.0f);
+        if (distanceCues) {
+            engine.setDistanceModel(1, MAX_DISTANCE);
+        }
+        engine.setFixedPoint(fixedPoint);
+        float period = frames * 1000.0f / SAMPLE_RATE;
+        engine.setRepeatPeriod(0, period, period);
+        for (int v = 0; v < voices; v++) {
+            float angle = -90.0f + 180.0f * v / voices;
+            float distance = 1.0f + (MAX_DISTANCE - 1.0f) * v / voices;
+            engine.repeat(v, clip, angle, 0, distance, 1.0f / voices, 0.0f);
+        }
+        output = new short[blockSize * 2];
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println();
+        System.out.println(voices + " voices: " + engine.getMixerStats());
+    }
+
+    @Benchmark
+    public short mix() {
+        engine.render(output, blockSize);
+        return output[0];
+    }
+}
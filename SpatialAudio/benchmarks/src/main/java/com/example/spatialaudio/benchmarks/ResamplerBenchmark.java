@@ -0,0 +1,69 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.Resampler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of converting the bank's 44.1kHz PCM to common device rates: streaming one block, as a voice would at
+ * render time, and converting a whole one second clip, as the bank loader does once per clip. For how good the
+ * result is, run ResamplerQuality.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResamplerBenchmark {
+    static final int SAMPLE_RATE = 44100;
+
+    @Param({"48000", "22050", "96000"})
+    public int outputRate;
+
+    @Param({"1", "2"})
+    public int channels;
+
+    @Param({"256"})
+    public int blockSize;
+
+    private Resampler resampler;
+    private float[] input;
+    private float[] output;
+    private Clip clip;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        resampler = new Resampler(SAMPLE_RATE, outputRate, channels, blockSize);
+        input = new float[blockSize * channels];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (float) random.nextGaussian() * 3000;
+        }
+        output = new float[resampler.getMaxOutputFrames(blockSize) * channels];
+        short[] samples = new short[SAMPLE_RATE * channels];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (random.nextGaussian() * 3000);
+        }
+        clip = new Clip(samples, channels, SAMPLE_RATE);
+    }
+
+    @Benchmark
+    public int block() {
+        return resampler.process(input, 0, blockSize, output, 0);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Clip clip() {
+        return Resampler.convert(clip, outputRate);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.Resampler;
+
+/**
+ * How faithfully {@link Resampler} converts the bank's 44.1kHz PCM, for each of the common device rates:
+ *
+ * - SNR: a sine at each test frequency below the lower Nyquist frequency, converted, against the same sine worked
+ *   out exactly at the new rate. The 16 bit output limits it to a little over 80dB.
+ * - Rejection: how far a sine above the new Nyquist frequency (only when going down) is attenuated rather than
+ *   folding back as an alias, in dB below the input.
+ *
+ * Run with: gradle :benchmarks:resamplerQuality
+ * Exits with status 1 if the SNR in the pass band falls below MIN_SNR.
+ */
+public class ResamplerQuality {
+    private static final int INPUT_RATE = 44100;
+    private static final int[] OUTPUT_RATES = {8000, 16000, 22050, 32000, 48000, 88200, 96000};
+    private static final double[] FREQUENCIES = {100, 1000, 5000, 10000, 15000};
+    private static final double AMPLITUDE = 16000;
+    //The filter passes up to 92% of the lower Nyquist frequency; past 85% it is allowed to roll off
+    private static final double PASS_BAND = 0.85;
+    private static final double MIN_SNR = 70;
+    //Leave out the ends, where the sine starts and stops abruptly
+    private static final int EDGE_FRAMES = 500;
+
+    public static void main(String[] args) {
+        boolean failed = false;
+        System.out.println("From " + INPUT_RATE + "Hz");
+        for (int outputRate : OUTPUT_RATES) {
+            double nyquist = Math.min(INPUT_RATE, outputRate) / 2.0;
+            StringBuilder line = new StringBuilder();
+            line.append(outputRate).append("Hz, SNR:");
+            for (double frequency : FREQUENCIES) {
+                if (frequency > nyquist * PASS_BAND) {
+                    continue;
+                }
+                double snr = snr(outputRate, frequency);
+                line.append(String.format(" %.0fHz %.1fdB", frequency, snr));
+                failed |= snr < MIN_SNR;
+            }
+            if (outputRate < INPUT_RATE) {
+                //Halfway between the new Nyquist frequency and the old one
+                double frequency = (outputRate / 2.0 + INPUT_RATE / 2.0) / 2;
+                line.append(String.format(", rejection at %.0fHz: %.1fdB", frequency, rejection(outputRate, frequency)));
+            }
+            System.out.println(line);
+        }
+        if (failed) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static Clip sine(double frequency) {
+        short[] samples = new short[INPUT_RATE];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) Math.round(AMPLITUDE * Math.sin(2 * Math.PI * frequency * i / INPUT_RATE));
+        }
+        return new Clip(samples, 1, INPUT_RATE);
+    }
+
+    private static double snr(int outputRate, double frequency) {
+        short[] converted = Resampler.convert(sine(frequency), outputRate).getSamples();
+        double signal = 0;
+        double noise = 0;
+        for (int i = EDGE_FRAMES; i < converted.length - EDGE_FRAMES; i++) {
+            double expected = AMPLITUDE * Math.sin(2 * Math.PI * frequency * i / outputRate);
+            signal += expected * expected;
+            noise += (converted[i] - expected) * (converted[i] - expected);
+        }
+        return 10 * Math.log10(signal / noise);
+    }
+
+    private static double rejection(int outputRate, double frequency) {
+        short[] converted = Resampler.convert(sine(frequency), outputRate).getSamples();
+        double power = 0;
+        for (int i = EDGE_FRAMES; i < converted.length - EDGE_FRAMES; i++) {
+            power += (double) converted[i] * converted[i];
+        }
+        power /= converted.length - 2 * EDGE_FRAMES;
+        //Floor at one bit of noise so silence doesn't come out infinite
+        return 10 * Math.log10(AMPLITUDE * AMPLITUDE / 2 / Math.max(power, 1.0 / 12));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.SoundBank;
+import com.example.spatialaudio.SoundBankManifest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long finding the sound file for a position takes, what the camera thread does for every object on every
+ * frame. The 10 degree grid is the bank the apps ship with (18 angles by 8 heights); the 1 degree one is a much
+ * finer bank, to show the lookup doesn't depend on the grid size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SoundBankBenchmark {
+    private static final int POSITIONS = 1024;
+
+    @Param({"10", "1"})
+    public int angleStep;
+
+    private SoundBank bank;
+    private final double[] angles = new double[POSITIONS];
+    private final double[] heights = new double[POSITIONS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        int angleCount = 180 / angleStep;
+        int[] clipIds = new int[angleCount * 8];
+        for (int i = 0; i < clipIds.length; i++) {
+            clipIds[i] = 1000 + i;
+        }
+        bank = new SoundBank(new SoundBankManifest(-90, angleStep, angleCount, 0, 1, clipIds));
+        //Random positions, some off the edges of the grid
+        Random random = new Random(42);
+        for (int i = 0; i < POSITIONS; i++) {
+            angles[i] = random.nextDouble() * 200 - 100;
+            heights[i] = random.nextDouble() * 9 - 0.5;
+        }
+    }
+
+    @Benchmark
+    public int clipFor() {
+        int i = next;
+        next = (i + 1) & (POSITIONS - 1);
+        return bank.clipFor(angles[i], heights[i]);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.SoundBank;
+import com.example.spatialaudio.SoundBankManifest;
+
+/**
+ * Checks {@link SoundBank#indexOf} against the if/else ladder PositionalAudio used before the sound bank had a
+ * manifest, on the shipped grid (-90 degrees in steps of 10, 18 per height, heights 0 to 8 in steps of 1): every
+ * whole degree from -90 to 90, which is what the angle slider gives, at every height the height slider gives
+ * (tenths from 0 to 7.9). The cell edges are whole degrees, so this is where rounding would show.
+ *
+ * Run with: gradle :benchmarks:soundBankBoundaries
+ * Exits with status 1 if any angle and height picks a different cell.
+ */
+public class SoundBankBoundaries {
+    private static final int ANGLE_COUNT = 18;
+    private static final int HEIGHT_COUNT = 8;
+
+    public static void main(String[] args) {
+        int[] ids = new int[ANGLE_COUNT * HEIGHT_COUNT];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        SoundBank soundBank = new SoundBank(new SoundBankManifest(-90, 10, ANGLE_COUNT, 0, 1, ids));
+
+        int checked = 0;
+        int wrong = 0;
+        for (int progress = 0; progress < HEIGHT_COUNT * 10; progress++) {
+            //As the slider works it out
+            float height = progress / 10.0f;
+            for (int angle = -90; angle <= 90; angle++) {
+                int expected = ladderRow(height) * ANGLE_COUNT + ladderColumn(angle);
+                int index = soundBank.indexOf(angle, height);
+                checked++;
+                if (index != expected) {
+                    wrong++;
+                    if (wrong <= 20) {
+                        System.out.println("Angle " + angle + " height " + height + ": cell " + index + ", the ladder picked " + expected);
+                    }
+                }
+            }
+        }
+        System.out.println(checked + " angles and heights, " + wrong + " in a different cell");
+        if (wrong != 0) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    //angle <= -80 is the first file, angle <= -70 the second and so on, and anything over 80 the last
+    private static int ladderColumn(int angle) {
+        for (int column = 0; column < ANGLE_COUNT - 1; column++) {
+            if (angle <= -80 + 10 * column) {
+                return column;
+            }
+        }
+        return ANGLE_COUNT - 1;
+    }
+
+    //height < 1 is the first row, height < 2 the second and so on, and anything higher the last
+    private static int ladderRow(float height) {
+        for (int row = 0; row < HEIGHT_COUNT - 1; row++) {
+            if (height < row + 1) {
+                return row;
+            }
+        }
+        return HEIGHT_COUNT - 1;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.SourceUpdates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How fast positions get from a tracking thread to the render thread: one thread writing and one reading at the
+ * same time, through {@link SourceUpdates} and, for comparison, through a queue of new objects the way the engine
+ * used to take repeat() calls. The write score is updates per microsecond; the read score is how often the
+ * reader can check for one.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SourceUpdatesBenchmark {
+    private static final int SOURCES = 4;
+
+    private final SourceUpdates updates = new SourceUpdates(SOURCES);
+    private final ConcurrentLinkedQueue<float[]> queue = new ConcurrentLinkedQueue<float[]>();
+    //Keeps the queue from growing without bound when the reader falls behind
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Clip clip = new Clip(new short[1], 1, 44100);
+
+    //Only touched by the thread of each side
+    private int writeSource;
+    private float angle;
+    private int readSource;
+    private final SourceUpdates.Update update = new SourceUpdates.Update();
+
+    @Benchmark
+    @Group("seqlock")
+    @GroupThreads(1)
+    public float seqlockWrite() {
+        writeSource = (writeSource + 1) % SOURCES;
+        angle += 1.0f;
+        updates.write(writeSource, true, clip, angle, 0, 100, 1, 0, 0L);
+        return angle;
+    }
+
+    @Benchmark
+    @Group("seqlock")
+    @GroupThreads(1)
+    public float seqlockRead() {
+        readSource = (readSource + 1) % SOURCES;
+        return updates.read(readSource, update) ? update.angle : 0.0f;
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public boolean queueWrite() {
+        angle += 1.0f;
+        if (queued.get() > 1024) {
+            return false;
+        }
+        queued.incrementAndGet();
+        return queue.offer(new float[]{writeSource, angle, 0, 100, 1, 0});
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public float queueRead() {
+        float[] latest = queue.poll();
+        if (latest == null) {
+            return 0.0f;
+        }
+        queued.decrementAndGet();
+        return latest[1];
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.SourceUpdates;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hammers {@link SourceUpdates} from several writer threads and one reader to check that the reader never sees a
+ * torn update (fields from two different writes) or an older update after a newer one from the same writer, and
+ * that no update is lost: every write is either read or counted as superseded by a later one, and once the writers
+ * stop, the last value written is the one the reader gets. Every field of an update is worked out from one number,
+ * so the reader can tell whether they belong together.
+ *
+ * Writers pause for a random few hundred iterations between updates, or the slots would almost never be free of a
+ * write and the reader would rarely get to read one.
+ *
+ * Run with: gradle :benchmarks:stress [-PstressArgs='seconds writers sources']
+ * Exits with status 1 if anything went wrong.
+ */
+public class SourceUpdatesStress {
+    //Keep the numbers small enough that floats hold them exactly
+    private static final long FLOAT_EXACT = 1 << 20;
+    private static final int MAX_PAUSE = 400;
+    //Written so the pauses aren't optimised away
+    static volatile int sink;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final int writers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        final int sources = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        final SourceUpdates updates = new SourceUpdates(sources);
+        final Clip[] clips = new Clip[7];
+        for (int i = 0; i < clips.length; i++) {
+            clips[i] = new Clip(new short[1], 1, 44100);
+        }
+        final AtomicBoolean running = new AtomicBoolean(true);
+        //Writes to each source, counted once they have returned
+        final AtomicLongArray written = new AtomicLongArray(sources);
+
+        Thread[] writerThreads = new Thread[writers];
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            writerThreads[w] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long sequence = 0;
+                    java.util.Random random = new java.util.Random(writer);
+                    while (running.get()) {
+                        for (int source = 0; source < sources; source++) {
+                            //The writer is in the low bits so every writer's numbers go up on their own
+                            long n = (sequence++) * writers + writer;
+                            write(updates, source, n, clips);
+                            written.incrementAndGet(source);
+                            int spin = 0;
+                            for (int i = random.nextInt(MAX_PAUSE); i > 0; i--) {
+                                spin += i;
+                            }
+                            sink = spin;
+                        }
+                    }
+                }
+            }, "Writer " + w);
+        }
+
+        //Only the reading thread touches these; the main thread takes over reading once it has been joined
+        final SourceUpdates.Update update = new SourceUpdates.Update();
+        final long[] reads = new long[1];
+        final long[] fresh = new long[sources];
+        final long[] superseded = new long[sources];
+        final long[] torn = new long[1];
+        final long[] backwards = new long[1];
+        final long[][] newest = new long[sources][writers];
+        for (long[] row : newest) {
+            java.util.Arrays.fill(row, -1);
+        }
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running.get()) {
+                    for (int source = 0; source < sources; source++) {
+                        reads[0]++;
+                        if (read(updates, source, update, clips, writers, newest, torn, backwards)) {
+                            fresh[source]++;
+                            superseded[source] += update.superseded;
+                        }
+                    }
+                }
+            }
+        }, "Reader");
+
+        reader.start();
+        for (Thread thread : writerThreads) {
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread thread : writerThreads) {
+            thread.join();
+        }
+        reader.join();
+
+        //With the writers stopped, whatever the reader hasn't had yet must be there, and every write accounted for
+        long lost = 0;
+        long totalWritten = 0;
+        long totalFresh = 0;
+        for (int source = 0; source < sources; source++) {
+            if (read(updates, source, update, clips, writers, newest, torn, backwards)) {
+                fresh[source]++;
+                superseded[source] += update.superseded;
+            }
+            lost += Math.abs(written.get(source) - fresh[source] - superseded[source]);
+            totalWritten += written.get(source);
+            totalFresh += fresh[source];
+        }
+        //And one more write to each source from here, which the reader must get exactly
+        long missedLast = 0;
+        for (int source = 0; source < sources; source++) {
+            //Newer than anything a writer thread wrote
+            long n = Long.MAX_VALUE - source;
+            write(updates, source, n, clips);
+            if (!read(updates, source, update, clips, writers, newest, torn, backwards) || update.originNanos != n
+                    || update.superseded != 0) {
+                missedLast++;
+            }
+        }
+
+        System.out.println(writers + " writers, " + sources + " sources, " + seconds + "s");
+        System.out.println("Writes: " + totalWritten + ", reads: " + reads[0] + ", " + totalFresh + " with a new update");
+        System.out.println("Torn updates: " + torn[0] + ", updates older than one already read: " + backwards[0]);
+        System.out.println("Writes neither read nor superseded: " + lost + ", last writes not read: " + missedLast);
+        if (torn[0] != 0 || backwards[0] != 0 || lost != 0 || missedLast != 0 || totalFresh == 0) {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static void write(SourceUpdates updates, int source, long n, Clip[] clips) {
+        float f = n % FLOAT_EXACT;
+        updates.write(source, (n & 1) == 0, clips[(int) (n % clips.length)], f, -f, 2 * f,
+                f / FLOAT_EXACT, -f / FLOAT_EXACT, n);
+    }
+
+    //Read a source and check the update if there is a new one
+    private static boolean read(SourceUpdates updates, int source, SourceUpdates.Update update, Clip[] clips,
+                                int writers, long[][] newest, long[] torn, long[] backwards) {
+        if (!updates.read(source, update)) {
+            return false;
+        }
+        long n = update.originNanos;
+        float f = n % FLOAT_EXACT;
+        boolean consistent = update.repeating == ((n & 1) == 0)
+                && update.clip == clips[(int) (n % clips.length)]
+                && update.angle == f && update.height == -f && update.distance == 2 * f
+                && update.gain == f / FLOAT_EXACT && update.pan == -f / FLOAT_EXACT;
+        if (!consistent) {
+            torn[0]++;
+        }
+        int writer = (int) (n % writers);
+        if (n < newest[source][writer]) {
+            backwards[0]++;
+        }
+        newest[source][writer] = n;
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.SpatialRenderer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of placing one mono voice by interaural time and level difference, per block. The still variant keeps
+ * the same angle, so it is four multiply-adds per ear per sample; the moving variant starts a new glide every
+ * block, so every sample works out its own delay and taps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpatialRendererBenchmark {
+    static final int SAMPLE_RATE = 44100;
+
+    @Param({"64", "128", "256", "512", "1024"})
+    public int blockSize;
+
+    private SpatialRenderer renderer;
+    private float[] input;
+    private float[] output;
+    private float angle = 45.0f;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        renderer = new SpatialRenderer(SAMPLE_RATE);
+        renderer.setAngle(angle);
+        input = new float[blockSize];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        output = new float[2 * blockSize];
+    }
+
+    @Benchmark
+    public float still() {
+        Arrays.fill(output, 0.0f);
+        renderer.render(input, blockSize, output, 0, 1.0f);
+        return output[0];
+    }
+
+    @Benchmark
+    public float moving() {
+        //Swing between the sides, never arriving
+        angle = -angle;
+        renderer.moveTo(angle, 4 * blockSize);
+        Arrays.fill(output, 0.0f);
+        renderer.render(input, blockSize, output, 0, 1.0f);
+        return output[0];
+    }
+}
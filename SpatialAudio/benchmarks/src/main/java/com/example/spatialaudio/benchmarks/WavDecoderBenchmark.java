@@ -0,0 +1,82 @@
+package com.example.spatialaudio.benchmarks;
+
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.PcmFile;
+import com.example.spatialaudio.WavDecoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long decoding one clip of the bank takes, from a wav file already in memory so the disk isn't measured. A
+ * clip the length of the apps' beeps is about a second; the allocations per operation are the decoded samples
+ * plus whatever the decoder needs on top. decode() streams the file as WavDecoder does for compressed resources,
+ * toClip() copies the samples out of the file's buffer as for a mapped file, and view() only parses the header
+ * and sums the samples through the zero-copy view.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WavDecoderBenchmark {
+    static final int SAMPLE_RATE = 44100;
+
+    @Param({"4410", "44100"})
+    public int frames;
+
+    @Param({"1", "2"})
+    public int channels;
+
+    private byte[] file;
+    private ByteBuffer fileBuffer;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int dataSize = frames * channels * 2;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes()).putInt(36 + dataSize).put("WAVE".getBytes());
+        buffer.put("fmt ".getBytes()).putInt(16).putShort((short) 1).putShort((short) channels).putInt(SAMPLE_RATE)
+                .putInt(SAMPLE_RATE * channels * 2).putShort((short) (channels * 2)).putShort((short) 16);
+        buffer.put("data".getBytes()).putInt(dataSize);
+        for (int i = 0; i < frames * channels; i++) {
+            buffer.putShort((short) (random.nextGaussian() * 3000));
+        }
+        file = buffer.array();
+        fileBuffer = ByteBuffer.allocateDirect(file.length);
+        fileBuffer.put(file).flip();
+    }
+
+    @Benchmark
+    public Clip decode() throws IOException {
+        return WavDecoder.decode(new ByteArrayInputStream(file));
+    }
+
+    @Benchmark
+    public Clip toClip() throws IOException {
+        return PcmFile.wrap(fileBuffer).toClip();
+    }
+
+    @Benchmark
+    public int view() throws IOException {
+        ShortBuffer samples = PcmFile.wrap(fileBuffer).getSamples();
+        int sum = 0;
+        for (int i = samples.position(); i < samples.limit(); i++) {
+            sum += samples.get(i);
+        }
+        return sum;
+    }
+}
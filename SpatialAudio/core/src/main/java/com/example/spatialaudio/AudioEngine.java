@@ -0,0 +1,798 @@
+package com.example.spatialaudio;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A persistent audio engine that mixes decoded {@link Clip}s into one stream on its own render thread.
+ * Stereo clips are played as they are; mono clips are placed at the angle they are played at.
+ *
+ * Other threads never touch the voices directly: they submit commands with {@link #play} and {@link #move} and
+ * the render thread picks them up at the start of the next buffer. This replaces creating a MediaPlayer for every
+ * beep, which re-opened and re-decoded the sound file each time.
+ *
+ * Height can be heard as well: with {@link #setElevationMapping} each height is turned into an elevation and the
+ * voice is filtered with the outer ear cues for it, so one sample can be played at any height.
+ *
+ * The engine can also repeat a beep for tracked objects itself ({@link #repeat}), timing the beats by counting
+ * output frames so they land on the exact sample, however busy the UI thread is. Several objects can be repeated
+ * at once, each as its own source with its own gain and pan. Their positions reach the render thread through
+ * {@link SourceUpdates}, which keeps only the newest position for each source and never locks or allocates, so the
+ * camera thread can update every object on every frame.
+ *
+ * All the voices are summed on one bus, which goes through a {@link Limiter} so that several loud voices together
+ * turn down instead of clipping. Voices are preallocated, so rendering doesn't allocate however many are playing.
+ * What each voice costs to mix is measured as it goes, see {@link #getMixerStats()}.
+ *
+ * When there are more sources than the CPU can render properly, a {@link VoiceScheduler} ranks them by importance
+ * and only the most important get full spatial rendering; the next few are just panned and the rest skip beats
+ * until their turn comes. How many get full rendering follows the measured render time, see
+ * {@link #setRenderBudget}. A voice taken over for a new sound fades out first rather than being cut off.
+ *
+ * Distance can be heard with {@link #setDistanceModel}: further sounds are quieter and duller, through a
+ * {@link DistanceFilter} on each voice.
+ *
+ * Changes to a sound's position, gain and pan glide over the fade time rather than jumping, and so does the rate a
+ * source repeats at as its distance changes. They are worked out at the control rate ({@link #setControlRate}),
+ * with the expensive parts once per control tick and plain interpolation for the samples in between.
+ *
+ * How long changes take to be heard is measured too: from each play, move or repeat call to the write of the
+ * first buffer it changed ({@link #getTriggerLatency()}), and from whatever caused the call, e.g. a camera frame
+ * arriving, if the caller passes its time ({@link #getOriginLatency()}).
+ *
+ * Whether the render thread keeps up is measured too: render time against each buffer's deadline, estimated
+ * device underruns and late or superseded position updates, see {@link #getRenderStats()}.
+ *
+ * Instead of recorded clips the engine can play a {@link CueSynth}, which synthesizes the cue from wavetables as it
+ * plays, with pitch following the height and timbre the distance, so nothing has to be loaded.
+ *
+ * On CPUs that are slow at floating point the voices and the bus can be mixed in fixed point instead, see
+ * {@link #setFixedPoint}.
+ */
+public class AudioEngine {
+    //How long a move takes to fade to the new position by default
+    public static final float DEFAULT_FADE_MILLIS = 20.0f;
+    //The block size mono voices are convolved in when there is an HRIR set (about 3ms at 44.1kHz)
+    public static final int HRIR_BLOCK_SIZE = 128;
+    //How long a voice takes to fade out when it is taken for another sound
+    public static final float STEAL_FADE_MILLIS = 5.0f;
+    //How often gliding parameters are worked out by default, in ticks per second (about every 44 frames at 44.1kHz)
+    public static final float DEFAULT_CONTROL_RATE = 1000.0f;
+    //How old a position update can be when the render thread picks it up before it counts as late
+    public static final float DEFAULT_LATE_UPDATE_MILLIS = 50.0f;
+
+    //What the UI and camera threads ask the render thread to do
+    private static class Command {
+        static final int PLAY = 0;
+        static final int MOVE = 1;
+
+        final int type;
+        final int voiceId;
+        final Clip clip;
+        final float angle;
+        final float height;
+        final float distance;
+        //NaN to keep the voice's gain and pan when moving it
+        final float gain;
+        final float pan;
+        //When the command was submitted, and when what caused it happened, by System.nanoTime()
+        final long submitNanos;
+        final long originNanos;
+
+        Command(int type, int voiceId, Clip clip, float angle, float height, float distance, float gain, float pan) {
+            this(type, voiceId, clip, angle, height, distance, gain, pan, System.nanoTime());
+        }
+
+        Command(int type, int voiceId, Clip clip, float angle, float height, float distance, float gain, float pan,
+                long originNanos) {
+            this.type = type;
+            this.voiceId = voiceId;
+            this.clip = clip;
+            this.angle = angle;
+            this.height = height;
+            this.distance = distance;
+            this.gain = gain;
+            this.pan = pan;
+            this.submitNanos = System.nanoTime();
+            this.originNanos = originNanos;
+        }
+    }
+
+    //A tracked object being repeated, only touched on the render thread
+    private static class Source {
+        final BeatScheduler beatScheduler;
+        boolean repeating;
+        Clip clip;
+        float angle;
+        float height;
+        float distance;
+        float gain;
+        float pan;
+        //The distance the beats are timed by, gliding to distance over beatGlideRemaining frames
+        float beatDistance;
+        int beatGlideRemaining;
+        int beatVoiceId;
+        //When the last beep started, and how it is being rendered
+        long lastCueFrame;
+        int tier;
+
+        Source(BeatScheduler beatScheduler) {
+            this.beatScheduler = beatScheduler;
+        }
+    }
+
+    //A sound waiting for a stolen voice to finish fading out, only touched on the render thread
+    private static class PendingStart {
+        int voiceId;
+        Clip clip;
+        float angle;
+        float height;
+        float distance;
+        float gain;
+        float pan;
+        boolean panned;
+        float importance;
+    }
+
+    private final AudioSink sink;
+    private final Voice[] voices;
+    private final ConcurrentLinkedQueue<Command> commands = new ConcurrentLinkedQueue<Command>();
+    //Hands out the ids returned by play()
+    private final AtomicInteger nextVoiceId = new AtomicInteger(1);
+    private volatile int fadeFrames;
+    private volatile int controlFrames;
+    //How heights turn into elevations, if they do
+    private volatile boolean elevationCues;
+    private volatile float elevationAtHeightZero;
+    private volatile float degreesPerHeight;
+    //How distance is heard, or null if it isn't
+    private volatile DistanceTable distanceTable;
+    //Start voices in fixed point
+    private volatile boolean fixedPoint;
+    private final boolean convolving;
+
+    //The repeating beeps, one source per tracked object, and their latest positions from other threads
+    private final Source[] sources;
+    private final SourceUpdates sourceUpdates;
+    private final SourceUpdates.Update update = new SourceUpdates.Update();
+    //How far all the sources' beats were from where they should be
+    private final JitterStats sampleClockJitter = new JitterStats();
+    private final JitterStats renderClockJitter = new JitterStats();
+    //How many frames have been rendered so far
+    private long framePosition;
+    //Which sources get rendered properly, and their scores to decide it
+    private final VoiceScheduler voiceScheduler;
+    private final float[] sourceScores;
+    //Sounds waiting for a voice
+    private final PendingStart[] pendingStarts;
+    private int pendingCount;
+    private final int stealFrames;
+
+    //Interleaved stereo buffers, sized for one sink buffer
+    private final float[] mixBuffer;
+    private final int[] fixedMixBuffer;
+    private final short[] outputBuffer;
+    private final Limiter limiter;
+    private final MixerStats mixerStats;
+    private final RenderStats renderStats;
+    private volatile long lateUpdateNanos;
+    //How long commands took to be heard, and the times of the commands taken up by the buffer being rendered
+    private static final int MAX_TIMED_COMMANDS = 64;
+    private final LatencyHistogram triggerLatency = new LatencyHistogram();
+    private final LatencyHistogram originLatency = new LatencyHistogram();
+    private final long[] submitTimes = new long[MAX_TIMED_COMMANDS];
+    private final long[] originTimes = new long[MAX_TIMED_COMMANDS];
+    private int timedCommands;
+
+    private volatile boolean running;
+    private Thread renderThread;
+
+    //maxVoices is how many clips can sound at once, and also how many objects can be repeated at once
+    public AudioEngine(AudioSink sink, int maxVoices) {
+        this(sink, maxVoices, null);
+    }
+
+    /**
+     * An engine that places mono clips by convolving them with the nearest measured HRIRs instead of by delay and
+     * gain alone. The set has to be at the sink's sample rate. Transforming the set happens here, so create the
+     * engine off the UI thread if the set is big.
+     */
+    public AudioEngine(AudioSink sink, int maxVoices, HrirSet hrirs) {
+        this.sink = sink;
+        this.voices = new Voice[maxVoices];
+        HrirIndex hrirIndex = null;
+        HrirFilter[] hrirFilters = null;
+        if (hrirs != null) {
+            if (hrirs.getSampleRate() != sink.getSampleRate()) {
+                throw new IllegalArgumentException("HRIR set is at " + hrirs.getSampleRate() + "Hz, the sink is at " + sink.getSampleRate() + "Hz");
+            }
+            hrirIndex = hrirs.createIndex();
+            hrirFilters = hrirs.createFilters(HRIR_BLOCK_SIZE);
+        }
+        ElevationTable elevationTable = new ElevationTable(sink.getSampleRate());
+        for (int i = 0; i < maxVoices; i++) {
+            voices[i] = new Voice(sink.getSampleRate(), sink.getFramesPerBuffer(), elevationTable, hrirIndex, hrirFilters);
+        }
+        convolving = hrirs != null;
+        mixBuffer = new float[sink.getFramesPerBuffer() * 2];
+        fixedMixBuffer = new int[sink.getFramesPerBuffer() * 2];
+        outputBuffer = new short[sink.getFramesPerBuffer() * 2];
+        limiter = new Limiter(sink.getSampleRate());
+        mixerStats = new MixerStats(sink.getSampleRate());
+        renderStats = new RenderStats(sink.getSampleRate(), sink.getBufferFrames());
+        setLateUpdateMillis(DEFAULT_LATE_UPDATE_MILLIS);
+        sources = new Source[maxVoices];
+        for (int i = 0; i < maxVoices; i++) {
+            sources[i] = new Source(new BeatScheduler(sink.getSampleRate(), sampleClockJitter, renderClockJitter));
+        }
+        sourceUpdates = new SourceUpdates(maxVoices);
+        voiceScheduler = new VoiceScheduler(maxVoices);
+        sourceScores = new float[maxVoices];
+        pendingStarts = new PendingStart[maxVoices];
+        for (int i = 0; i < maxVoices; i++) {
+            pendingStarts[i] = new PendingStart();
+        }
+        stealFrames = Math.max(1, Math.round(STEAL_FADE_MILLIS * sink.getSampleRate() / 1000.0f));
+        setFadeMillis(DEFAULT_FADE_MILLIS);
+        setControlRate(DEFAULT_CONTROL_RATE);
+    }
+
+    public int getSampleRate() {
+        return sink.getSampleRate();
+    }
+
+    //How many objects can be repeated at once; sources are numbered from 0
+    public int getMaxSources() {
+        return sources.length;
+    }
+
+    //How long a voice takes to fade from its old position to a new one after move()
+    public void setFadeMillis(float millis) {
+        fadeFrames = Math.max(1, Math.round(millis * sink.getSampleRate() / 1000.0f));
+    }
+
+    /**
+     * How many times a second gliding parameters (delays, channel gains, filter coefficients and the repeat rate)
+     * are worked out; in between they are interpolated sample by sample. A higher rate follows fast moves more
+     * closely and costs more. Safe to call from any thread.
+     */
+    public void setControlRate(float ticksPerSecond) {
+        controlFrames = Math.max(1, Math.round(sink.getSampleRate() / ticksPerSecond));
+    }
+
+    /**
+     * Turn on elevation cues: a sound at height h is filtered as if it were elevationAtHeightZero + h *
+     * degreesPerHeight degrees above ear level (kept between -90 and 90). Takes effect for sounds played or moved
+     * after this.
+     */
+    public void setElevationMapping(float elevationAtHeightZero, float degreesPerHeight) {
+        this.elevationAtHeightZero = elevationAtHeightZero;
+        this.degreesPerHeight = degreesPerHeight;
+        elevationCues = true;
+    }
+
+    //Turn elevation cues off again
+    public void clearElevationMapping() {
+        elevationCues = false;
+    }
+
+    /**
+     * Turn on distance cues: a sound further than referenceDistance is turned down in proportion to the distance
+     * and low-pass filtered more the further it is, up to maxDistance. Distances are in the same unit as the ones
+     * passed to play() and repeat(). Takes effect from the next buffer.
+     */
+    public void setDistanceModel(float referenceDistance, float maxDistance) {
+        distanceTable = new DistanceTable(sink.getSampleRate(), referenceDistance, maxDistance);
+    }
+
+    //Turn distance cues off again
+    public void clearDistanceModel() {
+        distanceTable = null;
+    }
+
+    /**
+     * Mix sounds started after this in {@link FixedPoint} instead of floating point, for CPUs that are slow at it
+     * (or to get exactly the same output on every device). Sounds already playing finish as they started, and
+     * while any floating point voice is playing the fixed point ones are added to its bus. Against floating point
+     * the output differs by a few bits of the 16 bit output at most, not enough to hear. Not available with an HRIR
+     * set, whose convolution is floating point only. Safe to call from any thread.
+     */
+    public void setFixedPoint(boolean fixedPoint) {
+        if (fixedPoint && convolving) {
+            throw new IllegalStateException("HRIR convolution only runs in floating point");
+        }
+        this.fixedPoint = fixedPoint;
+    }
+
+    /**
+     * Set how the time between repeated beeps depends on distance: millisPerDistance times the distance, kept
+     * between minMillis and maxMillis.
+     */
+    public void setRepeatPeriod(float millisPerDistance, float minMillis, float maxMillis) {
+        for (Source source : sources) {
+            source.beatScheduler.setPeriod(millisPerDistance, minMillis, maxMillis);
+        }
+    }
+
+    //How far apart the repeated beeps were from the intended period, measured in output frames
+    public JitterStats getBeatJitter() {
+        return sampleClockJitter.snapshot();
+    }
+
+    //The same, measured by the wall clock when the render thread rendered each beat
+    public JitterStats getRenderClockJitter() {
+        return renderClockJitter.snapshot();
+    }
+
+    /**
+     * How much of the time a buffer lasts rendering it may take, 0.5 by default. While rendering takes longer
+     * than that, fewer sources get full rendering, down to one, then fewer are panned; when there is time to spare
+     * they come back. Safe to call from any thread.
+     */
+    public void setRenderBudget(float fractionOfBuffer) {
+        voiceScheduler.setBudget(fractionOfBuffer);
+    }
+
+    //What mixing has cost so far, per voice and for the bus
+    public MixerStats getMixerStats() {
+        return mixerStats.snapshot();
+    }
+
+    /**
+     * Whether rendering keeps up: how long buffers take to render against how long they last, the worst case, how
+     * often the device is estimated to have run dry, and how many position updates were late or overwritten before
+     * they were heard. Safe to call from any thread; it never holds up the render thread.
+     */
+    public RenderStats getRenderStats() {
+        return renderStats.snapshot();
+    }
+
+    //Start the render stats again
+    public void resetRenderStats() {
+        renderStats.reset();
+    }
+
+    //How old a position update (by the origin time passed to repeat()) can be when rendered before it is late
+    public void setLateUpdateMillis(float millis) {
+        lateUpdateNanos = (long) (millis * 1000000L);
+    }
+
+    //How long from play(), move() or repeat() being called to the buffer with the change being written to the sink
+    public LatencyHistogram getTriggerLatency() {
+        return triggerLatency.snapshot();
+    }
+
+    //How long from the origin time passed to repeat() to the buffer with the change being written to the sink
+    public LatencyHistogram getOriginLatency() {
+        return originLatency.snapshot();
+    }
+
+    //Start the render thread. Does nothing if it is already running.
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        renderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int frames = sink.getFramesPerBuffer();
+                sink.start();
+                renderStats.recordStart();
+                while (running) {
+                    render(outputBuffer, frames);
+                    long writeStart = System.nanoTime();
+                    sink.write(outputBuffer, frames * 2);
+                    long written = System.nanoTime();
+                    renderStats.recordWrite(writeStart, written, frames);
+                    recordWritten(written);
+                }
+                sink.stop();
+            }
+        }, "AudioEngine");
+        renderThread.setPriority(Thread.MAX_PRIORITY);
+        renderThread.start();
+    }
+
+    //Stop the render thread and wait for it to finish
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            renderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        renderThread = null;
+    }
+
+    /**
+     * Play a clip for a sound at the given position. Safe to call from any thread.
+     *
+     * @return an id for the voice, to pass to {@link #move}
+     */
+    public int play(Clip clip, float angle, float height, float distance) {
+        return play(clip, angle, height, distance, 1.0f, 0.0f);
+    }
+
+    /**
+     * Play a clip at a gain (1 is as recorded) and pan, from -1 for right only to 1 for left only, on top of the
+     * position. Safe to call from any thread.
+     *
+     * @return an id for the voice, to pass to {@link #move}
+     */
+    public int play(Clip clip, float angle, float height, float distance, float gain, float pan) {
+        int voiceId = nextVoiceId.getAndIncrement();
+        commands.offer(new Command(Command.PLAY, voiceId, clip, angle, height, distance, gain, pan));
+        return voiceId;
+    }
+
+    /**
+     * Move a playing voice to a new position, fading from the old one over the fade time instead of restarting it.
+     * The clip is the one for the new position (for stereo clips with the position rendered in); it carries on from
+     * where the old one had got to. Does nothing if the voice has already finished. Safe to call from any thread.
+     */
+    public void move(int voiceId, Clip clip, float angle, float height, float distance) {
+        commands.offer(new Command(Command.MOVE, voiceId, clip, angle, height, distance, Float.NaN, Float.NaN));
+    }
+
+    //Move a playing voice and change its gain and pan as well; the gain and pan glide over the fade time too
+    public void move(int voiceId, Clip clip, float angle, float height, float distance, float gain, float pan) {
+        commands.offer(new Command(Command.MOVE, voiceId, clip, angle, height, distance, gain, pan));
+    }
+
+    //Repeat a clip for one tracked object, the same as repeat(0, clip, angle, height, distance, 1, 0)
+    public void repeat(Clip clip, float angle, float height, float distance) {
+        repeat(0, clip, angle, height, distance, 1.0f, 0.0f);
+    }
+
+    /**
+     * Repeat a clip for a tracked object, or update the object if it is already being repeated. Each source
+     * (0 to getMaxSources() - 1) is one object with its own beat. The time between beeps follows the distance (see
+     * {@link #setRepeatPeriod}) and a change takes effect on the next beat. If a beep is sounding when the clip,
+     * position, gain or pan changes it is moved there as with {@link #move}. Safe to call from any thread, and
+     * doesn't allocate or wait for the render thread. If a source is updated more than once before the next
+     * buffer, only the last update counts; if two threads update it at the same moment, the one that finishes
+     * second is the last (see {@link SourceUpdates}).
+     */
+    public void repeat(int source, Clip clip, float angle, float height, float distance, float gain, float pan) {
+        repeat(source, clip, angle, height, distance, gain, pan, System.nanoTime());
+    }
+
+    /**
+     * The same, for a change caused by something that happened at originNanos (from System.nanoTime()), e.g. the
+     * camera frame the object was seen in. The time from then until the change is written out is recorded in
+     * {@link #getOriginLatency()}.
+     */
+    public void repeat(int source, Clip clip, float angle, float height, float distance, float gain, float pan,
+                       long originNanos) {
+        if (source < 0 || source >= sources.length) {
+            throw new IllegalArgumentException("Source " + source + " out of range, there are " + sources.length);
+        }
+        sourceUpdates.write(source, true, clip, angle, height, distance, gain, pan, originNanos);
+    }
+
+    //Stop repeating every source. Beeps that are already sounding play to the end.
+    public void stopRepeating() {
+        for (int source = 0; source < sources.length; source++) {
+            stopRepeating(source);
+        }
+    }
+
+    //Stop repeating one source
+    public void stopRepeating(int source) {
+        if (source < 0 || source >= sources.length) {
+            throw new IllegalArgumentException("Source " + source + " out of range, there are " + sources.length);
+        }
+        sourceUpdates.write(source, false, null, 0, 0, 0, 0, 0, System.nanoTime());
+    }
+
+    /**
+     * Render the next frames of the mix into interleaved stereo output. This is what the render thread
+     * calls for every buffer; it is public so the mix can be driven without a device (e.g. from benchmarks).
+     * At most one sink buffer of frames can be rendered per call.
+     */
+    public void render(short[] output, int frames) {
+        long blockNanos = System.nanoTime();
+        timedCommands = 0;
+        Command command;
+        while ((command = commands.poll()) != null) {
+            timeCommand(command.submitNanos, command.originNanos);
+            switch (command.type) {
+                case Command.PLAY:
+                    startVoice(command.voiceId, command.clip, command.angle, command.height, command.distance,
+                            command.gain, command.pan, false, 0);
+                    break;
+                case Command.MOVE:
+                    moveVoice(command.voiceId, command.clip, command.angle, command.height, command.distance,
+                            command.gain, command.pan);
+                    break;
+            }
+        }
+        long lateNanos = lateUpdateNanos;
+        for (int i = 0; i < sources.length; i++) {
+            if (sourceUpdates.read(i, update)) {
+                renderStats.recordUpdate(blockNanos - update.originNanos, update.superseded, lateNanos);
+                if (update.repeating) {
+                    timeCommand(update.submitNanos, update.originNanos);
+                    updateRepeat(sources[i], update);
+                } else {
+                    sources[i].repeating = false;
+                }
+            }
+        }
+
+        startPending();
+        scheduleSources();
+        int tickFrames = controlFrames;
+        DistanceTable distances = distanceTable;
+        for (Source source : sources) {
+            if (source.repeating) {
+                scheduleBeats(source, frames, tickFrames, blockNanos);
+            }
+        }
+        framePosition += frames;
+
+        float[] mix = mixBuffer;
+        int[] fixedMix = fixedMixBuffer;
+        int samples = frames * 2;
+        for (int i = 0; i < samples; i++) {
+            mix[i] = 0.0f;
+            fixedMix[i] = 0;
+        }
+
+        long voiceStart = System.nanoTime();
+        int activeVoices = 0;
+        int fixedVoices = 0;
+        for (Voice voice : voices) {
+            if (voice.isActive()) {
+                if (voice.isFixedPoint()) {
+                    voice.mixFixed(fixedMix, frames, tickFrames, distances);
+                    fixedVoices++;
+                } else {
+                    voice.mix(mix, frames, tickFrames, distances);
+                }
+                activeVoices++;
+            }
+        }
+
+        long busStart = System.nanoTime();
+        if (activeVoices == fixedVoices && (fixedVoices > 0 || fixedPoint)) {
+            limiter.process(fixedMix, frames);
+            for (int i = 0; i < samples; i++) {
+                output[i] = FixedPoint.toShort(fixedMix[i]);
+            }
+        } else {
+            if (fixedVoices > 0) {
+                float scale = FixedPoint.toFloat(1, FixedPoint.SAMPLE_BITS);
+                for (int i = 0; i < samples; i++) {
+                    mix[i] += fixedMix[i] * scale;
+                }
+            }
+            limiter.process(mix, frames);
+            for (int i = 0; i < samples; i++) {
+                float sample = mix[i] * 32767.0f;
+                if (sample > 32767.0f) {
+                    sample = 32767.0f;
+                } else if (sample < -32768.0f) {
+                    sample = -32768.0f;
+                }
+                output[i] = (short) sample;
+            }
+        }
+        long busEnd = System.nanoTime();
+        mixerStats.record(activeVoices, busStart - voiceStart, busEnd - busStart, frames);
+        renderStats.recordRender(busEnd - blockNanos, frames);
+        voiceScheduler.update(busEnd - blockNanos, frames, sink.getSampleRate());
+        mixerStats.recordLimits(voiceScheduler.getFullLimit(), voiceScheduler.getPanLimit());
+    }
+
+    //Record how long the commands in the buffer that has just been written took to get there
+    private void recordWritten(long writtenNanos) {
+        for (int i = 0; i < timedCommands; i++) {
+            triggerLatency.record(submitTimes[i], writtenNanos);
+            originLatency.record(originTimes[i], writtenNanos);
+        }
+        timedCommands = 0;
+    }
+
+    //Start the source's beats in this block. While its distance is gliding the period is worked out again every
+    //control tick, for the distance at the end of the tick.
+    private void scheduleBeats(Source source, int frames, int tickFrames, long blockNanos) {
+        int start = 0;
+        while (start < frames) {
+            int count = source.beatGlideRemaining > 0 ? Math.min(tickFrames, frames - start) : frames - start;
+            if (source.beatGlideRemaining > 0) {
+                source.beatDistance += (source.distance - source.beatDistance) * Math.min(count, source.beatGlideRemaining)
+                        / source.beatGlideRemaining;
+                source.beatGlideRemaining = Math.max(0, source.beatGlideRemaining - count);
+            }
+            long tickNanos = blockNanos + start * 1000000000L / sink.getSampleRate();
+            int offset;
+            while ((offset = source.beatScheduler.nextBeat(framePosition + start, count, source.beatDistance, tickNanos)) >= 0) {
+                offset += start;
+                mixerStats.recordBeat(source.tier);
+                if (source.tier == VoiceScheduler.DROPPED) {
+                    //Skipped to save time; the source gets more important until it is heard again
+                    continue;
+                }
+                source.lastCueFrame = framePosition + offset;
+                source.beatVoiceId = nextVoiceId.getAndIncrement();
+                startVoice(source.beatVoiceId, source.clip, source.angle, source.height, source.distance,
+                        source.gain, source.pan, source.tier == VoiceScheduler.PANNED, offset);
+            }
+            start += count;
+        }
+    }
+
+    //Rank the repeating sources and fade out the beeps of any that have just been dropped
+    private void scheduleSources() {
+        float secondsPerFrame = 1.0f / sink.getSampleRate();
+        for (int i = 0; i < sources.length; i++) {
+            Source source = sources[i];
+            sourceScores[i] = source.repeating
+                    ? VoiceScheduler.importance(source.gain, source.distance, (framePosition - source.lastCueFrame) * secondsPerFrame)
+                    : -1.0f;
+        }
+        voiceScheduler.rank(sourceScores);
+        for (int i = 0; i < sources.length; i++) {
+            Source source = sources[i];
+            int tier = voiceScheduler.tier(i);
+            if (source.repeating && tier == VoiceScheduler.DROPPED && source.tier != VoiceScheduler.DROPPED) {
+                releaseVoice(source.beatVoiceId);
+            }
+            source.tier = tier;
+        }
+    }
+
+    //Remember when a change taken up by this buffer was asked for, to record once the buffer is written
+    private void timeCommand(long submitNanos, long originNanos) {
+        if (timedCommands < MAX_TIMED_COMMANDS) {
+            submitTimes[timedCommands] = submitNanos;
+            originTimes[timedCommands] = originNanos;
+            timedCommands++;
+        }
+    }
+
+    private void updateRepeat(Source source, SourceUpdates.Update latest) {
+        if (latest.distance != source.distance) {
+            source.beatGlideRemaining = fadeFrames;
+        }
+        if (!source.repeating) {
+            source.repeating = true;
+            source.beatScheduler.reset();
+            source.lastCueFrame = framePosition;
+            source.beatDistance = latest.distance;
+            source.beatGlideRemaining = 0;
+        } else if (latest.clip != source.clip || latest.angle != source.angle || latest.height != source.height
+                || latest.gain != source.gain || latest.pan != source.pan
+                //A synthesized cue's timbre follows the distance within the beat too
+                || (latest.distance != source.distance && latest.clip instanceof CueSynth)) {
+            moveVoice(source.beatVoiceId, latest.clip, latest.angle, latest.height, latest.distance,
+                    latest.gain, latest.pan);
+        }
+        source.clip = latest.clip;
+        source.angle = latest.angle;
+        source.height = latest.height;
+        source.distance = latest.distance;
+        source.gain = latest.gain;
+        source.pan = latest.pan;
+    }
+
+    private void startVoice(int voiceId, Clip clip, float angle, float height, float distance, float gain, float pan,
+                            boolean panned, int startDelay) {
+        float importance = VoiceScheduler.importance(gain, distance, 0.0f);
+        //Use a free voice if there is one
+        Voice victim = null;
+        for (Voice voice : voices) {
+            if (!voice.isActive()) {
+                voice.start(voiceId, clip, angle, height, elevationFor(height), distance, gain, pan, panned, startDelay,
+                        distanceTable, fixedPoint);
+                voice.importance = importance;
+                return;
+            }
+            if (!voice.isReleasing() && (victim == null || voice.importance < victim.importance)) {
+                victim = voice;
+            }
+        }
+        //Otherwise fade out the least important voice, as long as it matters less than the new sound, and start the
+        //new sound once it has gone. If one is already fading out, wait for that.
+        if (victim != null) {
+            if (victim.importance > importance) {
+                mixerStats.recordVoiceDropped();
+                return;
+            }
+            victim.release(stealFrames);
+            mixerStats.recordSteal();
+        }
+        if (pendingCount == pendingStarts.length) {
+            mixerStats.recordVoiceDropped();
+            return;
+        }
+        PendingStart pending = pendingStarts[pendingCount++];
+        pending.voiceId = voiceId;
+        pending.clip = clip;
+        pending.angle = angle;
+        pending.height = height;
+        pending.distance = distance;
+        pending.gain = gain;
+        pending.pan = pan;
+        pending.panned = panned;
+        pending.importance = importance;
+    }
+
+    //Start the sounds that were waiting for a voice, if one has come free
+    private void startPending() {
+        int waiting = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            PendingStart pending = pendingStarts[i];
+            Voice free = null;
+            for (Voice voice : voices) {
+                if (!voice.isActive()) {
+                    free = voice;
+                    break;
+                }
+            }
+            if (free != null) {
+                free.start(pending.voiceId, pending.clip, pending.angle, pending.height, elevationFor(pending.height),
+                        pending.distance, pending.gain, pending.pan, pending.panned, 0, distanceTable, fixedPoint);
+                free.importance = pending.importance;
+            } else {
+                //Keep it, moving it down over the ones that have started
+                pendingStarts[i] = pendingStarts[waiting];
+                pendingStarts[waiting++] = pending;
+            }
+        }
+        pendingCount = waiting;
+    }
+
+    //A NaN gain or pan keeps the voice's own
+    private void moveVoice(int voiceId, Clip clip, float angle, float height, float distance, float gain, float pan) {
+        for (Voice voice : voices) {
+            if (voice.isActive() && voice.id == voiceId) {
+                voice.move(clip, angle, height, elevationFor(height), distance, fadeFrames);
+                if (!Float.isNaN(gain)) {
+                    voice.gain = gain;
+                    voice.pan = pan;
+                    voice.importance = VoiceScheduler.importance(gain, distance, 0.0f);
+                }
+                return;
+            }
+        }
+        for (int i = 0; i < pendingCount; i++) {
+            PendingStart pending = pendingStarts[i];
+            if (pending.voiceId == voiceId) {
+                pending.clip = clip;
+                pending.angle = angle;
+                pending.height = height;
+                pending.distance = distance;
+                if (!Float.isNaN(gain)) {
+                    pending.gain = gain;
+                    pending.pan = pan;
+                    pending.importance = VoiceScheduler.importance(gain, distance, 0.0f);
+                }
+                return;
+            }
+        }
+    }
+
+    //Fade out a voice if it is still playing
+    private void releaseVoice(int voiceId) {
+        for (Voice voice : voices) {
+            if (voice.isActive() && voice.id == voiceId) {
+                voice.release(stealFrames);
+                return;
+            }
+        }
+    }
+
+    //The elevation for a height, or NaN if there are no elevation cues
+    private float elevationFor(float height) {
+        if (!elevationCues) {
+            return Float.NaN;
+        }
+        return Math.max(-90.0f, Math.min(elevationAtHeightZero + height * degreesPerHeight, 90.0f));
+    }
+}
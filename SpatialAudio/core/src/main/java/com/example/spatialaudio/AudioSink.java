@@ -0,0 +1,24 @@
+package com.example.spatialaudio;
+
+/**
+ * Where the {@link AudioEngine} sends its rendered audio. On Android this is a streaming AudioTrack.
+ */
+public interface AudioSink {
+    //The output sample rate in Hz
+    int getSampleRate();
+
+    //How many stereo frames the engine should render per write
+    int getFramesPerBuffer();
+
+    //How many frames the device holds ahead of what it is playing, so how long the engine has to write the next ones
+    int getBufferFrames();
+
+    //Called on the render thread before the first write
+    void start();
+
+    //Write interleaved stereo samples. Blocks until the device has room for them.
+    void write(short[] buffer, int sampleCount);
+
+    //Called on the render thread after the last write
+    void stop();
+}
@@ -0,0 +1,83 @@
+package com.example.spatialaudio;
+
+/**
+ * Decides when the repeating beep should sound, counting in output frames on the render thread rather than
+ * with Handler delays or sleeps, so beats land on the exact sample they are meant to.
+ *
+ * The time between beats is a continuous function of distance: {@code millisPerDistance * distance}, kept between
+ * a minimum and a maximum. It is worked out again every time it is needed, so a change in distance moves the next
+ * beat straight away.
+ */
+class BeatScheduler {
+    private final int sampleRate;
+
+    private volatile float millisPerDistance = 600.0f;
+    private volatile float minMillis = 100.0f;
+    private volatile float maxMillis = 6000.0f;
+
+    //The frame the last beat was meant for (not rounded), or NaN before the first beat
+    private double lastBeat = Double.NaN;
+    private long lastOnset;
+    private long lastOnsetNanos;
+
+    //How far the beats were from where they should be, counted in output frames and in wall clock time.
+    //Shared by every source's scheduler.
+    private final JitterStats sampleClockJitter;
+    private final JitterStats renderClockJitter;
+
+    BeatScheduler(int sampleRate, JitterStats sampleClockJitter, JitterStats renderClockJitter) {
+        this.sampleRate = sampleRate;
+        this.sampleClockJitter = sampleClockJitter;
+        this.renderClockJitter = renderClockJitter;
+    }
+
+    void setPeriod(float millisPerDistance, float minMillis, float maxMillis) {
+        this.millisPerDistance = millisPerDistance;
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+    }
+
+    float periodMillis(float distance) {
+        return Math.max(minMillis, Math.min(millisPerDistance * distance, maxMillis));
+    }
+
+    //Start again, with the first beat at the next opportunity
+    void reset() {
+        lastBeat = Double.NaN;
+    }
+
+    /**
+     * Find the next beat in the block of frames starting at blockStart, marking it as played.
+     *
+     * @param blockNanos System.nanoTime() when the block started rendering, for the wall clock statistics
+     * @return the offset of the beat into the block, or -1 if there are no more beats in it
+     */
+    int nextBeat(long blockStart, int frames, float distance, long blockNanos) {
+        double periodMillis = periodMillis(distance);
+        double beat;
+        if (Double.isNaN(lastBeat)) {
+            beat = blockStart;
+        } else {
+            //If the distance dropped so far that the beat is overdue, play it now rather than catching up
+            beat = Math.max(lastBeat + periodMillis * sampleRate / 1000.0, blockStart);
+        }
+
+        long onset = Math.round(beat);
+        if (onset >= blockStart + frames) {
+            return -1;
+        }
+        int offset = (int) Math.max(0, onset - blockStart);
+        onset = blockStart + offset;
+        long onsetNanos = blockNanos + offset * 1000000000L / sampleRate;
+
+        if (!Double.isNaN(lastBeat)) {
+            //The interval is checked against the period as it is when it ends
+            sampleClockJitter.record(periodMillis, (onset - lastOnset) * 1000.0 / sampleRate);
+            renderClockJitter.record(periodMillis, (onsetNanos - lastOnsetNanos) / 1000000.0);
+        }
+        lastBeat = beat;
+        lastOnset = onset;
+        lastOnsetNanos = onsetNanos;
+        return offset;
+    }
+}
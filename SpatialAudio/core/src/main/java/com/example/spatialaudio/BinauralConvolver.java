@@ -0,0 +1,190 @@
+package com.example.spatialaudio;
+
+import java.util.Arrays;
+
+/**
+ * Renders a mono sound binaurally by convolving it with a left and right head related impulse response, using
+ * uniformly partitioned overlap-save FFT convolution. The HRIR is cut into block sized partitions (see
+ * {@link HrirFilter}) and each block of input is transformed once and kept in a frequency domain delay line, so a
+ * block costs one forward FFT, one multiply-add per partition and one inverse FFT whatever the HRIR length.
+ *
+ * Everything is allocated in the constructor; rendering never allocates. {@link #setFilter} can be called from
+ * another thread to move the sound, and the next block is rendered with both the old and new HRIRs and crossfaded
+ * from one to the other, so a moving sound changes direction without clicks.
+ *
+ * Input is gathered into whole blocks, so the output comes {@link #getLatencyFrames()} frames after the input.
+ */
+public class BinauralConvolver {
+    private final Fft fft;
+    private final int blockSize;
+    private final int fftSize;
+    private final int partitions;
+
+    //The spectra of the last few input blocks, newest at head
+    private final float[][] delayLineRe;
+    private final float[][] delayLineIm;
+    private int head;
+
+    //The last full block of input, the first half of the next overlap-save window
+    private final float[] previousInput;
+    //Input and output for the block being gathered
+    private final float[] inputBlock;
+    private final float[] outLeft;
+    private final float[] outRight;
+    private int position;
+
+    //Work space for the output spectra, and for the old filter's while crossfading
+    private final float[] accumulatorRe;
+    private final float[] accumulatorIm;
+    private final float[] fadeRe;
+    private final float[] fadeIm;
+
+    private HrirFilter filter;
+    private volatile HrirFilter pendingFilter;
+
+    //The convolver takes its block size from the filter, and can later take filters with up to as many partitions
+    public BinauralConvolver(HrirFilter initialFilter) {
+        this(initialFilter, initialFilter.getPartitions());
+    }
+
+    public BinauralConvolver(HrirFilter initialFilter, int maxPartitions) {
+        blockSize = initialFilter.getBlockSize();
+        fftSize = 2 * blockSize;
+        partitions = Math.max(maxPartitions, initialFilter.getPartitions());
+        fft = new Fft(fftSize);
+        delayLineRe = new float[partitions][fftSize];
+        delayLineIm = new float[partitions][fftSize];
+        previousInput = new float[blockSize];
+        inputBlock = new float[blockSize];
+        outLeft = new float[blockSize];
+        outRight = new float[blockSize];
+        accumulatorRe = new float[fftSize];
+        accumulatorIm = new float[fftSize];
+        fadeRe = new float[fftSize];
+        fadeIm = new float[fftSize];
+        filter = initialFilter;
+        pendingFilter = initialFilter;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    //How many frames the output lags the input by
+    public int getLatencyFrames() {
+        return blockSize;
+    }
+
+    //How many frames of output are still to come after the input ends
+    public int getTailFrames() {
+        return blockSize + partitions * blockSize;
+    }
+
+    /**
+     * Switch to another HRIR pair, crossfading to it over the next block. Safe to call from any thread; if it is
+     * called more than once before the next block, only the last filter is used.
+     */
+    public void setFilter(HrirFilter newFilter) {
+        if (newFilter.getBlockSize() != blockSize || newFilter.getPartitions() > partitions) {
+            throw new IllegalArgumentException("Filter has block size " + newFilter.getBlockSize() + " and "
+                    + newFilter.getPartitions() + " partitions, the convolver needs " + blockSize + " and at most " + partitions);
+        }
+        pendingFilter = newFilter;
+    }
+
+    //True if a filter passed to setFilter() hasn't been taken up by a block yet
+    public boolean isFilterPending() {
+        return pendingFilter != filter;
+    }
+
+    //Forget the previous input, e.g. before starting a new sound. Switches to the latest filter without a fade.
+    public void reset() {
+        for (int p = 0; p < partitions; p++) {
+            Arrays.fill(delayLineRe[p], 0.0f);
+            Arrays.fill(delayLineIm[p], 0.0f);
+        }
+        Arrays.fill(previousInput, 0.0f);
+        Arrays.fill(inputBlock, 0.0f);
+        Arrays.fill(outLeft, 0.0f);
+        Arrays.fill(outRight, 0.0f);
+        position = 0;
+        filter = pendingFilter;
+    }
+
+    /**
+     * Render mono input into interleaved stereo output, starting outOffset frames into the output. The result is
+     * added to what is already in the output, scaled by gain, so several convolvers can mix into one buffer.
+     */
+    public void render(float[] input, int frames, float[] stereoOut, int outOffset, float gain) {
+        int i = 0;
+        while (i < frames) {
+            int count = Math.min(frames - i, blockSize - position);
+            System.arraycopy(input, i, inputBlock, position, count);
+            int out = 2 * (outOffset + i);
+            for (int n = position; n < position + count; n++) {
+                stereoOut[out] += outLeft[n] * gain;
+                stereoOut[out + 1] += outRight[n] * gain;
+                out += 2;
+            }
+            position += count;
+            i += count;
+            if (position == blockSize) {
+                processBlock();
+                position = 0;
+            }
+        }
+    }
+
+    //Convolve the gathered input block into outLeft and outRight
+    private void processBlock() {
+        //The overlap-save window is the previous block followed by this one
+        float[] re = delayLineRe[head];
+        float[] im = delayLineIm[head];
+        System.arraycopy(previousInput, 0, re, 0, blockSize);
+        System.arraycopy(inputBlock, 0, re, blockSize, blockSize);
+        Arrays.fill(im, 0.0f);
+        System.arraycopy(inputBlock, 0, previousInput, 0, blockSize);
+        fft.forward(re, im);
+
+        multiplyAccumulate(filter, accumulatorRe, accumulatorIm);
+        fft.inverse(accumulatorRe, accumulatorIm);
+
+        HrirFilter next = pendingFilter;
+        if (next != filter) {
+            multiplyAccumulate(next, fadeRe, fadeIm);
+            fft.inverse(fadeRe, fadeIm);
+            float step = 1.0f / blockSize;
+            for (int n = 0; n < blockSize; n++) {
+                float mixIn = (n + 1) * step;
+                float mixOut = 1.0f - mixIn;
+                //Only the second half of the window is free of wrap around. The real part is the left ear.
+                outLeft[n] = accumulatorRe[blockSize + n] * mixOut + fadeRe[blockSize + n] * mixIn;
+                outRight[n] = accumulatorIm[blockSize + n] * mixOut + fadeIm[blockSize + n] * mixIn;
+            }
+            filter = next;
+        } else {
+            System.arraycopy(accumulatorRe, blockSize, outLeft, 0, blockSize);
+            System.arraycopy(accumulatorIm, blockSize, outRight, 0, blockSize);
+        }
+
+        head = head + 1 == partitions ? 0 : head + 1;
+    }
+
+    //Sum the input spectra times the filter's partitions: partition p goes with the input from p blocks ago
+    private void multiplyAccumulate(HrirFilter f, float[] outRe, float[] outIm) {
+        Arrays.fill(outRe, 0.0f);
+        Arrays.fill(outIm, 0.0f);
+        int block = head;
+        for (int p = 0; p < f.partitions; p++) {
+            float[] xr = delayLineRe[block];
+            float[] xi = delayLineIm[block];
+            float[] hr = f.re[p];
+            float[] hi = f.im[p];
+            for (int k = 0; k < fftSize; k++) {
+                outRe[k] += xr[k] * hr[k] - xi[k] * hi[k];
+                outIm[k] += xr[k] * hi[k] + xi[k] * hr[k];
+            }
+            block = block == 0 ? partitions - 1 : block - 1;
+        }
+    }
+}
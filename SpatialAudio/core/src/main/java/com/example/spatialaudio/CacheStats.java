@@ -0,0 +1,93 @@
+package com.example.spatialaudio;
+
+/**
+ * Counts how well a {@link ClipCache} is doing: hits and misses, and how many of the clips it prefetched were
+ * asked for before they were dropped again. {@link #snapshot()} copies the figures out for another thread.
+ */
+public class CacheStats {
+    private long hits;
+    private long misses;
+    private long prefetches;
+    private long prefetchesUsed;
+    private long prefetchesWasted;
+
+    //A clip was already in the cache. prefetched is true if it got there by prefetching and this is its first use.
+    synchronized void recordHit(boolean prefetched) {
+        hits++;
+        if (prefetched) {
+            prefetchesUsed++;
+        }
+    }
+
+    //A clip wasn't cached, so a neighbouring one was used while it is loaded
+    synchronized void recordMiss() {
+        misses++;
+    }
+
+    //A clip was loaded ahead of being asked for
+    synchronized void recordPrefetch() {
+        prefetches++;
+    }
+
+    //A prefetched clip was dropped without ever being asked for
+    synchronized void recordPrefetchWasted() {
+        prefetchesWasted++;
+    }
+
+    public synchronized void reset() {
+        hits = 0;
+        misses = 0;
+        prefetches = 0;
+        prefetchesUsed = 0;
+        prefetchesWasted = 0;
+    }
+
+    //A copy of the figures so far
+    public synchronized CacheStats snapshot() {
+        CacheStats copy = new CacheStats();
+        copy.hits = hits;
+        copy.misses = misses;
+        copy.prefetches = prefetches;
+        copy.prefetchesUsed = prefetchesUsed;
+        copy.prefetchesWasted = prefetchesWasted;
+        return copy;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public synchronized long getPrefetches() {
+        return prefetches;
+    }
+
+    public synchronized long getPrefetchesUsed() {
+        return prefetchesUsed;
+    }
+
+    public synchronized long getPrefetchesWasted() {
+        return prefetchesWasted;
+    }
+
+    //Of the prefetched clips that have either been used or dropped, the fraction that were used
+    public synchronized double getPrefetchAccuracy() {
+        long settled = prefetchesUsed + prefetchesWasted;
+        return settled == 0 ? 0 : (double) prefetchesUsed / settled;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d hits, %d misses (%.1f%% hit rate), %d prefetched, %d used, %d wasted (%.1f%% accurate)",
+                hits, misses, 100 * getHitRate(), prefetches, prefetchesUsed, prefetchesWasted,
+                100 * getPrefetchAccuracy());
+    }
+}
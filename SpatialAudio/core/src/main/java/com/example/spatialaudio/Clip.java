@@ -0,0 +1,43 @@
+package com.example.spatialaudio;
+
+/**
+ * A decoded sound held in memory as interleaved 16 bit PCM, ready to be mixed by the {@link AudioEngine}.
+ */
+public class Clip {
+    //Interleaved samples (left, right, left, right... for stereo)
+    private final short[] samples;
+    //1 for mono, 2 for stereo
+    private final int channels;
+    private final int sampleRate;
+
+    public Clip(short[] samples, int channels, int sampleRate) {
+        if (channels != 1 && channels != 2) {
+            throw new IllegalArgumentException("Only mono and stereo clips are supported, got " + channels + " channels");
+        }
+        this.samples = samples;
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+    }
+
+    public short[] getSamples() {
+        return samples;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    //Number of sample frames (one sample per channel)
+    public int getFrameCount() {
+        return samples.length / channels;
+    }
+
+    //How much memory the PCM takes up
+    public int getByteCount() {
+        return samples.length * 2;
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.spatialaudio;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of decoded clips keyed by sound bank index, for devices where keeping the whole bank decoded
+ * takes too much memory. Once the clips go over the byte budget the least recently used ones are dropped.
+ *
+ * Calling {@link #track} as each sound moves queues the cells around it for loading on a background thread, the
+ * ones in the direction it is moving first, so by the time a clip is asked for it is usually already decoded.
+ * The budget should leave room for the current clips plus everything {@link #track} queues, or prefetching will
+ * push out clips that are still being played.
+ *
+ * {@link #get} never loads anything itself, so it can be called from the UI or camera thread: a miss is answered
+ * with the nearest cached cell, like {@link ProgressiveBank#getClip}, and the cell that was asked for is loaded
+ * next on the prefetch thread. The {@link Listener} is told when it is in.
+ */
+public class ClipCache {
+    //Decodes the clip for a bank index. Called on the prefetch thread, or wherever preload() is called.
+    public interface Loader {
+        Clip load(int index);
+    }
+
+    //Told on the prefetch thread when a clip that missed has been loaded, so it can be asked for again
+    public interface Listener {
+        void onMissLoaded(int index);
+    }
+
+    //How many cells ahead of the motion to prefetch
+    public static final int DEFAULT_LOOKAHEAD = 2;
+
+    //Where one sound was last tracked to, which way it was last moving (-1, 0 or 1) in columns and rows, and the
+    //cells to prefetch for it, most wanted first. The cells are replaced every time the sound moves.
+    private static class Track {
+        float lastAngle = Float.NaN;
+        float lastHeight;
+        int columnDirection;
+        int rowDirection;
+        final ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+    }
+
+    private static class Entry {
+        final Clip clip;
+        //Loaded by prefetching and not asked for yet
+        boolean prefetched;
+
+        Entry(Clip clip, boolean prefetched) {
+            this.clip = clip;
+            this.prefetched = prefetched;
+        }
+    }
+
+    private final SoundBank soundBank;
+    private final Loader loader;
+    private final long byteBudget;
+    private final CacheStats stats = new CacheStats();
+
+    //Everything below is guarded by this
+    //In access order, so the first entry is the least recently used
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true);
+    private long bytes;
+    //Cells that were asked for and missed, loaded before anything that is only prefetched, newest first
+    private final ArrayDeque<Integer> missQueue = new ArrayDeque<Integer>();
+    //One for each sound that has been tracked, grown as new ones are
+    private Track[] tracks = new Track[0];
+    //The track to prefetch for next, so each sound gets a turn
+    private int nextTrack;
+    private Thread prefetchThread;
+    private boolean running;
+    private int lookahead = DEFAULT_LOOKAHEAD;
+    private volatile Listener listener;
+
+    public ClipCache(SoundBank soundBank, Loader loader, long byteBudget) {
+        this.soundBank = soundBank;
+        this.loader = loader;
+        this.byteBudget = byteBudget;
+    }
+
+    //Start the prefetch thread
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        prefetchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                prefetchLoop();
+            }
+        }, "ClipCache");
+        prefetchThread.setDaemon(true);
+        prefetchThread.setPriority(Thread.MIN_PRIORITY);
+        prefetchThread.start();
+    }
+
+    //Stop the prefetch thread. Clips already cached stay cached.
+    public synchronized void stop() {
+        running = false;
+        missQueue.clear();
+        for (Track track : tracks) {
+            track.queue.clear();
+        }
+        notifyAll();
+        prefetchThread = null;
+    }
+
+    //May be null
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void setLookahead(int cells) {
+        lookahead = cells;
+    }
+
+    /**
+     * The clip for a bank index, or the nearest cached one if it isn't cached, or null if nothing is. Never loads
+     * anything: a miss puts the cell at the front of the prefetch queue instead.
+     */
+    public synchronized Clip get(int index) {
+        Entry entry = entries.get(index);
+        if (entry != null) {
+            stats.recordHit(entry.prefetched);
+            entry.prefetched = false;
+            return entry.clip;
+        }
+        stats.recordMiss();
+        Integer cell = index;
+        missQueue.remove(cell);
+        missQueue.addFirst(cell);
+        notifyAll();
+        return nearest(index);
+    }
+
+    //Load a clip on the calling thread and cache it, e.g. the first one before anything is played. Blocks.
+    public void preload(int index) {
+        Clip clip = loader.load(index);
+        synchronized (this) {
+            if (!entries.containsKey(index)) {
+                put(index, clip, false);
+            }
+        }
+    }
+
+    //The clip for a bank index if it is cached, without loading it or counting a hit or miss
+    public synchronized Clip peek(int index) {
+        Entry entry = entries.get(index);
+        return entry == null ? null : entry.clip;
+    }
+
+    //Tell the cache where the only sound is now, the same as track(0, angle, height)
+    public void track(float angle, float height) {
+        track(0, angle, height);
+    }
+
+    /**
+     * Tell the cache where one of the sounds is now (degrees, positive is to the left, and height). Queues the
+     * cell it is in, the cells ahead of it in the direction it has been moving, then the cells either side of it.
+     * Each sound (numbered from 0, e.g. the audio engine's sources) has its own queue, and the prefetch thread
+     * takes a cell from each in turn.
+     */
+    public void track(int source, float angle, float height) {
+        int index = soundBank.indexOf(angle, height);
+        int angleCount = soundBank.getAngleCount();
+        int column = index % angleCount;
+        int row = index / angleCount;
+        synchronized (this) {
+            if (source >= tracks.length) {
+                Track[] grown = new Track[source + 1];
+                System.arraycopy(tracks, 0, grown, 0, tracks.length);
+                for (int i = tracks.length; i < grown.length; i++) {
+                    grown[i] = new Track();
+                }
+                tracks = grown;
+            }
+            Track track = tracks[source];
+            //Keep the last direction while the sound is still, it will most likely carry on that way
+            if (!Float.isNaN(track.lastAngle)) {
+                if (angle != track.lastAngle) {
+                    track.columnDirection = angle > track.lastAngle ? 1 : -1;
+                }
+                if (height != track.lastHeight) {
+                    track.rowDirection = height > track.lastHeight ? 1 : -1;
+                }
+            }
+            track.lastAngle = angle;
+            track.lastHeight = height;
+
+            ArrayDeque<Integer> queue = track.queue;
+            queue.clear();
+            queue(queue, column, row);
+            for (int step = 1; step <= lookahead; step++) {
+                if (track.columnDirection != 0) {
+                    queue(queue, column + step * track.columnDirection, row);
+                }
+                if (track.rowDirection != 0) {
+                    queue(queue, column, row + step * track.rowDirection);
+                }
+                if (track.columnDirection != 0 && track.rowDirection != 0) {
+                    queue(queue, column + step * track.columnDirection, row + step * track.rowDirection);
+                }
+            }
+            queue(queue, column - 1, row);
+            queue(queue, column + 1, row);
+            queue(queue, column, row - 1);
+            queue(queue, column, row + 1);
+            notifyAll();
+        }
+    }
+
+    //Drop every cached clip
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            if (entry.prefetched) {
+                stats.recordPrefetchWasted();
+            }
+        }
+        entries.clear();
+        bytes = 0;
+    }
+
+    //The bytes of PCM cached at the moment
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getByteBudget() {
+        return byteBudget;
+    }
+
+    public synchronized int getCachedCount() {
+        return entries.size();
+    }
+
+    //A copy of the hit, miss and prefetch counts so far
+    public CacheStats getStats() {
+        return stats.snapshot();
+    }
+
+    public void resetStats() {
+        stats.reset();
+    }
+
+    //Add a cell to a prefetch queue unless it is off the grid, cached or already queued. Must hold the lock.
+    private void queue(ArrayDeque<Integer> queue, int column, int row) {
+        if (column < 0 || column >= soundBank.getAngleCount() || row < 0 || row >= soundBank.getHeightCount()) {
+            return;
+        }
+        Integer index = row * soundBank.getAngleCount() + column;
+        //containsKey doesn't count as an access, so it doesn't disturb the LRU order
+        if (!entries.containsKey(index) && !queue.contains(index)) {
+            queue.add(index);
+        }
+    }
+
+    //The cached clip nearest a cell in columns and rows, or null if there are none. Must hold the lock.
+    private Clip nearest(int index) {
+        int angleCount = soundBank.getAngleCount();
+        Clip best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        //Iterating over the keys doesn't count as an access either
+        for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+            int cell = entry.getKey();
+            int columns = cell % angleCount - index % angleCount;
+            int rows = cell / angleCount - index / angleCount;
+            int distance = columns * columns + rows * rows;
+            if (distance < bestDistance) {
+                best = entry.getValue().clip;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    //The next cell to load: a miss if there is one, otherwise the next prefetch in turn, or -1. Must hold the lock.
+    private int nextQueued() {
+        if (!missQueue.isEmpty()) {
+            return missQueue.poll();
+        }
+        for (int i = 0; i < tracks.length; i++) {
+            Track track = tracks[(nextTrack + i) % tracks.length];
+            if (!track.queue.isEmpty()) {
+                nextTrack = (nextTrack + i + 1) % tracks.length;
+                return track.queue.poll();
+            }
+        }
+        return -1;
+    }
+
+    //Cache a clip and drop the least recently used ones until the cache is back under budget. Must hold the lock.
+    private void put(int index, Clip clip, boolean prefetched) {
+        entries.put(index, new Entry(clip, prefetched));
+        bytes += clip.getByteCount();
+        Iterator<Map.Entry<Integer, Entry>> eldest = entries.entrySet().iterator();
+        //Never drop the clip that was just added, even if it is over budget on its own
+        while (bytes > byteBudget && entries.size() > 1) {
+            Entry entry = eldest.next().getValue();
+            eldest.remove();
+            bytes -= entry.clip.getByteCount();
+            if (entry.prefetched) {
+                stats.recordPrefetchWasted();
+            }
+        }
+    }
+
+    private void prefetchLoop() {
+        while (true) {
+            int index;
+            boolean missed;
+            synchronized (this) {
+                missed = !missQueue.isEmpty();
+                index = nextQueued();
+                while (running && index < 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    missed = !missQueue.isEmpty();
+                    index = nextQueued();
+                }
+                //A stop and start can leave an old thread waiting here, so only the current one carries on
+                if (!running || Thread.currentThread() != prefetchThread) {
+                    return;
+                }
+                if (entries.containsKey(index)) {
+                    continue;
+                }
+            }
+            Clip clip;
+            try {
+                clip = loader.load(index);
+            } catch (RuntimeException e) {
+                //Leave the gap to be covered by its neighbours
+                continue;
+            }
+            synchronized (this) {
+                if (entries.containsKey(index)) {
+                    continue;
+                }
+                //A clip that missed has already been asked for, so it doesn't count as prefetched
+                put(index, clip, !missed);
+                if (!missed) {
+                    stats.recordPrefetch();
+                }
+            }
+            Listener listener = this.listener;
+            if (missed && listener != null) {
+                listener.onMissLoaded(index);
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.spatialaudio;
+
+/**
+ * A cue that is synthesized as it plays instead of read from a sound file, so a sound bank needs no assets at
+ * all: nothing to decode or keep in memory at startup, and pitch and timbre follow the position continuously
+ * instead of stepping from one recorded note to the next.
+ *
+ * It is a mono {@link Clip} the length of one cue, so it is played, moved and repeated like any other clip and
+ * placed by the same renderer (the angle is heard through the delay and level between the ears, see
+ * {@link SpatialRenderer}). What is different is where the samples come from: the voice playing it reads a
+ * wavetable oscillator, with the pitch set by the height and the timbre by the distance. How often it repeats
+ * follows the distance like any repeated clip, see {@link AudioEngine#setRepeatPeriod}. It has no samples of its
+ * own, so {@link #getSamples()} is empty.
+ *
+ * The wavetables are band-limited: there is a table for each octave, with only the harmonics that stay under the
+ * Nyquist frequency at the top of that octave, so high notes don't alias. Each octave has a bright table (every
+ * harmonic, falling off as 1/n like a sawtooth) and a dull one (falling off as 1/n^3, mostly the fundamental), and
+ * a note crossfades between the two. The tables and the note's envelope are 16 bit, and a note is worked out with
+ * integer phase, so it can be rendered in {@link FixedPoint} as well as in floating point.
+ *
+ * The tables are built once in the constructor; after that nothing allocates.
+ */
+public class CueSynth extends Clip {
+    //As long as the recorded piano notes
+    public static final float DEFAULT_CUE_MILLIS = 200.0f;
+    //The bottom of the lowest octave's table
+    public static final float LOWEST_FREQUENCY = 27.5f;
+
+    private static final int TABLE_BITS = 11;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    //The phase is a 32 bit fraction of a cycle: the top bits index the table, the rest interpolate
+    private static final int INDEX_SHIFT = 32 - TABLE_BITS;
+    private static final float FRACTION_SCALE = 1.0f / (1 << INDEX_SHIFT);
+    private static final float SHORT_SCALE = 1.0f / 32768.0f;
+    //Only harmonics below this share of the sample rate, leaving the top of the band for the interpolation's images
+    private static final float MAX_HARMONIC = 0.45f;
+    //The peak of the tables, so a full crossfade and envelope can't clip
+    private static final float TABLE_PEAK = 0.5f;
+    private static final float ATTACK_MILLIS = 3.0f;
+    private static final float RELEASE_MILLIS = 10.0f;
+    //How far the note has decayed by the start of the release, in dB
+    private static final float DECAY_DB = 40.0f;
+
+    private final int frames;
+    //[octave][sample], one sample longer than the table so interpolation doesn't have to wrap
+    private final short[][] brightTables;
+    private final short[][] dullTables;
+    //The level of a note at each frame, 15 fractional bits
+    private final short[] envelope;
+    //The phase increment of LOWEST_FREQUENCY, the bottom of table 0
+    private final double lowestIncrement;
+    private final float maxFrequency;
+
+    private volatile float frequencyAtHeightZero = 55.0f;
+    private volatile float semitonesPerHeight = 6.0f;
+    private volatile float nearDistance = 1.0f;
+    private volatile float farDistance = 11.0f;
+
+    public CueSynth(int sampleRate) {
+        this(sampleRate, DEFAULT_CUE_MILLIS);
+    }
+
+    public CueSynth(int sampleRate, float cueMillis) {
+        super(new short[0], 1, sampleRate);
+        frames = Math.max(1, Math.round(cueMillis * sampleRate / 1000.0f));
+        lowestIncrement = LOWEST_FREQUENCY / sampleRate * 4294967296.0;
+        maxFrequency = MAX_HARMONIC * sampleRate;
+
+        //An octave for each table until only the fundamental is left; that last one plays everything above
+        int octaves = 1;
+        while (harmonics(octaves - 1, sampleRate) > 1) {
+            octaves++;
+        }
+        brightTables = new short[octaves][];
+        dullTables = new short[octaves][];
+        //Every harmonic of a table is a whole number of cycles, so one sine cycle is all the tables need
+        double[] sine = new double[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            sine[i] = Math.sin(2 * Math.PI * i / TABLE_SIZE);
+        }
+        //Scaled by the lowest table's peak, so the fundamental is as loud in every octave
+        double brightScale = 0;
+        double dullScale = 0;
+        for (int octave = 0; octave < octaves; octave++) {
+            int harmonics = harmonics(octave, sampleRate);
+            double[] bright = harmonicSum(sine, harmonics, 1);
+            double[] dull = harmonicSum(sine, harmonics, 3);
+            if (octave == 0) {
+                brightScale = TABLE_PEAK / peak(bright);
+                dullScale = TABLE_PEAK / peak(dull);
+            }
+            brightTables[octave] = toTable(bright, brightScale);
+            dullTables[octave] = toTable(dull, dullScale);
+        }
+        envelope = envelope(frames, sampleRate);
+    }
+
+    //The harmonics that stay under the limit for a note at the top of the octave
+    private static int harmonics(int octave, int sampleRate) {
+        double top = LOWEST_FREQUENCY * Math.pow(2, octave + 1);
+        return Math.max(1, (int) (MAX_HARMONIC * sampleRate / top));
+    }
+
+    //One cycle of harmonics falling off as 1/n^power, in sine phase
+    private static double[] harmonicSum(double[] sine, int harmonics, int power) {
+        double[] sum = new double[TABLE_SIZE];
+        for (int n = 1; n <= harmonics; n++) {
+            double level = 1.0 / Math.pow(n, power);
+            int index = 0;
+            for (int i = 0; i < TABLE_SIZE; i++) {
+                sum[i] += sine[index] * level;
+                index = (index + n) & (TABLE_SIZE - 1);
+            }
+        }
+        return sum;
+    }
+
+    private static double peak(double[] values) {
+        double peak = 0;
+        for (double value : values) {
+            peak = Math.max(peak, Math.abs(value));
+        }
+        return peak;
+    }
+
+    private static short[] toTable(double[] values, double scale) {
+        short[] table = new short[TABLE_SIZE + 1];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = (short) Math.max(-32767, Math.min(32767, Math.round(values[i] * scale * 32768)));
+        }
+        table[TABLE_SIZE] = table[0];
+        return table;
+    }
+
+    //A quick attack, an exponential decay like a struck string and a short linear release to silence at the end
+    private static short[] envelope(int frames, int sampleRate) {
+        short[] envelope = new short[frames];
+        int attack = Math.min(frames, Math.max(1, Math.round(ATTACK_MILLIS * sampleRate / 1000.0f)));
+        int release = Math.min(frames - attack, Math.round(RELEASE_MILLIS * sampleRate / 1000.0f));
+        int decay = frames - attack - release;
+        double decayRate = DECAY_DB / 20.0 * Math.log(10) / Math.max(1, decay);
+        for (int i = 0; i < frames; i++) {
+            double level;
+            if (i < attack) {
+                level = (i + 1) / (double) attack;
+            } else {
+                level = Math.exp(-decayRate * Math.min(i - attack, decay));
+                if (i >= attack + decay) {
+                    level *= (double) (frames - i) / (release + 1);
+                }
+            }
+            envelope[i] = (short) Math.round(level * 32767);
+        }
+        return envelope;
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frames;
+    }
+
+    //Heights are heard as pitch: frequencyAtHeightZero Hz at height 0, going up semitonesPerHeight per unit of height.
+    //The default, 55Hz and 6 semitones, goes from A1 to A5 over heights 0 to 8 like the recorded piano notes.
+    public void setPitchMapping(float frequencyAtHeightZero, float semitonesPerHeight) {
+        this.frequencyAtHeightZero = frequencyAtHeightZero;
+        this.semitonesPerHeight = semitonesPerHeight;
+    }
+
+    //Distances are heard as timbre: all bright at nearDistance and closer, all dull at farDistance and further
+    public void setBrightnessMapping(float nearDistance, float farDistance) {
+        this.nearDistance = nearDistance;
+        this.farDistance = farDistance;
+    }
+
+    public float frequencyFor(float height) {
+        float frequency = (float) (frequencyAtHeightZero * Math.pow(2, semitonesPerHeight * height / 12.0));
+        return Math.max(1.0f, Math.min(maxFrequency, frequency));
+    }
+
+    //0 for dull to 1 for bright
+    public float brightnessFor(float distance) {
+        float near = nearDistance;
+        float far = farDistance;
+        if (far <= near) {
+            return distance <= near ? 1.0f : 0.0f;
+        }
+        return Math.max(0.0f, Math.min(1.0f, (far - distance) / (far - near)));
+    }
+
+    private int increment(float frequency) {
+        return (int) Math.round(frequency / getSampleRate() * 4294967296.0);
+    }
+
+    //The table for notes up to the given phase increment
+    private int octaveFor(int increment) {
+        int ratio = (int) (increment / lowestIncrement);
+        if (ratio < 1) {
+            return 0;
+        }
+        return Math.min(brightTables.length - 1, 31 - Integer.numberOfLeadingZeros(ratio));
+    }
+
+    /**
+     * One note of a synth being played by a voice: where its oscillator is, and the pitch and brightness it is
+     * gliding to. Each voice has its own, so several voices can play the same synth.
+     */
+    static final class Note {
+        private CueSynth synth;
+        private int phase;
+        private int increment;
+        private int targetIncrement;
+        private int incrementStep;
+        //0 to 32767
+        private int brightness;
+        private int targetBrightness;
+        private int brightnessStep;
+        private int glideRemaining;
+
+        //Start a note for the position
+        void start(CueSynth synth, float height, float distance) {
+            this.synth = synth;
+            phase = 0;
+            increment = synth.increment(synth.frequencyFor(height));
+            targetIncrement = increment;
+            brightness = brightness(synth.brightnessFor(distance));
+            targetBrightness = brightness;
+            glideRemaining = 0;
+        }
+
+        //Glide the pitch and brightness to a new position over the given number of frames
+        void glideTo(float height, float distance, int frames) {
+            targetIncrement = synth.increment(synth.frequencyFor(height));
+            targetBrightness = brightness(synth.brightnessFor(distance));
+            glideRemaining = Math.max(1, frames);
+            incrementStep = (targetIncrement - increment) / glideRemaining;
+            brightnessStep = (targetBrightness - brightness) / glideRemaining;
+        }
+
+        private static int brightness(float brightness) {
+            return Math.round(brightness * 32767);
+        }
+
+        //The next frames of the note, from the given frame of the cue on
+        void render(float[] out, int position, int frames) {
+            //The table for the highest the pitch gets in this block, so nothing aliases on the way up
+            int octave = synth.octaveFor(Math.max(increment, targetIncrement));
+            short[] bright = synth.brightTables[octave];
+            short[] dull = synth.dullTables[octave];
+            short[] envelope = synth.envelope;
+            for (int i = 0; i < frames; i++) {
+                int index = phase >>> INDEX_SHIFT;
+                float fraction = (phase & ((1 << INDEX_SHIFT) - 1)) * FRACTION_SCALE;
+                float b = bright[index] + (bright[index + 1] - bright[index]) * fraction;
+                float d = dull[index] + (dull[index + 1] - dull[index]) * fraction;
+                float value = d + (b - d) * (brightness * SHORT_SCALE);
+                out[i] = value * envelope[position + i] * (SHORT_SCALE * SHORT_SCALE);
+                advance();
+            }
+        }
+
+        //The same in fixed point, with the same phase and levels
+        void render(int[] out, int position, int frames) {
+            int octave = synth.octaveFor(Math.max(increment, targetIncrement));
+            short[] bright = synth.brightTables[octave];
+            short[] dull = synth.dullTables[octave];
+            short[] envelope = synth.envelope;
+            for (int i = 0; i < frames; i++) {
+                int index = phase >>> INDEX_SHIFT;
+                int fraction = (phase >>> (INDEX_SHIFT - 15)) & 0x7fff;
+                int b = bright[index] + (((bright[index + 1] - bright[index]) * fraction) >> 15);
+                int d = dull[index] + (((dull[index + 1] - dull[index]) * fraction) >> 15);
+                int value = d + (((b - d) * brightness) >> 15);
+                //15 bits each for the value and the envelope, down to the samples' bits
+                out[i] = (value * envelope[position + i]) >> (30 - FixedPoint.SAMPLE_BITS);
+                advance();
+            }
+        }
+
+        private void advance() {
+            phase += increment;
+            if (glideRemaining > 0) {
+                if (--glideRemaining == 0) {
+                    increment = targetIncrement;
+                    brightness = targetBrightness;
+                } else {
+                    increment += incrementStep;
+                    brightness += brightnessStep;
+                }
+            }
+        }
+    }
+}
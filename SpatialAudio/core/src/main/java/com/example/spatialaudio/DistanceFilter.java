@@ -0,0 +1,89 @@
+package com.example.spatialaudio;
+
+/**
+ * Makes a voice sound near or far with the gain and low-pass coefficient from a {@link DistanceTable}. They are
+ * looked up once per block and ramped sample by sample from the last block's, so every sample costs the same
+ * few multiply-adds however the distance moves.
+ *
+ * Works on interleaved stereo after the voice has been placed, so both ears are filtered alike and the delay
+ * between them is left alone. There is a {@link FixedPoint} version too, for a filter that is only used for one or
+ * the other.
+ */
+public class DistanceFilter {
+    //The gain and coefficient at the end of the last block, and the ones to ramp to over the next
+    private float gain = 1.0f;
+    private float coefficient = 1.0f;
+    private final float[] target = new float[DistanceTable.COEFFICIENTS];
+    //The low-pass output for each channel
+    private float left;
+    private float right;
+    //The same for fixed point
+    private int fixedGain;
+    private int fixedCoefficient;
+    private int fixedLeft;
+    private int fixedRight;
+
+    //Jump straight to a distance and forget the previous input, e.g. before starting a new sound
+    public void reset(DistanceTable table, float distance) {
+        table.lookup(distance, target);
+        gain = target[0];
+        coefficient = target[1];
+        left = 0.0f;
+        right = 0.0f;
+        fixedGain = FixedPoint.toFixed(gain, FixedPoint.UNIT_BITS);
+        fixedCoefficient = FixedPoint.toFixed(coefficient, FixedPoint.UNIT_BITS);
+        fixedLeft = 0;
+        fixedRight = 0;
+    }
+
+    //Filter frames of an interleaved stereo buffer in place, ramping to the given distance over them
+    public void process(float[] buffer, int frames, DistanceTable table, float distance) {
+        if (frames <= 0) {
+            return;
+        }
+        table.lookup(distance, target);
+        float step = 1.0f / frames;
+        float gainStep = (target[0] - gain) * step;
+        float coefficientStep = (target[1] - coefficient) * step;
+        float g = gain, c = coefficient, l = left, r = right;
+        for (int i = 0; i < 2 * frames; i += 2) {
+            g += gainStep;
+            c += coefficientStep;
+            l += c * (buffer[i] - l);
+            r += c * (buffer[i + 1] - r);
+            buffer[i] = l * g;
+            buffer[i + 1] = r * g;
+        }
+        gain = target[0];
+        coefficient = target[1];
+        left = l;
+        right = r;
+    }
+
+    //The same in fixed point
+    public void process(int[] buffer, int frames, DistanceTable table, float distance) {
+        if (frames <= 0) {
+            return;
+        }
+        table.lookup(distance, target);
+        int bits = FixedPoint.UNIT_BITS;
+        int targetGain = FixedPoint.toFixed(target[0], bits);
+        int targetCoefficient = FixedPoint.toFixed(target[1], bits);
+        int gainStep = (targetGain - fixedGain) / frames;
+        int coefficientStep = (targetCoefficient - fixedCoefficient) / frames;
+        int g = fixedGain, c = fixedCoefficient, l = fixedLeft, r = fixedRight;
+        long half = 1L << (bits - 1);
+        for (int i = 0; i < 2 * frames; i += 2) {
+            g += gainStep;
+            c += coefficientStep;
+            l += (int) (((long) c * (buffer[i] - l) + half) >> bits);
+            r += (int) (((long) c * (buffer[i + 1] - r) + half) >> bits);
+            buffer[i] = (int) (((long) l * g + half) >> bits);
+            buffer[i + 1] = (int) (((long) r * g + half) >> bits);
+        }
+        fixedGain = targetGain;
+        fixedCoefficient = targetCoefficient;
+        fixedLeft = l;
+        fixedRight = r;
+    }
+}
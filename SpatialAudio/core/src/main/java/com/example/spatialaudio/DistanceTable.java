@@ -0,0 +1,55 @@
+package com.example.spatialaudio;
+
+/**
+ * Gains and low-pass coefficients for hearing a sound as near or far, worked out up front for evenly spaced
+ * distances so that placing a sound is a table lookup instead of a division and an exponential.
+ *
+ * Closer than the reference distance a sound is as recorded. Further away its gain falls as reference / distance
+ * (6dB quieter each time the distance doubles), and a one-pole low-pass takes the top off it, the way air absorbs
+ * high frequencies more than low ones: the cutoff falls exponentially from {@link #NEAR_CUTOFF} at the reference
+ * distance to {@link #FAR_CUTOFF} at the maximum, and stays there beyond it. The cutoff is exaggerated well beyond
+ * what air really does over a few meters, so that the change can be heard.
+ */
+public class DistanceTable {
+    public static final double NEAR_CUTOFF = 18000.0;
+    public static final double FAR_CUTOFF = 1500.0;
+    //The gain and the low-pass coefficient
+    public static final int COEFFICIENTS = 2;
+    private static final int ROWS = 256;
+
+    private final float maxDistance;
+    private final float rowsPerDistance;
+    private final float[] table = new float[ROWS * COEFFICIENTS];
+
+    //Distances in whatever unit the caller uses for them; maxDistance has to be more than referenceDistance
+    public DistanceTable(int sampleRate, float referenceDistance, float maxDistance) {
+        if (!(referenceDistance > 0) || !(maxDistance > referenceDistance)) {
+            throw new IllegalArgumentException("Reference distance " + referenceDistance + " and maximum " + maxDistance);
+        }
+        this.maxDistance = maxDistance;
+        rowsPerDistance = (ROWS - 1) / maxDistance;
+        for (int row = 0; row < ROWS; row++) {
+            double distance = Math.max(referenceDistance, row / (double) rowsPerDistance);
+            double far = (distance - referenceDistance) / (maxDistance - referenceDistance);
+            double cutoff = NEAR_CUTOFF * Math.pow(FAR_CUTOFF / NEAR_CUTOFF, far);
+            //Keep well under Nyquist at low sample rates
+            cutoff = Math.min(cutoff, 0.45 * sampleRate);
+            table[row * COEFFICIENTS] = (float) (referenceDistance / distance);
+            table[row * COEFFICIENTS + 1] = (float) (1 - Math.exp(-2 * Math.PI * cutoff / sampleRate));
+        }
+    }
+
+    /**
+     * The gain and low-pass coefficient for a distance, interpolated between the two nearest rows. Doesn't
+     * allocate.
+     */
+    public void lookup(float distance, float[] out) {
+        float position = Math.max(0.0f, Math.min(distance, maxDistance)) * rowsPerDistance;
+        int row = Math.min((int) position, ROWS - 2);
+        float fraction = position - row;
+        int a = row * COEFFICIENTS;
+        int b = a + COEFFICIENTS;
+        out[0] = table[a] + (table[b] - table[a]) * fraction;
+        out[1] = table[a + 1] + (table[b + 1] - table[a + 1]) * fraction;
+    }
+}
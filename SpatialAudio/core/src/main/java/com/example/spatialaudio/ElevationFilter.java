@@ -0,0 +1,176 @@
+package com.example.spatialaudio;
+
+/**
+ * Filters a voice with the {@link ElevationTable} coefficients for its elevation. The coefficients are looked up
+ * once per process() call, i.e. once per control tick of the voice, and ramped sample by sample from the last
+ * call's to the new ones, so a sound changing height glides instead of clicking. Ramping stays stable because the
+ * coefficients of stable biquads form a convex set, so every point along the way is stable too.
+ *
+ * Works on mono or interleaved stereo, with the same coefficients for both channels, in floating point or
+ * {@link FixedPoint} (a filter should only be used for one of them).
+ */
+public class ElevationFilter {
+    private final ElevationTable table;
+    //The coefficients at the end of the last block, and the ones to ramp to over the next
+    private final float[] current = new float[ElevationTable.COEFFICIENTS];
+    private final float[] target = new float[ElevationTable.COEFFICIENTS];
+    //The elevation target was looked up for, so a still sound isn't looked up again
+    private float elevation;
+    //x1, x2, y1, y2 for each biquad of each channel
+    private final float[] state = new float[2 * 2 * 4];
+    //The same for fixed point
+    private final int[] fixedCurrent = new int[ElevationTable.COEFFICIENTS];
+    private final int[] fixedTarget = new int[ElevationTable.COEFFICIENTS];
+    private final int[] fixedState = new int[2 * 2 * 4];
+
+    public ElevationFilter(ElevationTable table) {
+        this.table = table;
+        reset(0.0f);
+    }
+
+    //Jump straight to an elevation and forget the previous input, e.g. before starting a new sound
+    public void reset(float elevation) {
+        this.elevation = elevation;
+        table.lookup(elevation, target);
+        System.arraycopy(target, 0, current, 0, current.length);
+        setFixedTarget();
+        System.arraycopy(fixedTarget, 0, fixedCurrent, 0, fixedCurrent.length);
+        for (int i = 0; i < state.length; i++) {
+            state[i] = 0.0f;
+            fixedState[i] = 0;
+        }
+    }
+
+    private void setFixedTarget() {
+        for (int i = 0; i < target.length; i++) {
+            fixedTarget[i] = FixedPoint.toFixed(target[i], FixedPoint.COEFFICIENT_BITS);
+        }
+    }
+
+    //Set the elevation to ramp to over the next process() call
+    public void setElevation(float elevation) {
+        if (elevation != this.elevation) {
+            this.elevation = elevation;
+            table.lookup(elevation, target);
+            setFixedTarget();
+        }
+    }
+
+    //Filter frames of a mono (channels = 1) or interleaved stereo (channels = 2) buffer in place
+    public void process(float[] buffer, int offset, int frames, int channels) {
+        if (frames <= 0) {
+            return;
+        }
+        float[] c = current;
+        float step = 1.0f / frames;
+        //How much each coefficient moves per sample
+        float d0 = (target[0] - c[0]) * step, d1 = (target[1] - c[1]) * step, d2 = (target[2] - c[2]) * step;
+        float d3 = (target[3] - c[3]) * step, d4 = (target[4] - c[4]) * step;
+        float d5 = (target[5] - c[5]) * step, d6 = (target[6] - c[6]) * step, d7 = (target[7] - c[7]) * step;
+        float d8 = (target[8] - c[8]) * step, d9 = (target[9] - c[9]) * step;
+
+        for (int channel = 0; channel < channels; channel++) {
+            float b0 = c[0], b1 = c[1], b2 = c[2], a1 = c[3], a2 = c[4];
+            float s0 = c[5], s1 = c[6], s2 = c[7], t1 = c[8], t2 = c[9];
+            int base = channel * 8;
+            float x1 = state[base], x2 = state[base + 1], y1 = state[base + 2], y2 = state[base + 3];
+            float u1 = state[base + 4], u2 = state[base + 5], v1 = state[base + 6], v2 = state[base + 7];
+            int index = offset * channels + channel;
+            for (int i = 0; i < frames; i++) {
+                b0 += d0;
+                b1 += d1;
+                b2 += d2;
+                a1 += d3;
+                a2 += d4;
+                s0 += d5;
+                s1 += d6;
+                s2 += d7;
+                t1 += d8;
+                t2 += d9;
+                float x = buffer[index];
+                float y = b0 * x + b1 * x1 + b2 * x2 - a1 * y1 - a2 * y2;
+                x2 = x1;
+                x1 = x;
+                y2 = y1;
+                y1 = y;
+                float v = s0 * y + s1 * u1 + s2 * u2 - t1 * v1 - t2 * v2;
+                u2 = u1;
+                u1 = y;
+                v2 = v1;
+                v1 = v;
+                buffer[index] = v;
+                index += channels;
+            }
+            state[base] = x1;
+            state[base + 1] = x2;
+            state[base + 2] = y1;
+            state[base + 3] = y2;
+            state[base + 4] = u1;
+            state[base + 5] = u2;
+            state[base + 6] = v1;
+            state[base + 7] = v2;
+        }
+        System.arraycopy(target, 0, current, 0, current.length);
+    }
+
+    //The same in fixed point
+    public void process(int[] buffer, int offset, int frames, int channels) {
+        if (frames <= 0) {
+            return;
+        }
+        int[] c = fixedCurrent;
+        int[] target = fixedTarget;
+        int d0 = (target[0] - c[0]) / frames, d1 = (target[1] - c[1]) / frames, d2 = (target[2] - c[2]) / frames;
+        int d3 = (target[3] - c[3]) / frames, d4 = (target[4] - c[4]) / frames;
+        int d5 = (target[5] - c[5]) / frames, d6 = (target[6] - c[6]) / frames, d7 = (target[7] - c[7]) / frames;
+        int d8 = (target[8] - c[8]) / frames, d9 = (target[9] - c[9]) / frames;
+        int bits = FixedPoint.COEFFICIENT_BITS;
+        long half = 1L << (bits - 1);
+
+        for (int channel = 0; channel < channels; channel++) {
+            int b0 = c[0], b1 = c[1], b2 = c[2], a1 = c[3], a2 = c[4];
+            int s0 = c[5], s1 = c[6], s2 = c[7], t1 = c[8], t2 = c[9];
+            int base = channel * 8;
+            int[] state = fixedState;
+            int x1 = state[base], x2 = state[base + 1], y1 = state[base + 2], y2 = state[base + 3];
+            int u1 = state[base + 4], u2 = state[base + 5], v1 = state[base + 6], v2 = state[base + 7];
+            int index = offset * channels + channel;
+            for (int i = 0; i < frames; i++) {
+                b0 += d0;
+                b1 += d1;
+                b2 += d2;
+                a1 += d3;
+                a2 += d4;
+                s0 += d5;
+                s1 += d6;
+                s2 += d7;
+                t1 += d8;
+                t2 += d9;
+                int x = buffer[index];
+                int y = (int) (((long) b0 * x + (long) b1 * x1 + (long) b2 * x2
+                        - (long) a1 * y1 - (long) a2 * y2 + half) >> bits);
+                x2 = x1;
+                x1 = x;
+                y2 = y1;
+                y1 = y;
+                int v = (int) (((long) s0 * y + (long) s1 * u1 + (long) s2 * u2
+                        - (long) t1 * v1 - (long) t2 * v2 + half) >> bits);
+                u2 = u1;
+                u1 = y;
+                v2 = v1;
+                v1 = v;
+                buffer[index] = v;
+                index += channels;
+            }
+            state[base] = x1;
+            state[base + 1] = x2;
+            state[base + 2] = y1;
+            state[base + 3] = y2;
+            state[base + 4] = u1;
+            state[base + 5] = u2;
+            state[base + 6] = v1;
+            state[base + 7] = v2;
+        }
+        System.arraycopy(target, 0, c, 0, c.length);
+    }
+}
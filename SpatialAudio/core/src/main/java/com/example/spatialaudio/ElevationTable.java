@@ -0,0 +1,92 @@
+package com.example.spatialaudio;
+
+/**
+ * Filter coefficients for hearing a sound as above or below ear level, worked out once for every 5 degrees of
+ * elevation so that placing a sound is a table lookup instead of trigonometry.
+ *
+ * Each elevation gets two biquads, after the cues the outer ear puts on a sound: a notch that moves up from about
+ * 5kHz below ear level to 11kHz above it and gets shallower overhead, and a high shelf that brightens sounds from
+ * above and dulls sounds from below. It is a rough, generic model rather than a measured ear, but it is cheap
+ * and it lets one base sample be played at any height.
+ */
+public class ElevationTable {
+    public static final float MIN_ELEVATION = -90.0f;
+    public static final float MAX_ELEVATION = 90.0f;
+    public static final float STEP = 5.0f;
+    //Two biquads of b0, b1, b2, a1, a2 (a0 is normalised to 1)
+    public static final int COEFFICIENTS = 10;
+
+    private static final double NOTCH_CENTRE = 8000.0;
+    private static final double NOTCH_SPREAD_PER_DEGREE = 3000.0 / 45.0;
+    private static final double NOTCH_LOWEST = 5000.0;
+    private static final double NOTCH_HIGHEST = 11000.0;
+    private static final double NOTCH_Q = 2.0;
+    private static final double NOTCH_DEPTH_DB = -15.0;
+    //How much shallower the notch gets by the time the sound is overhead
+    private static final double NOTCH_OVERHEAD_RECOVERY_DB = 10.0;
+    private static final double SHELF_FREQUENCY = 8000.0;
+    private static final double SHELF_DB = 5.0;
+
+    private final int rows;
+    private final float[] table;
+
+    public ElevationTable(int sampleRate) {
+        rows = (int) ((MAX_ELEVATION - MIN_ELEVATION) / STEP) + 1;
+        table = new float[rows * COEFFICIENTS];
+        for (int row = 0; row < rows; row++) {
+            double elevation = MIN_ELEVATION + row * STEP;
+            double notchFrequency = Math.max(NOTCH_LOWEST, Math.min(NOTCH_HIGHEST,
+                    NOTCH_CENTRE + elevation * NOTCH_SPREAD_PER_DEGREE));
+            //Keep well under Nyquist at low sample rates
+            notchFrequency = Math.min(notchFrequency, 0.45 * sampleRate);
+            double notchDb = NOTCH_DEPTH_DB + NOTCH_OVERHEAD_RECOVERY_DB * Math.max(0.0, elevation) / 90.0;
+            double shelfDb = SHELF_DB * Math.sin(Math.toRadians(elevation));
+            peaking(notchFrequency, NOTCH_Q, notchDb, sampleRate, table, row * COEFFICIENTS);
+            highShelf(Math.min(SHELF_FREQUENCY, 0.45 * sampleRate), shelfDb, sampleRate, table, row * COEFFICIENTS + 5);
+        }
+    }
+
+    /**
+     * The coefficients for an elevation in degrees (positive is up), interpolated between the two nearest rows.
+     * Doesn't allocate.
+     */
+    public void lookup(float elevation, float[] out) {
+        float position = (Math.max(MIN_ELEVATION, Math.min(elevation, MAX_ELEVATION)) - MIN_ELEVATION) / STEP;
+        int row = Math.min((int) position, rows - 2);
+        float fraction = position - row;
+        int a = row * COEFFICIENTS;
+        int b = a + COEFFICIENTS;
+        for (int i = 0; i < COEFFICIENTS; i++) {
+            out[i] = table[a + i] + (table[b + i] - table[a + i]) * fraction;
+        }
+    }
+
+    //RBJ cookbook peaking EQ
+    private static void peaking(double frequency, double q, double gainDb, int sampleRate, float[] out, int offset) {
+        double a = Math.pow(10, gainDb / 40);
+        double w0 = 2 * Math.PI * frequency / sampleRate;
+        double alpha = Math.sin(w0) / (2 * q);
+        double cos = Math.cos(w0);
+        double a0 = 1 + alpha / a;
+        out[offset] = (float) ((1 + alpha * a) / a0);
+        out[offset + 1] = (float) (-2 * cos / a0);
+        out[offset + 2] = (float) ((1 - alpha * a) / a0);
+        out[offset + 3] = (float) (-2 * cos / a0);
+        out[offset + 4] = (float) ((1 - alpha / a) / a0);
+    }
+
+    //RBJ cookbook high shelf with a slope of 1
+    private static void highShelf(double frequency, double gainDb, int sampleRate, float[] out, int offset) {
+        double a = Math.pow(10, gainDb / 40);
+        double w0 = 2 * Math.PI * frequency / sampleRate;
+        double cos = Math.cos(w0);
+        double alpha = Math.sin(w0) / 2 * Math.sqrt(2);
+        double rootA = 2 * Math.sqrt(a) * alpha;
+        double a0 = (a + 1) - (a - 1) * cos + rootA;
+        out[offset] = (float) (a * ((a + 1) + (a - 1) * cos + rootA) / a0);
+        out[offset + 1] = (float) (-2 * a * ((a - 1) + (a + 1) * cos) / a0);
+        out[offset + 2] = (float) (a * ((a + 1) + (a - 1) * cos - rootA) / a0);
+        out[offset + 3] = (float) (2 * ((a - 1) - (a + 1) * cos) / a0);
+        out[offset + 4] = (float) (((a + 1) - (a - 1) * cos - rootA) / a0);
+    }
+}
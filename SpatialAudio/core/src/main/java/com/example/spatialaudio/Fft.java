@@ -0,0 +1,82 @@
+package com.example.spatialaudio;
+
+/**
+ * An in place radix-2 complex FFT of one fixed size. The twiddle factors and bit reversal table are worked out in
+ * the constructor, so transforming never allocates and can run on the audio thread.
+ */
+public class Fft {
+    private final int size;
+    private final float[] cos;
+    private final float[] sin;
+    private final int[] bitReverse;
+
+    //size must be a power of two
+    public Fft(int size) {
+        if (size < 2 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        }
+        this.size = size;
+        cos = new float[size / 2];
+        sin = new float[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            double phase = -2 * Math.PI * i / size;
+            cos[i] = (float) Math.cos(phase);
+            sin[i] = (float) Math.sin(phase);
+        }
+        bitReverse = new int[size];
+        int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    //Transform re + i*im in place
+    public void forward(float[] re, float[] im) {
+        transform(re, im, 1);
+    }
+
+    //Transform back in place, including the 1/size scaling, so inverse(forward(x)) == x
+    public void inverse(float[] re, float[] im) {
+        transform(re, im, -1);
+        float scale = 1.0f / size;
+        for (int i = 0; i < size; i++) {
+            re[i] *= scale;
+            im[i] *= scale;
+        }
+    }
+
+    private void transform(float[] re, float[] im, int direction) {
+        for (int i = 0; i < size; i++) {
+            int j = bitReverse[i];
+            if (j > i) {
+                float t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int half = 1; half < size; half <<= 1) {
+            int stride = size / (half << 1);
+            for (int start = 0; start < size; start += half << 1) {
+                for (int k = 0; k < half; k++) {
+                    float wr = cos[k * stride];
+                    float wi = direction * sin[k * stride];
+                    int a = start + k;
+                    int b = a + half;
+                    float tr = re[b] * wr - im[b] * wi;
+                    float ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+}
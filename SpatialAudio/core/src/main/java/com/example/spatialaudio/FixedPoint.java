@@ -0,0 +1,59 @@
+package com.example.spatialaudio;
+
+/**
+ * The number formats of the fixed-point render path (see {@link AudioEngine#setFixedPoint}), for CPUs that are slow
+ * at floating point, and helpers to convert to them.
+ *
+ * Samples are ints with {@link #SAMPLE_BITS} fractional bits: the clips' 16 bit PCM shifted up 5 bits, so rounding
+ * inside a voice stays well under one bit of the output, with 11 bits above it for headroom on the mix bus. Gains,
+ * taps and coefficients have as many fractional bits as their range allows, and a sample times one of them is
+ * worked out in a long. Everything that changes per sample is integer arithmetic, so the output is the same on
+ * every device; parameters worked out once per control tick (angles, table lookups) are still converted from
+ * floats.
+ */
+public final class FixedPoint {
+    public static final int SAMPLE_BITS = 20;
+    //Fade levels, filter taps and one-pole coefficients, which stay within -2 to 2
+    public static final int UNIT_BITS = 30;
+    //Biquad coefficients, which go past 2 for the elevation shelf at high sample rates
+    public static final int COEFFICIENT_BITS = 28;
+    //Channel gains, which are whatever the caller asks for
+    public static final int GAIN_BITS = 24;
+    //Delays in samples
+    public static final int DELAY_BITS = 16;
+
+    private static final int OUTPUT_SHIFT = SAMPLE_BITS - 15;
+
+    private FixedPoint() {
+    }
+
+    //A float in fixed point with the given number of fractional bits, rounded to nearest
+    public static int toFixed(float value, int bits) {
+        return (int) Math.round(value * (double) (1L << bits));
+    }
+
+    public static float toFloat(int value, int bits) {
+        return value / (float) (1L << bits);
+    }
+
+    //A product shifted back down by bits, rounded to nearest
+    public static int round(long value, int bits) {
+        return (int) ((value + (1L << (bits - 1))) >> bits);
+    }
+
+    //A sample as 16 bit PCM, rounded and clipped
+    public static short toShort(int sample) {
+        int value = (sample + (1 << (OUTPUT_SHIFT - 1))) >> OUTPUT_SHIFT;
+        if (value > Short.MAX_VALUE) {
+            return Short.MAX_VALUE;
+        } else if (value < Short.MIN_VALUE) {
+            return Short.MIN_VALUE;
+        }
+        return (short) value;
+    }
+
+    //16 bit PCM as a sample
+    public static int fromShort(short sample) {
+        return sample << OUTPUT_SHIFT;
+    }
+}
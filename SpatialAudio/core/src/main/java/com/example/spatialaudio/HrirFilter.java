@@ -0,0 +1,98 @@
+package com.example.spatialaudio;
+
+/**
+ * A left and right head related impulse response, cut into block sized partitions and transformed ready for a
+ * {@link BinauralConvolver} with the same block size. Building one allocates and does an FFT per partition, so do
+ * it ahead of time (e.g. when the HRIR set is loaded), not on the audio thread.
+ *
+ * Each partition holds the spectrum of left + i*right. Both responses are real, so one complex spectrum carries
+ * both ears and the convolver only needs one transform each way per block.
+ */
+public class HrirFilter {
+    final int blockSize;
+    final int partitions;
+    //Spectrum of partition p, fftSize bins each
+    final float[][] re;
+    final float[][] im;
+    private int length;
+
+    public HrirFilter(float[] left, float[] right, int blockSize) {
+        this(left, right, new Fft(2 * blockSize));
+    }
+
+    //Reuse an FFT of twice the block size when building a lot of filters
+    public HrirFilter(float[] left, float[] right, Fft fft) {
+        if (left.length != right.length) {
+            throw new IllegalArgumentException("Left and right HRIRs are different lengths: " + left.length + ", " + right.length);
+        }
+        int fftSize = fft.getSize();
+        this.blockSize = fftSize / 2;
+        this.length = left.length;
+        this.partitions = Math.max(1, (length + blockSize - 1) / blockSize);
+        re = new float[partitions][fftSize];
+        im = new float[partitions][fftSize];
+        for (int p = 0; p < partitions; p++) {
+            //Zero padded to the FFT size, so the circular convolution doesn't wrap into the half that is kept
+            int start = p * blockSize;
+            int count = Math.max(0, Math.min(blockSize, length - start));
+            System.arraycopy(left, start, re[p], 0, count);
+            System.arraycopy(right, start, im[p], 0, count);
+            fft.forward(re[p], im[p]);
+        }
+    }
+
+    //An empty (silent) filter to blend others into with interpolate()
+    public HrirFilter(int blockSize, int partitions) {
+        this.blockSize = blockSize;
+        this.partitions = partitions;
+        re = new float[partitions][2 * blockSize];
+        im = new float[partitions][2 * blockSize];
+    }
+
+    /**
+     * Set this filter to a weighted sum of some others with the same block size and partitions. The transform is
+     * linear, so this is the same as blending the impulse responses, without doing any FFTs. Doesn't allocate.
+     */
+    public void interpolate(HrirFilter[] sources, int[] indices, float[] weights, int count) {
+        int fftSize = 2 * blockSize;
+        length = 0;
+        for (int p = 0; p < partitions; p++) {
+            float[] outRe = re[p];
+            float[] outIm = im[p];
+            HrirFilter source = sources[indices[0]];
+            float weight = weights[0];
+            float[] inRe = source.re[p];
+            float[] inIm = source.im[p];
+            for (int k = 0; k < fftSize; k++) {
+                outRe[k] = inRe[k] * weight;
+                outIm[k] = inIm[k] * weight;
+            }
+            for (int n = 1; n < count; n++) {
+                source = sources[indices[n]];
+                weight = weights[n];
+                inRe = source.re[p];
+                inIm = source.im[p];
+                for (int k = 0; k < fftSize; k++) {
+                    outRe[k] += inRe[k] * weight;
+                    outIm[k] += inIm[k] * weight;
+                }
+            }
+        }
+        for (int n = 0; n < count; n++) {
+            length = Math.max(length, sources[indices[n]].length);
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    //The length of the impulse responses in samples
+    public int getLength() {
+        return length;
+    }
+}
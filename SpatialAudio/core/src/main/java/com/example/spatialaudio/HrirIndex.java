@@ -0,0 +1,259 @@
+package com.example.spatialaudio;
+
+/**
+ * Finds the three measured directions nearest to any direction, with barycentric weights for blending them, in
+ * constant time.
+ *
+ * The sphere is cut into an azimuth/elevation grid of buckets. When the index is built, each bucket gets the list of
+ * measurements that could be among the three nearest to any point inside it: those no further from the bucket's
+ * centre than its third nearest measurement plus twice the bucket's radius. A lookup only looks at one bucket's
+ * short list, never the whole set, and doesn't allocate, so it is cheap enough for every voice on every control
+ * tick.
+ */
+public class HrirIndex {
+    public static final float DEFAULT_BUCKET_DEGREES = 5.0f;
+
+    //What a lookup returns: up to three measurements and weights that add up to 1
+    public static class Neighbours {
+        public final int[] indices = new int[3];
+        public final float[] weights = new float[3];
+        public int count;
+    }
+
+    //Below this the three nearest are taken to be in a line (e.g. a set measured only at ear level)
+    private static final double FLAT_TRIANGLE = 1e-6;
+
+    //Unit vectors of the measured directions: x to the front, y to the left, z up
+    private final float[] x;
+    private final float[] y;
+    private final float[] z;
+
+    private final float inverseBucketDegrees;
+    private final int azimuthBuckets;
+    private final int elevationBuckets;
+    //Bucket b's candidates are candidates[bucketStart[b]] to candidates[bucketStart[b + 1] - 1]
+    private final int[] bucketStart;
+    private final int[] candidates;
+
+    //Index measurements at the given azimuths and elevations (degrees)
+    public HrirIndex(float[] azimuths, float[] elevations, float bucketDegrees) {
+        int count = azimuths.length;
+        x = new float[count];
+        y = new float[count];
+        z = new float[count];
+        double[] direction = new double[3];
+        for (int i = 0; i < count; i++) {
+            toVector(azimuths[i], elevations[i], direction);
+            x[i] = (float) direction[0];
+            y[i] = (float) direction[1];
+            z[i] = (float) direction[2];
+        }
+
+        inverseBucketDegrees = 1.0f / bucketDegrees;
+        azimuthBuckets = (int) Math.ceil(360.0 / bucketDegrees);
+        elevationBuckets = (int) Math.ceil(180.0 / bucketDegrees);
+        int buckets = azimuthBuckets * elevationBuckets;
+        bucketStart = new int[buckets + 1];
+
+        //Work out every bucket's candidates, then pack the lists into one array
+        int[][] lists = new int[buckets][];
+        int total = 0;
+        double[] dots = new double[count];
+        double[] centre = new double[3];
+        for (int row = 0; row < elevationBuckets; row++) {
+            double bottom = -90.0 + row * bucketDegrees;
+            double top = Math.min(90.0, bottom + bucketDegrees);
+            for (int column = 0; column < azimuthBuckets; column++) {
+                double left = -180.0 + column * bucketDegrees;
+                double right = left + bucketDegrees;
+                toVector((left + right) / 2, (bottom + top) / 2, centre);
+                double radius = bucketRadius(centre, left, right, bottom, top);
+                lists[row * azimuthBuckets + column] = nearCandidates(centre, radius, dots);
+                total += lists[row * azimuthBuckets + column].length;
+            }
+        }
+        candidates = new int[total];
+        int next = 0;
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b] = next;
+            System.arraycopy(lists[b], 0, candidates, next, lists[b].length);
+            next += lists[b].length;
+        }
+        bucketStart[buckets] = next;
+    }
+
+    public int getCount() {
+        return x.length;
+    }
+
+    /**
+     * Find the measurements to blend for a direction: azimuth in degrees with positive to the left, elevation in
+     * degrees with positive up.
+     */
+    public void lookup(float azimuth, float elevation, Neighbours out) {
+        double azimuthRadians = Math.toRadians(azimuth);
+        double elevationRadians = Math.toRadians(elevation);
+        double cosElevation = Math.cos(elevationRadians);
+        float qx = (float) (cosElevation * Math.cos(azimuthRadians));
+        float qy = (float) (cosElevation * Math.sin(azimuthRadians));
+        float qz = (float) Math.sin(elevationRadians);
+
+        //Keep the three candidates with the largest dot product, i.e. the smallest angle
+        int first = -1, second = -1, third = -1;
+        float firstDot = -2, secondDot = -2, thirdDot = -2;
+        int bucket = bucketOf(azimuth, elevation);
+        for (int c = bucketStart[bucket]; c < bucketStart[bucket + 1]; c++) {
+            int m = candidates[c];
+            float dot = qx * x[m] + qy * y[m] + qz * z[m];
+            if (dot > firstDot) {
+                third = second;
+                thirdDot = secondDot;
+                second = first;
+                secondDot = firstDot;
+                first = m;
+                firstDot = dot;
+            } else if (dot > secondDot) {
+                third = second;
+                thirdDot = secondDot;
+                second = m;
+                secondDot = dot;
+            } else if (dot > thirdDot) {
+                third = m;
+                thirdDot = dot;
+            }
+        }
+
+        if (third >= 0 && barycentric(first, second, third, qx, qy, qz, out)) {
+            return;
+        }
+        //Fewer than three, or they are in a line: blend the nearest two by how close each is
+        if (second < 0) {
+            out.count = 1;
+            out.indices[0] = first;
+            out.weights[0] = 1.0f;
+            return;
+        }
+        float firstAngle = (float) Math.acos(Math.min(1.0f, firstDot));
+        float secondAngle = (float) Math.acos(Math.min(1.0f, secondDot));
+        float span = firstAngle + secondAngle;
+        out.count = 2;
+        out.indices[0] = first;
+        out.indices[1] = second;
+        out.weights[0] = span > 0 ? secondAngle / span : 1.0f;
+        out.weights[1] = 1.0f - out.weights[0];
+    }
+
+    //Solve q = a*v1 + b*v2 + c*v3, clamp negative weights to 0 and normalise. False if the triangle is flat.
+    private boolean barycentric(int i1, int i2, int i3, float qx, float qy, float qz, Neighbours out) {
+        double det = triple(x[i1], y[i1], z[i1], x[i2], y[i2], z[i2], x[i3], y[i3], z[i3]);
+        if (Math.abs(det) < FLAT_TRIANGLE) {
+            return false;
+        }
+        double a = triple(qx, qy, qz, x[i2], y[i2], z[i2], x[i3], y[i3], z[i3]) / det;
+        double b = triple(x[i1], y[i1], z[i1], qx, qy, qz, x[i3], y[i3], z[i3]) / det;
+        double c = triple(x[i1], y[i1], z[i1], x[i2], y[i2], z[i2], qx, qy, qz) / det;
+        a = Math.max(0, a);
+        b = Math.max(0, b);
+        c = Math.max(0, c);
+        double sum = a + b + c;
+        if (sum <= 0) {
+            return false;
+        }
+        out.count = 3;
+        out.indices[0] = i1;
+        out.indices[1] = i2;
+        out.indices[2] = i3;
+        out.weights[0] = (float) (a / sum);
+        out.weights[1] = (float) (b / sum);
+        out.weights[2] = (float) (c / sum);
+        return true;
+    }
+
+    //u . (v x w)
+    private static double triple(double ux, double uy, double uz, double vx, double vy, double vz,
+                                 double wx, double wy, double wz) {
+        return ux * (vy * wz - vz * wy) + uy * (vz * wx - vx * wz) + uz * (vx * wy - vy * wx);
+    }
+
+    private int bucketOf(float azimuth, float elevation) {
+        //Wrap the azimuth into -180 to 180 first
+        float wrapped = azimuth - 360.0f * (float) Math.floor((azimuth + 180.0f) / 360.0f);
+        int column = (int) ((wrapped + 180.0f) * inverseBucketDegrees);
+        int row = (int) ((elevation + 90.0f) * inverseBucketDegrees);
+        column = Math.max(0, Math.min(column, azimuthBuckets - 1));
+        row = Math.max(0, Math.min(row, elevationBuckets - 1));
+        return row * azimuthBuckets + column;
+    }
+
+    //The furthest any point of a bucket can be from its centre, in radians, checked at the corners and edge middles
+    private static double bucketRadius(double[] centre, double left, double right, double bottom, double top) {
+        double[] point = new double[3];
+        double radius = 0;
+        double[] azimuths = {left, (left + right) / 2, right};
+        double[] elevations = {bottom, (bottom + top) / 2, top};
+        for (double azimuth : azimuths) {
+            for (double elevation : elevations) {
+                toVector(azimuth, elevation, point);
+                radius = Math.max(radius, angleBetween(centre, point));
+            }
+        }
+        //A little extra for the edges bulging between the points checked
+        return radius * 1.05 + 1e-4;
+    }
+
+    //Every measurement that could be one of the three nearest to a point within radius of the centre
+    private int[] nearCandidates(double[] centre, double radius, double[] dots) {
+        int count = x.length;
+        if (count <= 3) {
+            int[] all = new int[count];
+            for (int i = 0; i < count; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        double d1 = -2, d2 = -2, d3 = -2;
+        for (int i = 0; i < count; i++) {
+            double dot = centre[0] * x[i] + centre[1] * y[i] + centre[2] * z[i];
+            dots[i] = dot;
+            if (dot > d1) {
+                d3 = d2;
+                d2 = d1;
+                d1 = dot;
+            } else if (dot > d2) {
+                d3 = d2;
+                d2 = dot;
+            } else if (dot > d3) {
+                d3 = dot;
+            }
+        }
+        double limit = Math.acos(Math.max(-1, Math.min(1, d3))) + 2 * radius;
+        double minDot = limit >= Math.PI ? -2 : Math.cos(limit);
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            if (dots[i] >= minDot) {
+                found++;
+            }
+        }
+        int[] list = new int[found];
+        found = 0;
+        for (int i = 0; i < count; i++) {
+            if (dots[i] >= minDot) {
+                list[found++] = i;
+            }
+        }
+        return list;
+    }
+
+    private static double angleBetween(double[] a, double[] b) {
+        double dot = a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+        return Math.acos(Math.max(-1, Math.min(1, dot)));
+    }
+
+    private static void toVector(double azimuthDegrees, double elevationDegrees, double[] out) {
+        double azimuth = Math.toRadians(azimuthDegrees);
+        double elevation = Math.toRadians(elevationDegrees);
+        out[0] = Math.cos(elevation) * Math.cos(azimuth);
+        out[1] = Math.cos(elevation) * Math.sin(azimuth);
+        out[2] = Math.sin(elevation);
+    }
+}
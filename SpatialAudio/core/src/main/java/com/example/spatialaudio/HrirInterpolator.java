@@ -0,0 +1,35 @@
+package com.example.spatialaudio;
+
+/**
+ * Blends the measured HRIRs nearest to a direction into a filter for a {@link BinauralConvolver}. Meant to be
+ * called at control rate (at most once per block), not per sample: a call is one {@link HrirIndex} lookup and a
+ * weighted sum of three spectra.
+ *
+ * Each voice needs its own interpolator. It writes into two filters in turn, so the filter it returns must have
+ * been taken up by the convolver (see {@link BinauralConvolver#isFilterPending()}) before it is called again.
+ */
+public class HrirInterpolator {
+    private final HrirIndex index;
+    private final HrirFilter[] measurements;
+    private final HrirIndex.Neighbours neighbours = new HrirIndex.Neighbours();
+    private final HrirFilter[] targets = new HrirFilter[2];
+    private int next;
+
+    //measurements are the set's filters in index order, e.g. from HrirSet.createFilters()
+    public HrirInterpolator(HrirIndex index, HrirFilter[] measurements) {
+        this.index = index;
+        this.measurements = measurements;
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = new HrirFilter(measurements[0].getBlockSize(), measurements[0].getPartitions());
+        }
+    }
+
+    //The filter for a direction: azimuth in degrees with positive to the left, elevation in degrees with positive up
+    public HrirFilter interpolate(float azimuth, float elevation) {
+        index.lookup(azimuth, elevation, neighbours);
+        HrirFilter target = targets[next];
+        next ^= 1;
+        target.interpolate(measurements, neighbours.indices, neighbours.weights, neighbours.count);
+        return target;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.spatialaudio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * A set of measured head related impulse responses in one file, loaded with a single memory map. Everything is
+ * little endian:
+ *
+ * <pre>
+ * header:  "HRIR", version, sample rate, measurement count, taps per ear, scale (float), 2 reserved ints
+ * index:   for each measurement: azimuth (float), elevation (float)
+ * data:    for each measurement: the left ear's taps then the right ear's, 16 bit, times scale
+ * </pre>
+ *
+ * Azimuth is in degrees with positive to the left, like the angles everywhere else, and elevation is in degrees with
+ * positive up. Written by {@link HrirSetWriter}.
+ */
+public class HrirSet {
+    static final int MAGIC = 0x52495248; //"HRIR" read as a little endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int ENTRY_BYTES = 8;
+
+    private final ByteBuffer buffer;
+    private final int sampleRate;
+    private final int count;
+    private final int length;
+    private final float scale;
+    private final int dataStart;
+
+    private HrirSet(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an HRIR set");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported HRIR set version " + buffer.getInt(4));
+        }
+        sampleRate = buffer.getInt(8);
+        count = buffer.getInt(12);
+        length = buffer.getInt(16);
+        scale = buffer.getFloat(20);
+        dataStart = HEADER_BYTES + count * ENTRY_BYTES;
+        if (buffer.capacity() < dataStart + count * length * 4) {
+            throw new IOException("HRIR set is truncated");
+        }
+    }
+
+    //Use a set that is already in memory (or mapped)
+    public static HrirSet wrap(ByteBuffer buffer) throws IOException {
+        return new HrirSet(buffer.slice());
+    }
+
+    //Memory map a set file
+    public static HrirSet map(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            return map(channel, 0, channel.size());
+        } finally {
+            //The mapping stays valid after the file is closed
+            in.close();
+        }
+    }
+
+    //Memory map a set stored in part of a file (e.g. an uncompressed asset inside an APK)
+    public static HrirSet map(FileChannel channel, long position, long size) throws IOException {
+        return new HrirSet(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    //The number of directions measured
+    public int getCount() {
+        return count;
+    }
+
+    //Taps per ear
+    public int getLength() {
+        return length;
+    }
+
+    private int entry(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Measurement " + index + " of " + count);
+        }
+        return HEADER_BYTES + index * ENTRY_BYTES;
+    }
+
+    public float getAzimuth(int index) {
+        return buffer.getFloat(entry(index));
+    }
+
+    public float getElevation(int index) {
+        return buffer.getFloat(entry(index) + 4);
+    }
+
+    //Decode a measurement's left ear taps into out, which needs room for getLength() taps
+    public void getLeft(int index, float[] out) {
+        decode(dataStart + index * length * 4, out);
+    }
+
+    public void getRight(int index, float[] out) {
+        decode(dataStart + index * length * 4 + length * 2, out);
+    }
+
+    private void decode(int offset, float[] out) {
+        for (int i = 0; i < length; i++) {
+            out[i] = buffer.getShort(offset + 2 * i) * scale;
+        }
+    }
+
+    //Transform every measurement for convolvers with the given block size. Allocates, so do it while loading.
+    public HrirFilter[] createFilters(int blockSize) {
+        Fft fft = new Fft(2 * blockSize);
+        float[] left = new float[length];
+        float[] right = new float[length];
+        HrirFilter[] filters = new HrirFilter[count];
+        for (int i = 0; i < count; i++) {
+            getLeft(i, left);
+            getRight(i, right);
+            filters[i] = new HrirFilter(left, right, fft);
+        }
+        return filters;
+    }
+
+    //Build the lookup from directions to the nearest measurements
+    public HrirIndex createIndex() {
+        float[] azimuths = new float[count];
+        float[] elevations = new float[count];
+        for (int i = 0; i < count; i++) {
+            azimuths[i] = getAzimuth(i);
+            elevations[i] = getElevation(i);
+        }
+        return new HrirIndex(azimuths, elevations, HrirIndex.DEFAULT_BUCKET_DEGREES);
+    }
+}
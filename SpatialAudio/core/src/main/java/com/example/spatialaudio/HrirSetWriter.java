@@ -0,0 +1,78 @@
+package com.example.spatialaudio;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes an {@link HrirSet} file. The taps are stored as 16 bit, scaled so the loudest tap in the set uses the
+ * full range.
+ */
+public class HrirSetWriter {
+    private HrirSetWriter() {
+    }
+
+    //Write a set. Every left and right response must be the same length.
+    public static void write(File file, int sampleRate, float[] azimuths, float[] elevations,
+                             float[][] left, float[][] right) throws IOException {
+        ByteBuffer buffer = pack(sampleRate, azimuths, elevations, left, right);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    //Build the set in memory
+    public static ByteBuffer pack(int sampleRate, float[] azimuths, float[] elevations, float[][] left, float[][] right) {
+        int count = azimuths.length;
+        if (elevations.length != count || left.length != count || right.length != count || count == 0) {
+            throw new IllegalArgumentException("Need an azimuth, elevation and left and right response for each measurement");
+        }
+        int length = left[0].length;
+        float peak = 0.0f;
+        for (int i = 0; i < count; i++) {
+            if (left[i].length != length || right[i].length != length) {
+                throw new IllegalArgumentException("Measurement " + i + " is not " + length + " taps long");
+            }
+            for (int t = 0; t < length; t++) {
+                peak = Math.max(peak, Math.max(Math.abs(left[i][t]), Math.abs(right[i][t])));
+            }
+        }
+        float scale = peak > 0.0f ? peak / 32767.0f : 1.0f;
+
+        int size = HrirSet.HEADER_BYTES + count * HrirSet.ENTRY_BYTES + count * length * 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(HrirSet.MAGIC);
+        buffer.putInt(HrirSet.VERSION);
+        buffer.putInt(sampleRate);
+        buffer.putInt(count);
+        buffer.putInt(length);
+        buffer.putFloat(scale);
+        buffer.putInt(0);
+        buffer.putInt(0);
+        for (int i = 0; i < count; i++) {
+            buffer.putFloat(azimuths[i]);
+            buffer.putFloat(elevations[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            putTaps(buffer, left[i], scale);
+            putTaps(buffer, right[i], scale);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void putTaps(ByteBuffer buffer, float[] taps, float scale) {
+        for (float tap : taps) {
+            buffer.putShort((short) Math.round(tap / scale));
+        }
+    }
+}
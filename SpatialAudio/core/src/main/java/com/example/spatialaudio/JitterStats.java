@@ -0,0 +1,62 @@
+package com.example.spatialaudio;
+
+/**
+ * Keeps track of how far the intervals between beats were from the intervals they should have been.
+ * Recording is cheap and never allocates; {@link #snapshot()} copies the figures out for another thread.
+ */
+public class JitterStats {
+    private long count;
+    private double sumError;
+    private double sumSquaredError;
+    private double maxError;
+
+    //Record one interval, both in milliseconds
+    public synchronized void record(double intendedMillis, double actualMillis) {
+        double error = Math.abs(actualMillis - intendedMillis);
+        count++;
+        sumError += error;
+        sumSquaredError += error * error;
+        if (error > maxError) {
+            maxError = error;
+        }
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        sumError = 0;
+        sumSquaredError = 0;
+        maxError = 0;
+    }
+
+    //A copy of the figures so far
+    public synchronized JitterStats snapshot() {
+        JitterStats copy = new JitterStats();
+        copy.count = count;
+        copy.sumError = sumError;
+        copy.sumSquaredError = sumSquaredError;
+        copy.maxError = maxError;
+        return copy;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMeanErrorMillis() {
+        return count == 0 ? 0 : sumError / count;
+    }
+
+    public synchronized double getRmsErrorMillis() {
+        return count == 0 ? 0 : Math.sqrt(sumSquaredError / count);
+    }
+
+    public synchronized double getMaxErrorMillis() {
+        return maxError;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d intervals, mean error %.3fms, rms %.3fms, max %.3fms",
+                count, getMeanErrorMillis(), getRmsErrorMillis(), maxError);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.spatialaudio;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A histogram of latencies with a fixed set of buckets, so recording never allocates and takes the same time
+ * however many values there are. Buckets are exact below 16us and then each power of two is split into 8, so any
+ * value is known to within about 6%, up to {@link #MAX_MICROS} (anything longer goes in the last bucket).
+ * {@link #snapshot()} copies the figures out for another thread.
+ */
+public class LatencyHistogram {
+    //Each power of two is split into HALF buckets
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int HALF = SUB / 2;
+    public static final long MAX_MICROS = 1L << 24;
+    private static final int BUCKETS = bucketFor(MAX_MICROS) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sumMicros;
+    private long maxMicros;
+
+    //Record the time from start to end, both from System.nanoTime()
+    public void record(long startNanos, long endNanos) {
+        recordMicros((endNanos - startNanos) / 1000);
+    }
+
+    public synchronized void recordMicros(long micros) {
+        micros = Math.max(0, Math.min(micros, MAX_MICROS));
+        counts[bucketFor(micros)]++;
+        count++;
+        sumMicros += micros;
+        if (micros > maxMicros) {
+            maxMicros = micros;
+        }
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        sumMicros = 0;
+        maxMicros = 0;
+    }
+
+    //A copy of the figures so far
+    public synchronized LatencyHistogram snapshot() {
+        LatencyHistogram copy = new LatencyHistogram();
+        System.arraycopy(counts, 0, copy.counts, 0, BUCKETS);
+        copy.count = count;
+        copy.sumMicros = sumMicros;
+        copy.maxMicros = maxMicros;
+        return copy;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMeanMicros() {
+        return count == 0 ? 0 : (double) sumMicros / count;
+    }
+
+    public synchronized long getMaxMicros() {
+        return maxMicros;
+    }
+
+    //The latency that the given fraction (0 to 1) of the values were at or under, to the middle of its bucket
+    public synchronized long getPercentileMicros(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long wanted = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= wanted) {
+                return Math.min((lowestFor(i) + lowestFor(i + 1) - 1) / 2, maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    //Write every non empty bucket as its lowest value in microseconds and its count, one per line
+    public synchronized void writeTo(Writer out) throws IOException {
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] != 0) {
+                out.write(lowestFor(i) + " " + counts[i] + "\n");
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d values, mean %.2fms, median %.2fms, 90%% %.2fms, 99%% %.2fms, max %.2fms",
+                count, getMeanMicros() / 1000.0, getPercentileMicros(0.5) / 1000.0, getPercentileMicros(0.9) / 1000.0,
+                getPercentileMicros(0.99) / 1000.0, maxMicros / 1000.0);
+    }
+
+    private static int bucketFor(long micros) {
+        if (micros < SUB) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - (SUB_BITS - 1);
+        return shift * HALF + (int) (micros >> shift);
+    }
+
+    //The smallest value that goes in a bucket
+    private static long lowestFor(int bucket) {
+        if (bucket < SUB) {
+            return bucket;
+        }
+        int shift = bucket / HALF - 1;
+        return (long) (bucket - shift * HALF) << shift;
+    }
+}
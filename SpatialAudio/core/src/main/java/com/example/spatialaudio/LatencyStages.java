@@ -0,0 +1,88 @@
+package com.example.spatialaudio;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * One {@link LatencyHistogram} for each stage of a pipeline, e.g. from a camera frame arriving to the sound for it
+ * being written out. Stages are numbered in the order they were named. Recording is safe from any thread and
+ * never allocates.
+ */
+public class LatencyStages {
+    private final String[] names;
+    private final LatencyHistogram[] histograms;
+
+    public LatencyStages(String... names) {
+        this.names = names.clone();
+        histograms = new LatencyHistogram[names.length];
+        for (int i = 0; i < names.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public int getStageCount() {
+        return names.length;
+    }
+
+    public String getName(int stage) {
+        return names[stage];
+    }
+
+    public LatencyHistogram get(int stage) {
+        return histograms[stage];
+    }
+
+    //Record a stage that took from startNanos to endNanos, both from System.nanoTime()
+    public void record(int stage, long startNanos, long endNanos) {
+        histograms[stage].record(startNanos, endNanos);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Write every stage's summary and buckets, followed by any other histograms passed in (e.g. the audio engine's),
+     * named by extraNames.
+     */
+    public void writeTo(Writer out, String[] extraNames, LatencyHistogram[] extras) throws IOException {
+        for (int i = 0; i < names.length; i++) {
+            writeHistogram(out, names[i], histograms[i]);
+        }
+        for (int i = 0; i < extras.length; i++) {
+            writeHistogram(out, extraNames[i], extras[i]);
+        }
+    }
+
+    //Write everything to a file, replacing it
+    public void writeTo(File file, String[] extraNames, LatencyHistogram[] extras) throws IOException {
+        Writer out = new FileWriter(file);
+        try {
+            writeTo(out, extraNames, extras);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeHistogram(Writer out, String name, LatencyHistogram histogram) throws IOException {
+        out.write("# " + name + ": " + histogram + "\n");
+        histogram.writeTo(out);
+        out.write("\n");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+            builder.append(names[i]).append(": ").append(histograms[i]);
+        }
+        return builder.toString();
+    }
+}
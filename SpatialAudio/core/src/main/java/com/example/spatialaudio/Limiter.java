@@ -0,0 +1,70 @@
+package com.example.spatialaudio;
+
+/**
+ * A peak limiter for the mix bus, so several voices adding up turn down smoothly instead of clipping. The gain
+ * drops at once when the peak goes over the threshold and recovers over the release time. Both channels get the
+ * same gain so the stereo image doesn't shift.
+ *
+ * The mix bus can be {@link FixedPoint} too. Only while it is limiting does that cost a division per sample.
+ */
+public class Limiter {
+    //Just under full scale, about -1dB
+    public static final float DEFAULT_THRESHOLD = 0.9f;
+    public static final float DEFAULT_RELEASE_MILLIS = 100.0f;
+
+    private final float threshold;
+    //How much of the envelope is left after one sample of release
+    private final float release;
+    private float envelope;
+    //The same for fixed point
+    private final int fixedThreshold;
+    private final int fixedRelease;
+
+    public Limiter(int sampleRate) {
+        this(sampleRate, DEFAULT_THRESHOLD, DEFAULT_RELEASE_MILLIS);
+    }
+
+    public Limiter(int sampleRate, float threshold, float releaseMillis) {
+        this.threshold = threshold;
+        this.release = (float) Math.exp(-1.0 / (releaseMillis / 1000.0 * sampleRate));
+        fixedThreshold = FixedPoint.toFixed(threshold, FixedPoint.SAMPLE_BITS);
+        fixedRelease = FixedPoint.toFixed(release, FixedPoint.UNIT_BITS);
+    }
+
+    //Limit interleaved stereo in place
+    public void process(float[] stereo, int frames) {
+        float env = envelope;
+        for (int i = 0; i < frames * 2; i += 2) {
+            float peak = Math.max(Math.abs(stereo[i]), Math.abs(stereo[i + 1]));
+            env = peak > env ? peak : peak + (env - peak) * release;
+            if (env > threshold) {
+                float gain = threshold / env;
+                stereo[i] *= gain;
+                stereo[i + 1] *= gain;
+            }
+        }
+        envelope = env;
+    }
+
+    //The same in fixed point. The envelope carries over between the two, so the bus can switch at any block.
+    public void process(int[] stereo, int frames) {
+        int env = FixedPoint.toFixed(envelope, FixedPoint.SAMPLE_BITS);
+        int bits = FixedPoint.UNIT_BITS;
+        long half = 1L << (bits - 1);
+        for (int i = 0; i < frames * 2; i += 2) {
+            int peak = Math.max(Math.abs(stereo[i]), Math.abs(stereo[i + 1]));
+            env = peak > env ? peak : peak + (int) (((long) (env - peak) * fixedRelease + half) >> bits);
+            if (env > fixedThreshold) {
+                long gain = ((long) fixedThreshold << bits) / env;
+                stereo[i] = (int) ((stereo[i] * gain + half) >> bits);
+                stereo[i + 1] = (int) ((stereo[i + 1] * gain + half) >> bits);
+            }
+        }
+        envelope = FixedPoint.toFloat(env, FixedPoint.SAMPLE_BITS);
+    }
+
+    //Forget the current gain reduction
+    public void reset() {
+        envelope = 0.0f;
+    }
+}
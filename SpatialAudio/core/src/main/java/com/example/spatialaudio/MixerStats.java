@@ -0,0 +1,173 @@
+package com.example.spatialaudio;
+
+/**
+ * What mixing costs on the render thread: the time spent on the voices, per active voice, and on the bus (limiter
+ * and conversion), both in microseconds per buffer and as a share of how long the buffer lasts. The cost per voice
+ * is what each extra voice adds, so it says how many voices the device can afford. Also how the repeating
+ * sources' beeps were rendered by the {@link VoiceScheduler}: fully, only panned, or skipped, and how many voices
+ * were taken over for another sound. Recording is cheap and never allocates; {@link #snapshot()} copies the
+ * figures out for another thread.
+ */
+public class MixerStats {
+    private long blocks;
+    private long voiceBlocks;
+    private long voiceNanos;
+    private long busNanos;
+    private long frames;
+    private int maxVoices;
+    private long fullBeats;
+    private long pannedBeats;
+    private long droppedBeats;
+    private long steals;
+    private long droppedVoices;
+    //The scheduler's limits after the last buffer
+    private int fullLimit;
+    private int panLimit;
+    private final int sampleRate;
+
+    public MixerStats(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    //Record one buffer: how many voices were playing, and how long they and the bus took
+    synchronized void record(int activeVoices, long voiceNanos, long busNanos, int frames) {
+        blocks++;
+        voiceBlocks += activeVoices;
+        this.voiceNanos += voiceNanos;
+        this.busNanos += busNanos;
+        this.frames += frames;
+        if (activeVoices > maxVoices) {
+            maxVoices = activeVoices;
+        }
+    }
+
+    //Record how a beep was rendered, as a VoiceScheduler tier
+    synchronized void recordBeat(int tier) {
+        if (tier == VoiceScheduler.FULL) {
+            fullBeats++;
+        } else if (tier == VoiceScheduler.PANNED) {
+            pannedBeats++;
+        } else {
+            droppedBeats++;
+        }
+    }
+
+    //Record a voice being faded out to make room for another sound
+    synchronized void recordSteal() {
+        steals++;
+    }
+
+    //Record a sound that didn't get a voice because every voice was more important
+    synchronized void recordVoiceDropped() {
+        droppedVoices++;
+    }
+
+    synchronized void recordLimits(int fullLimit, int panLimit) {
+        this.fullLimit = fullLimit;
+        this.panLimit = panLimit;
+    }
+
+    public synchronized void reset() {
+        blocks = 0;
+        voiceBlocks = 0;
+        voiceNanos = 0;
+        busNanos = 0;
+        frames = 0;
+        maxVoices = 0;
+        fullBeats = 0;
+        pannedBeats = 0;
+        droppedBeats = 0;
+        steals = 0;
+        droppedVoices = 0;
+    }
+
+    //A copy of the figures so far
+    public synchronized MixerStats snapshot() {
+        MixerStats copy = new MixerStats(sampleRate);
+        copy.blocks = blocks;
+        copy.voiceBlocks = voiceBlocks;
+        copy.voiceNanos = voiceNanos;
+        copy.busNanos = busNanos;
+        copy.frames = frames;
+        copy.maxVoices = maxVoices;
+        copy.fullBeats = fullBeats;
+        copy.pannedBeats = pannedBeats;
+        copy.droppedBeats = droppedBeats;
+        copy.steals = steals;
+        copy.droppedVoices = droppedVoices;
+        copy.fullLimit = fullLimit;
+        copy.panLimit = panLimit;
+        return copy;
+    }
+
+    public synchronized long getBlocks() {
+        return blocks;
+    }
+
+    public synchronized double getMeanVoices() {
+        return blocks == 0 ? 0 : (double) voiceBlocks / blocks;
+    }
+
+    public synchronized int getMaxVoices() {
+        return maxVoices;
+    }
+
+    //The time one voice takes to mix one buffer
+    public synchronized double getMicrosPerVoice() {
+        return voiceBlocks == 0 ? 0 : voiceNanos / 1000.0 / voiceBlocks;
+    }
+
+    //The time the bus takes per buffer, whatever the number of voices
+    public synchronized double getBusMicros() {
+        return blocks == 0 ? 0 : busNanos / 1000.0 / blocks;
+    }
+
+    //How much of the time a buffer lasts one voice uses, in percent
+    public synchronized double getVoiceLoadPercent() {
+        if (voiceBlocks == 0 || frames == 0) {
+            return 0;
+        }
+        double bufferMicros = frames * 1000000.0 / sampleRate / blocks;
+        return 100.0 * getMicrosPerVoice() / bufferMicros;
+    }
+
+    //Beeps from repeating sources that were rendered fully, only panned, and skipped
+    public synchronized long getFullBeats() {
+        return fullBeats;
+    }
+
+    public synchronized long getPannedBeats() {
+        return pannedBeats;
+    }
+
+    public synchronized long getDroppedBeats() {
+        return droppedBeats;
+    }
+
+    //Voices faded out to make room for another sound
+    public synchronized long getSteals() {
+        return steals;
+    }
+
+    //Sounds that didn't get a voice at all
+    public synchronized long getDroppedVoices() {
+        return droppedVoices;
+    }
+
+    //How many sources currently get full rendering, and how many more are panned
+    public synchronized int getFullLimit() {
+        return fullLimit;
+    }
+
+    public synchronized int getPanLimit() {
+        return panLimit;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d buffers, %.1f voices on average (max %d), %.1fus per voice per buffer (%.2f%% of real time), bus %.1fus; "
+                        + "beeps %d full, %d panned, %d skipped (limits %d full, %d panned), %d voices stolen, %d sounds dropped",
+                blocks, getMeanVoices(), maxVoices, getMicrosPerVoice(), getVoiceLoadPercent(), getBusMicros(),
+                fullBeats, pannedBeats, droppedBeats, fullLimit, panLimit, steals, droppedVoices);
+    }
+}
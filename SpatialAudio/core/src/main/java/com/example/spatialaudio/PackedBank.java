@@ -0,0 +1,160 @@
+package com.example.spatialaudio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A whole sound bank in one file, so it can be loaded with a single memory map or read instead of opening every
+ * sound file separately. Everything is little endian:
+ *
+ * <pre>
+ * header:  "SBNK", version, clip count,
+ *          min angle (float), angle step (float), angles per height, min height (float), height step (float)
+ * index:   for each clip: PCM offset from the start of the file, frame count, channels, sample rate,
+ *          angle (float), height (float)
+ * data:    16 bit interleaved PCM for every clip, one after the other
+ * </pre>
+ *
+ * Clips are stored by height and then by angle, like the cells of a {@link SoundBank}. Written by
+ * {@link PackedBankWriter}.
+ */
+public class PackedBank {
+    static final int MAGIC = 0x4b4e4253; //"SBNK" read as a little endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int ENTRY_BYTES = 24;
+
+    private final ByteBuffer buffer;
+    private final int clipCount;
+
+    private PackedBank(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a packed sound bank");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported packed sound bank version " + buffer.getInt(4));
+        }
+        clipCount = buffer.getInt(8);
+        if (clipCount < 0 || buffer.capacity() < HEADER_BYTES + (long) clipCount * ENTRY_BYTES) {
+            throw new IOException("Packed sound bank index is truncated");
+        }
+        //Check every clip is inside the buffer now, rather than when it is first played
+        long dataStart = HEADER_BYTES + (long) clipCount * ENTRY_BYTES;
+        for (int i = 0; i < clipCount; i++) {
+            int entry = HEADER_BYTES + i * ENTRY_BYTES;
+            long offset = buffer.getInt(entry);
+            long frames = buffer.getInt(entry + 4);
+            long channels = buffer.getInt(entry + 8);
+            if (frames < 0 || channels < 1 || buffer.getInt(entry + 12) <= 0) {
+                throw new IOException("Packed sound bank clip " + i + " has a bad format");
+            }
+            if (offset < dataStart || offset + frames * channels * 2 > buffer.capacity()) {
+                throw new IOException("Packed sound bank clip " + i + " is outside the file (" + offset + " + "
+                        + frames * channels * 2 + " bytes of " + buffer.capacity() + ")");
+            }
+        }
+    }
+
+    //Use a bank that is already in memory (or mapped)
+    public static PackedBank wrap(ByteBuffer buffer) throws IOException {
+        return new PackedBank(buffer.slice());
+    }
+
+    //Memory map a bank file
+    public static PackedBank map(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            return map(channel, 0, channel.size());
+        } finally {
+            //The mapping stays valid after the file is closed
+            in.close();
+        }
+    }
+
+    //Memory map a bank stored in part of a file (e.g. an uncompressed asset inside an APK)
+    public static PackedBank map(FileChannel channel, long position, long size) throws IOException {
+        return new PackedBank(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
+    //Read a bank stored in part of a file into a direct buffer with one read
+    public static PackedBank read(FileChannel channel, long position, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Packed sound bank is too big: " + size + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Packed sound bank is truncated");
+            }
+        }
+        buffer.flip();
+        return new PackedBank(buffer);
+    }
+
+    public int getClipCount() {
+        return clipCount;
+    }
+
+    //The grid the clips cover, with clip ids that are the clip indices in this bank
+    public SoundBankManifest getManifest() {
+        int[] ids = new int[clipCount];
+        for (int i = 0; i < clipCount; i++) {
+            ids[i] = i;
+        }
+        return new SoundBankManifest(buffer.getFloat(12), buffer.getFloat(16), buffer.getInt(20),
+                buffer.getFloat(24), buffer.getFloat(28), ids);
+    }
+
+    private int entry(int index) {
+        if (index < 0 || index >= clipCount) {
+            throw new IndexOutOfBoundsException("Clip " + index + " of " + clipCount);
+        }
+        return HEADER_BYTES + index * ENTRY_BYTES;
+    }
+
+    public int getFrameCount(int index) {
+        return buffer.getInt(entry(index) + 4);
+    }
+
+    public int getChannels(int index) {
+        return buffer.getInt(entry(index) + 8);
+    }
+
+    public int getSampleRate(int index) {
+        return buffer.getInt(entry(index) + 12);
+    }
+
+    public float getAngle(int index) {
+        return buffer.getFloat(entry(index) + 16);
+    }
+
+    public float getHeight(int index) {
+        return buffer.getFloat(entry(index) + 20);
+    }
+
+    //A view of a clip's PCM straight out of the bank's buffer, without copying it
+    public ShortBuffer getSamples(int index) {
+        int entry = entry(index);
+        int offset = buffer.getInt(entry);
+        int sampleCount = buffer.getInt(entry + 4) * buffer.getInt(entry + 8);
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.limit(offset + sampleCount * 2);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    //Copy a clip out of the bank for the audio engine (one bulk copy)
+    public Clip getClip(int index) {
+        ShortBuffer samples = getSamples(index);
+        short[] copy = new short[samples.remaining()];
+        samples.get(copy);
+        return new Clip(copy, getChannels(index), getSampleRate(index));
+    }
+}
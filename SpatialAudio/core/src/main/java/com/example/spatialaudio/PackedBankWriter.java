@@ -0,0 +1,73 @@
+package com.example.spatialaudio;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes a {@link PackedBank} file. The whole file is built in one buffer and written with one channel write.
+ */
+public class PackedBankWriter {
+    private PackedBankWriter() {
+    }
+
+    /**
+     * Write a bank. The clips are in cell order (by height, then by angle) and angles and heights give the centre
+     * of each clip's cell.
+     */
+    public static void write(File file, SoundBankManifest manifest, Clip[] clips, float[] angles, float[] heights) throws IOException {
+        ByteBuffer buffer = pack(manifest, clips, angles, heights);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    //Build the bank in memory
+    public static ByteBuffer pack(SoundBankManifest manifest, Clip[] clips, float[] angles, float[] heights) {
+        if (clips.length != manifest.clipIds.length || angles.length != clips.length || heights.length != clips.length) {
+            throw new IllegalArgumentException("Need a clip, angle and height for each of the " + manifest.clipIds.length + " cells");
+        }
+        int dataStart = PackedBank.HEADER_BYTES + clips.length * PackedBank.ENTRY_BYTES;
+        int size = dataStart;
+        for (Clip clip : clips) {
+            size += clip.getByteCount();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(PackedBank.MAGIC);
+        buffer.putInt(PackedBank.VERSION);
+        buffer.putInt(clips.length);
+        buffer.putFloat(manifest.minAngle);
+        buffer.putFloat(manifest.angleStep);
+        buffer.putInt(manifest.angleCount);
+        buffer.putFloat(manifest.minHeight);
+        buffer.putFloat(manifest.heightStep);
+
+        int offset = dataStart;
+        for (int i = 0; i < clips.length; i++) {
+            buffer.putInt(offset);
+            buffer.putInt(clips[i].getFrameCount());
+            buffer.putInt(clips[i].getChannels());
+            buffer.putInt(clips[i].getSampleRate());
+            buffer.putFloat(angles[i]);
+            buffer.putFloat(heights[i]);
+            offset += clips[i].getByteCount();
+        }
+
+        for (Clip clip : clips) {
+            buffer.asShortBuffer().put(clip.getSamples());
+            buffer.position(buffer.position() + clip.getByteCount());
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.spatialaudio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A whole WAVE or AIFF file in memory or memory mapped, with its samples available as a view of the file's own
+ * bytes in the file's byte order, so nothing is copied or converted sample by sample to get at them. See
+ * {@link PcmStream} to read a long file a piece at a time instead.
+ */
+public class PcmFile {
+    private final ByteBuffer buffer;
+    private final PcmFormat format;
+
+    private PcmFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        format = PcmFormat.parse(buffer);
+    }
+
+    //Use a file that is already in memory (or mapped), from its position
+    public static PcmFile wrap(ByteBuffer buffer) throws IOException {
+        return new PcmFile(buffer.slice());
+    }
+
+    //Memory map a file
+    public static PcmFile map(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            return map(channel, 0, channel.size());
+        } finally {
+            //The mapping stays valid after the file is closed
+            in.close();
+        }
+    }
+
+    //Memory map a file stored in part of another (e.g. an uncompressed resource inside an APK)
+    public static PcmFile map(FileChannel channel, long position, long size) throws IOException {
+        return new PcmFile(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
+    public PcmFormat getFormat() {
+        return format;
+    }
+
+    //The sample bytes, as much of them as the file holds
+    private ByteBuffer data() {
+        ByteBuffer view = buffer.duplicate();
+        long end = Math.min(format.getDataOffset() + format.getDataBytes(), buffer.limit());
+        view.limit((int) end);
+        view.position((int) Math.min(format.getDataOffset(), end));
+        return view.slice().order(format.getByteOrder());
+    }
+
+    //A view of 16 bit samples, interleaved
+    public ShortBuffer getSamples() {
+        if (format.isFloating()) {
+            throw new IllegalStateException("The samples are floats");
+        }
+        return data().asShortBuffer();
+    }
+
+    //A view of 32 bit float samples, interleaved
+    public FloatBuffer getFloatSamples() {
+        if (!format.isFloating()) {
+            throw new IllegalStateException("The samples are 16 bit integers");
+        }
+        return data().asFloatBuffer();
+    }
+
+    //Copy the samples out for the audio engine: one bulk copy for 16 bit samples, converted for floats
+    public Clip toClip() {
+        short[] samples;
+        if (format.isFloating()) {
+            FloatBuffer floats = getFloatSamples();
+            samples = new short[floats.remaining()];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = PcmStream.toShort(floats.get(i));
+            }
+        } else {
+            ShortBuffer shorts = getSamples();
+            samples = new short[shorts.remaining()];
+            shorts.get(samples);
+        }
+        return new Clip(samples, format.getChannels(), format.getSampleRate());
+    }
+}
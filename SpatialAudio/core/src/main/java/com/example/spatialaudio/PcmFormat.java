@@ -0,0 +1,279 @@
+package com.example.spatialaudio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * The layout of the PCM in a RIFF/WAVE or AIFF/AIFF-C file, read from its header: the sample format and where the
+ * samples are. Samples are either 16 bit integers or 32 bit floats, in the byte order the file uses (little endian
+ * for WAVE and for AIFF-C 'sowt', big endian for AIFF).
+ *
+ * The format chunk has to come before the sample data, as it does in every file the project has and in anything
+ * that can be streamed.
+ */
+public class PcmFormat {
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xfffe;
+
+    private final int channels;
+    private final int sampleRate;
+    private final boolean floating;
+    private final ByteOrder byteOrder;
+    //Where the samples start from the start of the file, and how many bytes of them there are
+    private final long dataOffset;
+    private final long dataBytes;
+
+    private PcmFormat(int channels, int sampleRate, boolean floating, ByteOrder byteOrder, long dataOffset, long dataBytes) {
+        this.channels = channels;
+        this.sampleRate = sampleRate;
+        this.floating = floating;
+        this.byteOrder = byteOrder;
+        this.dataOffset = dataOffset;
+        this.dataBytes = dataBytes;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    //True for 32 bit float samples, false for 16 bit integers
+    public boolean isFloating() {
+        return floating;
+    }
+
+    public int getBytesPerSample() {
+        return floating ? 4 : 2;
+    }
+
+    public ByteOrder getByteOrder() {
+        return byteOrder;
+    }
+
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    public long getDataBytes() {
+        return dataBytes;
+    }
+
+    public long getFrameCount() {
+        return dataBytes / (getBytesPerSample() * channels);
+    }
+
+    /**
+     * Read the header of a file held in a buffer, starting from index 0. The data offset is an index into the
+     * buffer. The buffer's position is left alone.
+     */
+    public static PcmFormat parse(ByteBuffer file) throws IOException {
+        final ByteBuffer in = file.duplicate();
+        in.position(0);
+        return parse(new Source() {
+            @Override
+            void read(ByteBuffer into) throws IOException {
+                int count = into.remaining();
+                if (in.remaining() < count) {
+                    throw new EOFException("Header is truncated");
+                }
+                ByteBuffer part = in.duplicate();
+                part.limit(part.position() + count);
+                into.put(part);
+                in.position(in.position() + count);
+            }
+
+            @Override
+            void skip(long count) throws IOException {
+                if (in.remaining() < count) {
+                    throw new EOFException("Header is truncated");
+                }
+                in.position(in.position() + (int) count);
+            }
+
+            @Override
+            long position() {
+                return in.position();
+            }
+        });
+    }
+
+    /**
+     * Read the header from a channel, leaving the channel at the first sample. Reads nothing past the header, so
+     * the samples can be read from the channel straight after.
+     */
+    public static PcmFormat read(final ReadableByteChannel channel) throws IOException {
+        return parse(new Source() {
+            private final ByteBuffer skipBuffer = ByteBuffer.allocate(512);
+            private long position;
+
+            @Override
+            void read(ByteBuffer into) throws IOException {
+                while (into.hasRemaining()) {
+                    int count = channel.read(into);
+                    if (count < 0) {
+                        throw new EOFException("Header is truncated");
+                    }
+                    position += count;
+                }
+            }
+
+            @Override
+            void skip(long count) throws IOException {
+                while (count > 0) {
+                    skipBuffer.clear();
+                    skipBuffer.limit((int) Math.min(count, skipBuffer.capacity()));
+                    read(skipBuffer);
+                    count -= skipBuffer.limit();
+                }
+            }
+
+            @Override
+            long position() {
+                return position;
+            }
+        });
+    }
+
+    //Where the header is read from
+    private abstract static class Source {
+        //Fill the rest of the buffer
+        abstract void read(ByteBuffer into) throws IOException;
+
+        abstract void skip(long count) throws IOException;
+
+        abstract long position();
+    }
+
+    private static PcmFormat parse(Source in) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(40);
+        readBytes(in, header, 12);
+        int form = header.getInt(0);
+        int type = header.getInt(8);
+        if (form == tag("RIFF") && type == tag("WAVE")) {
+            return parseWave(in, header);
+        }
+        if (form == tag("FORM") && (type == tag("AIFF") || type == tag("AIFC"))) {
+            return parseAiff(in, header, type == tag("AIFC"));
+        }
+        throw new IOException("Not a WAVE or AIFF file");
+    }
+
+    private static PcmFormat parseWave(Source in, ByteBuffer header) throws IOException {
+        int channels = 0;
+        int sampleRate = 0;
+        boolean floating = false;
+        while (true) {
+            readBytes(in, header, 8);
+            int chunkId = header.getInt(0);
+            long chunkSize = header.order(ByteOrder.LITTLE_ENDIAN).getInt(4) & 0xffffffffL;
+            header.order(ByteOrder.BIG_ENDIAN);
+            if (chunkId == tag("fmt ")) {
+                if (chunkSize < 16) {
+                    throw new IOException("fmt chunk is too short");
+                }
+                int read = (int) Math.min(chunkSize, header.capacity());
+                readBytes(in, header, read);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                int format = header.getShort(0) & 0xffff;
+                channels = header.getShort(2) & 0xffff;
+                sampleRate = header.getInt(4);
+                int bitsPerSample = header.getShort(14) & 0xffff;
+                if (format == FORMAT_EXTENSIBLE && read >= 26) {
+                    //The real format is the start of the sub format GUID
+                    format = header.getShort(24) & 0xffff;
+                }
+                header.order(ByteOrder.BIG_ENDIAN);
+                floating = format == FORMAT_FLOAT && bitsPerSample == 32;
+                if (!(format == FORMAT_PCM && bitsPerSample == 16) && !floating) {
+                    throw new IOException("Only 16 bit PCM and 32 bit float are supported (format " + format + ", "
+                            + bitsPerSample + " bits)");
+                }
+                in.skip(chunkSize - read);
+            } else if (chunkId == tag("data")) {
+                if (channels == 0) {
+                    throw new IOException("data chunk before fmt chunk");
+                }
+                return new PcmFormat(channels, sampleRate, floating, ByteOrder.LITTLE_ENDIAN, in.position(), chunkSize);
+            } else {
+                in.skip(chunkSize);
+            }
+            //Chunks are padded to an even length
+            if ((chunkSize & 1) != 0) {
+                in.skip(1);
+            }
+        }
+    }
+
+    private static PcmFormat parseAiff(Source in, ByteBuffer header, boolean compressed) throws IOException {
+        int channels = 0;
+        int sampleRate = 0;
+        boolean floating = false;
+        ByteOrder order = ByteOrder.BIG_ENDIAN;
+        while (true) {
+            readBytes(in, header, 8);
+            int chunkId = header.getInt(0);
+            long chunkSize = header.getInt(4) & 0xffffffffL;
+            if (chunkId == tag("COMM")) {
+                int read = (int) Math.min(chunkSize, compressed ? 22 : 18);
+                if (read < 18) {
+                    throw new IOException("COMM chunk is too short");
+                }
+                readBytes(in, header, read);
+                channels = header.getShort(0) & 0xffff;
+                int bitsPerSample = header.getShort(6) & 0xffff;
+                sampleRate = (int) Math.round(extended(header, 8));
+                int compression = compressed && read >= 22 ? header.getInt(18) : tag("NONE");
+                if (compression == tag("sowt")) {
+                    order = ByteOrder.LITTLE_ENDIAN;
+                }
+                floating = compression == tag("fl32") || compression == tag("FL32");
+                boolean integer = compression == tag("NONE") || compression == tag("twos") || compression == tag("sowt");
+                if (!(integer && bitsPerSample == 16) && !floating) {
+                    throw new IOException("Only 16 bit PCM and 32 bit float are supported (" + bitsPerSample + " bits)");
+                }
+                in.skip(chunkSize - read);
+            } else if (chunkId == tag("SSND")) {
+                if (channels == 0) {
+                    throw new IOException("SSND chunk before COMM chunk");
+                }
+                //The offset to the first sample and a block size nothing uses
+                readBytes(in, header, 8);
+                long offset = header.getInt(0) & 0xffffffffL;
+                in.skip(offset);
+                return new PcmFormat(channels, sampleRate, floating, order, in.position(), chunkSize - 8 - offset);
+            } else {
+                in.skip(chunkSize);
+            }
+            if ((chunkSize & 1) != 0) {
+                in.skip(1);
+            }
+        }
+    }
+
+    //Read count bytes into the start of the header buffer
+    private static void readBytes(Source in, ByteBuffer header, int count) throws IOException {
+        header.clear();
+        header.limit(count);
+        in.read(header);
+        header.clear();
+    }
+
+    //An 80 bit IEEE 754 extended precision number, as AIFF stores its sample rate
+    private static double extended(ByteBuffer buffer, int offset) {
+        int exponent = buffer.getShort(offset) & 0x7fff;
+        long mantissa = buffer.getLong(offset + 2);
+        double value = (mantissa >>> 11) * Math.pow(2, exponent - 16383 - 52);
+        return (buffer.getShort(offset) & 0x8000) != 0 ? -value : value;
+    }
+
+    private static int tag(String name) {
+        return (name.charAt(0) << 24) | (name.charAt(1) << 16) | (name.charAt(2) << 8) | name.charAt(3);
+    }
+}
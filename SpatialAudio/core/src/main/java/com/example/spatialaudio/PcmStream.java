@@ -0,0 +1,141 @@
+package com.example.spatialaudio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads the samples of a WAVE or AIFF file from a channel a piece at a time, for files too long to hold in memory
+ * at once. The bytes go through one direct buffer allocated up front and are copied out in bulk through a view in
+ * the file's byte order, so reading doesn't allocate and 16 bit samples are never handled one at a time.
+ *
+ * The channel is not closed.
+ */
+public class PcmStream {
+    private static final int DEFAULT_BUFFER_BYTES = 16 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final PcmFormat format;
+    private final ByteBuffer bytes;
+    //Views of bytes, set up once
+    private final ShortBuffer shorts;
+    private final FloatBuffer floats;
+    //How many sample bytes are still to be read from the channel
+    private long remainingBytes;
+
+    //Read the header from the channel, leaving it ready to read samples
+    public PcmStream(ReadableByteChannel channel) throws IOException {
+        this(channel, DEFAULT_BUFFER_BYTES);
+    }
+
+    public PcmStream(ReadableByteChannel channel, int bufferBytes) throws IOException {
+        this.channel = channel;
+        format = PcmFormat.read(channel);
+        remainingBytes = format.getDataBytes();
+        //Whole frames only, so a read never splits one
+        int frameBytes = format.getBytesPerSample() * format.getChannels();
+        bytes = ByteBuffer.allocateDirect(Math.max(frameBytes, bufferBytes / frameBytes * frameBytes))
+                .order(format.getByteOrder());
+        shorts = bytes.asShortBuffer();
+        floats = bytes.asFloatBuffer();
+    }
+
+    public PcmFormat getFormat() {
+        return format;
+    }
+
+    //How many samples (not frames) are still to be read
+    public long getRemainingSamples() {
+        return remainingBytes / format.getBytesPerSample();
+    }
+
+    /**
+     * Read up to count interleaved samples into out as 16 bit integers, converting float files.
+     *
+     * @return how many samples were read, less than count only at the end of the data (then -1 once there are none)
+     */
+    public int read(short[] out, int offset, int count) throws IOException {
+        int total = 0;
+        while (total < count) {
+            int samples = fill(count - total);
+            if (samples <= 0) {
+                break;
+            }
+            if (format.isFloating()) {
+                for (int i = 0; i < samples; i++) {
+                    out[offset + total + i] = toShort(floats.get(i));
+                }
+            } else {
+                shorts.position(0);
+                shorts.get(out, offset + total, samples);
+            }
+            total += samples;
+        }
+        return total == 0 && count > 0 ? -1 : total;
+    }
+
+    /**
+     * Read up to count interleaved samples into out as floats from -1 to 1, converting 16 bit files.
+     *
+     * @return how many samples were read, less than count only at the end of the data (then -1 once there are none)
+     */
+    public int read(float[] out, int offset, int count) throws IOException {
+        int total = 0;
+        while (total < count) {
+            int samples = fill(count - total);
+            if (samples <= 0) {
+                break;
+            }
+            if (format.isFloating()) {
+                floats.position(0);
+                floats.get(out, offset + total, samples);
+            } else {
+                for (int i = 0; i < samples; i++) {
+                    out[offset + total + i] = shorts.get(i) / 32768.0f;
+                }
+            }
+            total += samples;
+        }
+        return total == 0 && count > 0 ? -1 : total;
+    }
+
+    //Read the rest of the samples into a clip
+    public Clip readClip() throws IOException {
+        long samples = getRemainingSamples();
+        if (samples > Integer.MAX_VALUE) {
+            throw new IOException("Too long for a clip: " + samples + " samples");
+        }
+        short[] out = new short[(int) samples];
+        int read = Math.max(0, read(out, 0, out.length));
+        if (read < out.length) {
+            throw new IOException("Expected " + out.length + " samples, the file has " + read);
+        }
+        return new Clip(out, format.getChannels(), format.getSampleRate());
+    }
+
+    //Read up to maxSamples whole samples into the start of the byte buffer, returning how many there are
+    private int fill(int maxSamples) throws IOException {
+        int sampleBytes = format.getBytesPerSample();
+        long wanted = Math.min(Math.min((long) maxSamples * sampleBytes, remainingBytes), bytes.capacity());
+        if (wanted <= 0) {
+            return 0;
+        }
+        bytes.clear();
+        bytes.limit((int) wanted);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes) < 0) {
+                //The file is shorter than its header says; keep what there is
+                remainingBytes = 0;
+                return bytes.position() / sampleBytes;
+            }
+        }
+        remainingBytes -= wanted;
+        return (int) wanted / sampleBytes;
+    }
+
+    static short toShort(float sample) {
+        return (short) Math.max(-32768.0f, Math.min(sample * 32768.0f, 32767.0f));
+    }
+}
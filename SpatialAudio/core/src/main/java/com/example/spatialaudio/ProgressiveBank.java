@@ -0,0 +1,236 @@
+package com.example.spatialaudio;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Loads a whole sound bank one cell at a time in priority order, so a sound can play as soon as the first cell is
+ * in instead of after the whole bank. The cell the sound is in goes first, then the one straight ahead at the same
+ * height, then the rest outwards from the sound, nearest first. {@link #focus} moves the centre while loading, e.g.
+ * as the sound is tracked, and the cells still to load are ordered around the new one.
+ *
+ * Until a cell is loaded {@link #getClip} answers with the nearest cell that is, so lookups never wait for I/O and
+ * the sound is only slightly off in angle or pitch for the first moments.
+ *
+ * Each cell is loaded by its own task on the given executor, which submits the next when it finishes, so a shared
+ * executor isn't held for the whole bank. How long the first cell and the whole bank took are recorded, for the
+ * startup times.
+ */
+public class ProgressiveBank {
+    //Told on the loading thread as each cell is loaded and when there are none left
+    public interface Listener {
+        void onCellLoaded(int index, int loaded, int total);
+
+        void onComplete();
+    }
+
+    private final SoundBank soundBank;
+    private final ClipCache.Loader loader;
+    private final AtomicReferenceArray<Clip> clips;
+    //Cells that failed to load, so they aren't tried again
+    private final boolean[] failed;
+    private final AtomicLong substitutions = new AtomicLong();
+    private final Listener listener;
+
+    //The cell loading is centred on
+    private volatile int focus;
+    private volatile int loadedCount;
+    private volatile int attemptedCount;
+    private boolean started;
+    private volatile boolean stopped;
+
+    //Written before the first task is submitted, which makes it visible to the tasks
+    private long startNanos;
+    private volatile long firstClipNanos = -1;
+    private volatile long fullBankNanos = -1;
+
+    //The listener may be null
+    public ProgressiveBank(SoundBank soundBank, ClipCache.Loader loader, Listener listener) {
+        this.soundBank = soundBank;
+        this.loader = loader;
+        this.listener = listener;
+        clips = new AtomicReferenceArray<Clip>(soundBank.size());
+        failed = new boolean[soundBank.size()];
+    }
+
+    //Start loading on the executor, centred on a cell. The load times are measured from startNanos (System.nanoTime()),
+    //e.g. when the app started. Only the first call does anything.
+    public synchronized void start(Executor executor, int firstIndex, long startNanos) {
+        if (started) {
+            return;
+        }
+        started = true;
+        this.startNanos = startNanos;
+        focus = firstIndex;
+        submitNext(executor);
+    }
+
+    //Stop loading after the cell being loaded now, for good. The cells already loaded stay loaded.
+    public void stop() {
+        stopped = true;
+    }
+
+    //Load the cells around this one next
+    public void focus(int index) {
+        focus = index;
+    }
+
+    private void submitNext(final Executor executor) {
+        if (stopped || attemptedCount == clips.length()) {
+            return;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    loadNext();
+                    submitNext(executor);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //The executor was shut down
+            stopped = true;
+        }
+    }
+
+    //Only one of these runs at a time: each task submits the next when it is done
+    private void loadNext() {
+        int index = nextIndex();
+        if (index < 0) {
+            return;
+        }
+        try {
+            clips.set(index, loader.load(index));
+            if (loadedCount == 0) {
+                firstClipNanos = System.nanoTime() - startNanos;
+            }
+            loadedCount++;
+            if (listener != null) {
+                listener.onCellLoaded(index, loadedCount, clips.length());
+            }
+        } catch (RuntimeException e) {
+            //Leave the gap to be covered by its neighbours
+            failed[index] = true;
+        }
+        attemptedCount++;
+        if (attemptedCount == clips.length()) {
+            fullBankNanos = System.nanoTime() - startNanos;
+            if (listener != null) {
+                listener.onComplete();
+            }
+        }
+    }
+
+    //The cell to load next: the focus, then straight ahead of it, then the nearest to it, or -1 if there are none left
+    private int nextIndex() {
+        int center = focus;
+        if (isPending(center)) {
+            return center;
+        }
+        int angleCount = soundBank.getAngleCount();
+        int row = center / angleCount;
+        int ahead = soundBank.indexOf(0, 0) % angleCount + row * angleCount;
+        if (isPending(ahead)) {
+            return ahead;
+        }
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < clips.length(); i++) {
+            if (isPending(i)) {
+                int distance = distance(i, center);
+                if (distance < bestDistance) {
+                    best = i;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    private boolean isPending(int index) {
+        return clips.get(index) == null && !failed[index];
+    }
+
+    //Squared distance between two cells in columns and rows
+    private int distance(int a, int b) {
+        int angleCount = soundBank.getAngleCount();
+        int columns = a % angleCount - b % angleCount;
+        int rows = a / angleCount - b / angleCount;
+        return columns * columns + rows * rows;
+    }
+
+    /**
+     * The clip for a cell, or the nearest loaded one if it isn't loaded yet, or null if nothing is loaded. Doesn't
+     * allocate or block, so it can be called from the camera thread on every frame.
+     */
+    public Clip getClip(int index) {
+        Clip clip = clips.get(index);
+        if (clip != null) {
+            return clip;
+        }
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < clips.length(); i++) {
+            if (clips.get(i) != null) {
+                int distance = distance(i, index);
+                if (distance < bestDistance) {
+                    best = i;
+                    bestDistance = distance;
+                }
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        substitutions.incrementAndGet();
+        return clips.get(best);
+    }
+
+    //Whether this cell has its own clip yet
+    public boolean isLoaded(int index) {
+        return clips.get(index) != null;
+    }
+
+    //At least one cell is loaded, so getClip() returns something
+    public boolean isReady() {
+        return loadedCount > 0;
+    }
+
+    //Every cell has been loaded, or failed to
+    public boolean isComplete() {
+        return attemptedCount == clips.length();
+    }
+
+    public int getLoadedCount() {
+        return loadedCount;
+    }
+
+    public int size() {
+        return clips.length();
+    }
+
+    //How many getClip() calls were answered with a neighbouring cell
+    public long getSubstitutions() {
+        return substitutions.get();
+    }
+
+    //How long after the start time the first cell was loaded, or -1 if it hasn't been yet
+    public double getFirstClipMillis() {
+        long nanos = firstClipNanos;
+        return nanos < 0 ? -1 : nanos / 1e6;
+    }
+
+    //How long after the start time the last cell was loaded, or -1 if there are some left
+    public double getFullBankMillis() {
+        long nanos = fullBankNanos;
+        return nanos < 0 ? -1 : nanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d of %d cells loaded, first after %.1fms, all after %.1fms, %d lookups answered by a neighbour",
+                loadedCount, clips.length(), getFirstClipMillis(), getFullBankMillis(), substitutions.get());
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.spatialaudio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Whether the render thread is keeping up with the device: how long each buffer took to render against its
+ * deadline (how long the buffer lasts), the worst of them, how many times the device probably ran out of audio, and
+ * how many position updates reached the render thread late or not at all. These are what to size the buffer and the
+ * voice budget by on a device.
+ *
+ * The device doesn't say when it runs dry, so underruns are estimated from the wall clock: the sink holds
+ * {@link AudioSink#getBufferFrames()} frames ahead of what is playing, it plays them at the sample rate, and if
+ * more time has passed since the last write than what was queued lasts, the next write came too late. A write that
+ * blocks means the device was full, which keeps the estimate from drifting.
+ *
+ * Only the render thread records, and it never locks or waits: the figures are guarded by a sequence number the
+ * same way as {@link SourceUpdates}, so {@link #snapshot()} on another thread retries until it gets a consistent
+ * copy. Read the figures from a snapshot; {@link #reset()} is picked up by the render thread at its next record.
+ */
+public class RenderStats {
+    //Render time as a share of the deadline: under a quarter, half, three quarters, all of it, and the rest
+    public static final int LOAD_BUCKETS = 5;
+
+    private final int sampleRate;
+    private final int bufferFrames;
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean resetRequested;
+
+    private volatile long buffers;
+    private volatile long frames;
+    private volatile long renderNanos;
+    private volatile long maxRenderNanos;
+    private volatile long missedDeadlines;
+    private final AtomicLongArray loads = new AtomicLongArray(LOAD_BUCKETS);
+    private volatile long underruns;
+    private volatile long updates;
+    private volatile long lateUpdates;
+    private volatile long supersededUpdates;
+
+    //Only touched by the render thread: how many frames the device had queued at the last write, and when
+    private double queuedFrames;
+    private long lastWriteNanos;
+
+    //bufferFrames is how many frames the device queues ahead, see AudioSink.getBufferFrames()
+    public RenderStats(int sampleRate, int bufferFrames) {
+        this.sampleRate = sampleRate;
+        this.bufferFrames = bufferFrames;
+    }
+
+    //Record rendering one buffer of frames, which took renderNanos
+    void recordRender(long renderNanos, int frames) {
+        begin();
+        long deadlineNanos = frames * 1000000000L / sampleRate;
+        buffers++;
+        this.frames += frames;
+        this.renderNanos += renderNanos;
+        if (renderNanos > maxRenderNanos) {
+            maxRenderNanos = renderNanos;
+        }
+        if (renderNanos > deadlineNanos) {
+            missedDeadlines++;
+        }
+        int bucket = deadlineNanos == 0 ? LOAD_BUCKETS - 1
+                : (int) Math.min(LOAD_BUCKETS - 1, renderNanos * (LOAD_BUCKETS - 1) / deadlineNanos);
+        loads.set(bucket, loads.get(bucket) + 1);
+        end();
+    }
+
+    //Record writing frames to the sink, from startNanos to endNanos
+    void recordWrite(long startNanos, long endNanos, int frames) {
+        begin();
+        if (lastWriteNanos != 0) {
+            //What the device has played since the last write finished
+            double played = (startNanos - lastWriteNanos) * (sampleRate / 1e9);
+            queuedFrames -= played;
+            if (queuedFrames < 0) {
+                underruns++;
+                queuedFrames = 0;
+            }
+        }
+        //A write that had to wait for room left the device full
+        long bufferNanos = frames * 1000000000L / sampleRate;
+        if (endNanos - startNanos > bufferNanos / 4) {
+            queuedFrames = bufferFrames;
+        } else {
+            queuedFrames = Math.min(bufferFrames, queuedFrames + frames);
+        }
+        lastWriteNanos = endNanos;
+        end();
+    }
+
+    //Forget the device's state when the stream restarts
+    void recordStart() {
+        queuedFrames = 0;
+        lastWriteNanos = 0;
+    }
+
+    //Record a position update picked up ageNanos after it was made, after superseded others were overwritten unread,
+    //where lateNanos is the age that counts as late
+    void recordUpdate(long ageNanos, int superseded, long lateNanos) {
+        begin();
+        updates++;
+        if (ageNanos > lateNanos) {
+            lateUpdates++;
+        }
+        supersededUpdates += superseded;
+        end();
+    }
+
+    private void begin() {
+        sequence.set(sequence.get() + 1);
+        if (resetRequested) {
+            resetRequested = false;
+            buffers = 0;
+            frames = 0;
+            renderNanos = 0;
+            maxRenderNanos = 0;
+            missedDeadlines = 0;
+            for (int i = 0; i < LOAD_BUCKETS; i++) {
+                loads.set(i, 0);
+            }
+            underruns = 0;
+            updates = 0;
+            lateUpdates = 0;
+            supersededUpdates = 0;
+        }
+    }
+
+    private void end() {
+        sequence.set(sequence.get() + 1);
+    }
+
+    //Start the figures again from the render thread's next record. Safe from any thread.
+    public void reset() {
+        resetRequested = true;
+    }
+
+    //A consistent copy of the figures so far. Safe from any thread; never blocks the render thread.
+    public RenderStats snapshot() {
+        RenderStats copy = new RenderStats(sampleRate, bufferFrames);
+        while (true) {
+            long before = sequence.get();
+            if ((before & 1) == 0) {
+                copy.buffers = buffers;
+                copy.frames = frames;
+                copy.renderNanos = renderNanos;
+                copy.maxRenderNanos = maxRenderNanos;
+                copy.missedDeadlines = missedDeadlines;
+                for (int i = 0; i < LOAD_BUCKETS; i++) {
+                    copy.loads.set(i, loads.get(i));
+                }
+                copy.underruns = underruns;
+                copy.updates = updates;
+                copy.lateUpdates = lateUpdates;
+                copy.supersededUpdates = supersededUpdates;
+                if (sequence.get() == before) {
+                    return copy;
+                }
+            }
+            Thread.yield();
+        }
+    }
+
+    public long getBuffers() {
+        return buffers;
+    }
+
+    //How long a buffer lasts on average, which is how long there is to render it
+    public double getDeadlineMicros() {
+        return buffers == 0 ? 0 : frames * 1000000.0 / sampleRate / buffers;
+    }
+
+    public double getMeanRenderMicros() {
+        return buffers == 0 ? 0 : renderNanos / 1000.0 / buffers;
+    }
+
+    //The longest a buffer took to render
+    public double getMaxRenderMicros() {
+        return maxRenderNanos / 1000.0;
+    }
+
+    //How much of the time the buffers last was spent rendering them, in percent
+    public double getLoadPercent() {
+        return frames == 0 ? 0 : 100.0 * renderNanos / 1e9 / ((double) frames / sampleRate);
+    }
+
+    //Buffers that took longer to render than they last
+    public long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    //How many buffers took the given share of their deadline: bucket 0 under 25%, 1 under 50%, 2 under 75%, 3 under
+    //100% and 4 the rest
+    public long getLoadCount(int bucket) {
+        return loads.get(bucket);
+    }
+
+    //Times the device is estimated to have run out of audio
+    public long getUnderruns() {
+        return underruns;
+    }
+
+    //Position updates the render thread picked up, those older than the late threshold when it did, and those that
+    //were replaced by a newer one before it got to them
+    public long getUpdates() {
+        return updates;
+    }
+
+    public long getLateUpdates() {
+        return lateUpdates;
+    }
+
+    public long getSupersededUpdates() {
+        return supersededUpdates;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d buffers, render mean %.0fus max %.0fus of %.0fus (%.1f%% load), %d missed deadlines, "
+                        + "load %d/%d/%d/%d/%d, %d underruns; %d updates, %d late, %d superseded",
+                buffers, getMeanRenderMicros(), getMaxRenderMicros(), getDeadlineMicros(), getLoadPercent(),
+                missedDeadlines, loads.get(0), loads.get(1), loads.get(2), loads.get(3), loads.get(4),
+                underruns, updates, lateUpdates, supersededUpdates);
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.spatialaudio;
+
+/**
+ * Converts interleaved PCM from one sample rate to another with a polyphase windowed-sinc filter, so the bank can
+ * be played at the device's own output rate instead of being resampled by the system mixer.
+ *
+ * The ratio is reduced to up / down (e.g. 160 / 147 from 44.1kHz to 48kHz) and the low-pass filter for upsampling
+ * by up is split into up phases of {@link #getTapsPerPhase()} taps each, all worked out in the constructor. Each
+ * output sample is then one phase's taps multiplied into the last few input frames, with no trigonometry or
+ * division. The filter is a Kaiser windowed sinc with its cutoff just under the lower of the two Nyquist
+ * frequencies, about 80dB down in the stop band.
+ *
+ * Use {@link #convert} to convert a whole clip once when it is loaded, or {@link #process} to convert a stream a
+ * block at a time; process() keeps the last few frames between calls and doesn't allocate.
+ */
+public class Resampler {
+    //Taps per phase when upsampling; downsampling needs more to keep the same transition band
+    private static final int TAPS_PER_PHASE = 32;
+    //The cutoff as a fraction of the lower Nyquist frequency
+    private static final double ROLLOFF = 0.92;
+    private static final double KAISER_BETA = 8.0;
+    //More phases than this would make the table too big; no pair of common rates comes near it
+    public static final int MAX_PHASES = 1024;
+
+    private final int inputRate;
+    private final int outputRate;
+    private final int up;
+    private final int down;
+    private final int taps;
+    private final int channels;
+    //taps coefficients for each phase, the first multiplying the newest input frame
+    private final float[] table;
+
+    //Interleaved input frames: taps - 1 frames of history, then what has come in since
+    private final float[] frames;
+    private final int maxInputFrames;
+    private int filled;
+    //Where the next output sample is, in input frames times up from the start of the frames buffer
+    private long time;
+
+    /**
+     * A resampler for streams of interleaved frames with the given number of channels, taking up to
+     * maxInputFrames frames per call to process().
+     */
+    public Resampler(int inputRate, int outputRate, int channels, int maxInputFrames) {
+        if (inputRate <= 0 || outputRate <= 0) {
+            throw new IllegalArgumentException("Sample rates must be positive: " + inputRate + ", " + outputRate);
+        }
+        int divisor = gcd(inputRate, outputRate);
+        up = outputRate / divisor;
+        down = inputRate / divisor;
+        if (up > MAX_PHASES) {
+            throw new IllegalArgumentException("Can't resample from " + inputRate + "Hz to " + outputRate
+                    + "Hz, the ratio " + up + "/" + down + " needs too many phases");
+        }
+        this.inputRate = inputRate;
+        this.outputRate = outputRate;
+        this.channels = channels;
+        this.maxInputFrames = maxInputFrames;
+        taps = (int) Math.ceil(TAPS_PER_PHASE * Math.max(1.0, (double) inputRate / outputRate));
+        table = new float[up * taps];
+        designFilter();
+        frames = new float[(taps - 1 + maxInputFrames) * channels];
+        reset();
+    }
+
+    public int getInputRate() {
+        return inputRate;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    public int getTapsPerPhase() {
+        return taps;
+    }
+
+    //How many output frames late the output is, because of the filter; always a whole number
+    public int getDelayFrames() {
+        return up * taps / 2 / down;
+    }
+
+    //The most output frames process() can produce from inputFrames
+    public int getMaxOutputFrames(int inputFrames) {
+        return (int) (((long) inputFrames * up + down - 1) / down) + 1;
+    }
+
+    //Forget the input so far, as if starting from silence
+    public void reset() {
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = 0.0f;
+        }
+        filled = taps - 1;
+        //Start a little late so the filter's delay comes to a whole number of output frames
+        time = (long) (taps - 1) * up + up * taps / 2 - (long) getDelayFrames() * down;
+    }
+
+    private void designFilter() {
+        int length = up * taps;
+        //Centred on a whole sample so the delay is exact; the window is zero at the missing last tap
+        double centre = length / 2;
+        //In cycles per sample at the upsampled rate
+        double cutoff = 0.5 * ROLLOFF * Math.min(1.0, (double) outputRate / inputRate) / up;
+        double windowScale = 1.0 / bessel0(KAISER_BETA);
+        for (int n = 0; n < length; n++) {
+            double x = n - centre;
+            double sinc = x == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * x) / (Math.PI * x);
+            double ratio = x / centre;
+            double window = bessel0(KAISER_BETA * Math.sqrt(Math.max(0.0, 1 - ratio * ratio))) * windowScale;
+            //Upsampling by up spreads each input sample over up output positions, so make up the gain
+            int phase = n % up;
+            int tap = n / up;
+            table[phase * taps + tap] = (float) (sinc * window * up);
+        }
+    }
+
+    /**
+     * Convert inputFrames interleaved frames, writing the result to out from outOffset (in samples). out needs room
+     * for {@link #getMaxOutputFrames} frames.
+     *
+     * @return how many frames were written
+     */
+    public int process(float[] in, int inOffset, int inputFrames, float[] out, int outOffset) {
+        if (inputFrames > maxInputFrames) {
+            throw new IllegalArgumentException(inputFrames + " frames is more than the " + maxInputFrames + " allowed");
+        }
+        float[] f = frames;
+        int c = channels;
+        System.arraycopy(in, inOffset, f, filled * c, inputFrames * c);
+        filled += inputFrames;
+
+        int written = 0;
+        int t = taps;
+        long now = time;
+        while (true) {
+            int newest = (int) (now / up);
+            if (newest >= filled) {
+                break;
+            }
+            int coefficients = (int) (now % up) * t;
+            for (int channel = 0; channel < c; channel++) {
+                float sum = 0.0f;
+                int index = newest * c + channel;
+                for (int k = 0; k < t; k++) {
+                    sum += table[coefficients + k] * f[index];
+                    index -= c;
+                }
+                out[outOffset + written * c + channel] = sum;
+            }
+            written++;
+            now += down;
+        }
+
+        //Keep only the frames the next output will need
+        int drop = (int) (now / up) - (t - 1);
+        if (drop > 0) {
+            drop = Math.min(drop, filled);
+            System.arraycopy(f, drop * c, f, 0, (filled - drop) * c);
+            filled -= drop;
+            now -= (long) drop * up;
+        }
+        time = now;
+        return written;
+    }
+
+    //Convert a whole clip, lined up with the original; returns the clip itself if it is already at the output rate
+    public static Clip convert(Clip clip, int outputRate) {
+        if (clip.getSampleRate() == outputRate) {
+            return clip;
+        }
+        int channels = clip.getChannels();
+        int blockFrames = 4096;
+        Resampler resampler = new Resampler(clip.getSampleRate(), outputRate, channels, blockFrames);
+        int inputFrames = clip.getFrameCount();
+        int outputFrames = (int) (((long) inputFrames * resampler.up + resampler.down - 1) / resampler.down);
+        short[] samples = clip.getSamples();
+        short[] result = new short[outputFrames * channels];
+
+        float[] in = new float[blockFrames * channels];
+        float[] out = new float[resampler.getMaxOutputFrames(blockFrames) * channels];
+        //Skip the filter's delay, then keep feeding silence until the end of the clip has come out
+        int skip = resampler.getDelayFrames();
+        int done = 0;
+        int position = 0;
+        while (done < outputFrames) {
+            int count = Math.min(blockFrames, Math.max(0, inputFrames - position));
+            for (int i = 0; i < count * channels; i++) {
+                in[i] = samples[position * channels + i];
+            }
+            if (count == 0) {
+                count = blockFrames;
+                for (int i = 0; i < count * channels; i++) {
+                    in[i] = 0.0f;
+                }
+            }
+            position += count;
+            int produced = resampler.process(in, 0, count, out, 0);
+            int from = Math.min(skip, produced);
+            skip -= from;
+            int keep = Math.min(produced - from, outputFrames - done);
+            for (int i = 0; i < keep * channels; i++) {
+                float sample = out[from * channels + i];
+                result[done * channels + i] = (short) Math.max(-32768.0f, Math.min(sample, 32767.0f));
+            }
+            done += keep;
+        }
+        return new Clip(result, channels, outputRate);
+    }
+
+    //The zeroth order modified Bessel function of the first kind, for the Kaiser window
+    private static double bessel0(double x) {
+        double sum = 1.0;
+        double term = 1.0;
+        double half = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (half / k) * (half / k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
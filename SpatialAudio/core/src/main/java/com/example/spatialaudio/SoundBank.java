@@ -0,0 +1,64 @@
+package com.example.spatialaudio;
+
+/**
+ * Finds the sound file for an angle and height. Built once from a {@link SoundBankManifest}; after that a lookup is
+ * a little arithmetic and an array read, with no branching on the grid size and no allocation, so it is cheap
+ * enough to do on every camera frame however fine the grid is.
+ */
+public class SoundBank {
+    //Divided by rather than multiplied by the reciprocal: 1/10 isn't exact, and the products land a hair past the
+    //cell edges, which the whole-degree angles from the sliders hit all the time
+    private final double minAngle;
+    private final double angleStep;
+    private final int lastColumn;
+    private final int angleCount;
+    private final double minHeight;
+    private final double heightStep;
+    private final int lastRow;
+    //Cell index -> the id of the clip for that cell (e.g. the raw resource id)
+    private final int[] clipIds;
+
+    public SoundBank(SoundBankManifest manifest) {
+        minAngle = manifest.minAngle;
+        angleStep = manifest.angleStep;
+        angleCount = manifest.getAngleCount();
+        lastColumn = angleCount - 1;
+        minHeight = manifest.minHeight;
+        heightStep = manifest.heightStep;
+        lastRow = manifest.getHeightCount() - 1;
+        clipIds = manifest.clipIds.clone();
+    }
+
+    //The number of cells (and clips) in the bank
+    public int size() {
+        return clipIds.length;
+    }
+
+    public int getAngleCount() {
+        return angleCount;
+    }
+
+    public int getHeightCount() {
+        return lastRow + 1;
+    }
+
+    //The cell index for an angle (degrees, positive is to the left) and height
+    public int indexOf(double angle, double height) {
+        //Angle cells include their upper edge, height cells their lower edge
+        int column = (int) Math.ceil((angle - minAngle) / angleStep) - 1;
+        int row = (int) Math.floor((height - minHeight) / heightStep);
+        column = Math.max(0, Math.min(column, lastColumn));
+        row = Math.max(0, Math.min(row, lastRow));
+        return row * angleCount + column;
+    }
+
+    //The clip id of a cell
+    public int getClipId(int index) {
+        return clipIds[index];
+    }
+
+    //The clip id for an angle and height
+    public int clipFor(double angle, double height) {
+        return clipIds[indexOf(angle, height)];
+    }
+}
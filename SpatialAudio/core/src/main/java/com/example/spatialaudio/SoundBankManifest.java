@@ -0,0 +1,45 @@
+package com.example.spatialaudio;
+
+/**
+ * Describes a grid of pre-rendered sound files: which angles and heights each file covers, and the files
+ * themselves (stored by height, then by angle, so file {@code height * angleCount + angle} is one cell).
+ *
+ * A cell covers the angles {@code (minAngle + column * angleStep, minAngle + (column + 1) * angleStep]} and the
+ * heights {@code [minHeight + row * heightStep, minHeight + (row + 1) * heightStep)}. Anything outside the grid
+ * uses the closest edge cell.
+ */
+public class SoundBankManifest {
+    final float minAngle;
+    final float angleStep;
+    final int angleCount;
+    final float minHeight;
+    final float heightStep;
+    final int[] clipIds;
+
+    public SoundBankManifest(float minAngle, float angleStep, int angleCount, float minHeight, float heightStep, int[] clipIds) {
+        if (angleStep <= 0 || heightStep <= 0) {
+            throw new IllegalArgumentException("Grid steps must be positive");
+        }
+        if (angleCount <= 0 || clipIds.length == 0 || clipIds.length % angleCount != 0) {
+            throw new IllegalArgumentException(clipIds.length + " clips do not fill rows of " + angleCount + " angles");
+        }
+        this.minAngle = minAngle;
+        this.angleStep = angleStep;
+        this.angleCount = angleCount;
+        this.minHeight = minHeight;
+        this.heightStep = heightStep;
+        this.clipIds = clipIds.clone();
+    }
+
+    public int getAngleCount() {
+        return angleCount;
+    }
+
+    public int getHeightCount() {
+        return clipIds.length / angleCount;
+    }
+
+    public int[] getClipIds() {
+        return clipIds.clone();
+    }
+}
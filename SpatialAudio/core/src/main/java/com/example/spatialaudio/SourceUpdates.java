@@ -0,0 +1,122 @@
+package com.example.spatialaudio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carries the latest position of each repeating source from the threads that track objects (e.g. the camera
+ * thread) to the render thread, without locks and without allocating.
+ *
+ * Each source has one slot guarded by a sequence number, a seqlock: the writer makes the number odd, writes the
+ * fields and makes it even again, and the reader copies the fields out and only keeps them if the number was the
+ * same even value before and after. An update replaces the one before it, so if the render thread is behind it
+ * only ever sees the newest position and stale ones are dropped. The reader never waits: if it catches a write
+ * half done it tries again at the next buffer. A writer that finds another write to the same slot in progress
+ * waits for it to finish (a few field writes) and then writes its own, so no update is lost: whichever write
+ * finishes last is the one the reader gets, e.g. a stop after a position from another thread.
+ *
+ * The fields are volatile, which is what keeps the copy consistent with the sequence number under the Java memory
+ * model (there are no fences to use instead before Java 8).
+ */
+public class SourceUpdates {
+    //A copy of one source's latest update, owned by the reader
+    public static class Update {
+        public boolean repeating;
+        public Clip clip;
+        public float angle;
+        public float height;
+        public float distance;
+        public float gain;
+        public float pan;
+        //When the update was written, and when what caused it happened, by System.nanoTime()
+        public long submitNanos;
+        public long originNanos;
+        //How many updates to the source were replaced by this one or another before the reader got to them
+        public int superseded;
+    }
+
+    private static class Slot {
+        final AtomicLong sequence = new AtomicLong();
+        volatile boolean repeating;
+        volatile Clip clip;
+        volatile float angle;
+        volatile float height;
+        volatile float distance;
+        volatile float gain;
+        volatile float pan;
+        volatile long submitNanos;
+        volatile long originNanos;
+    }
+
+    private final Slot[] slots;
+    //The sequence number each slot had when it was last read, only touched by the reader
+    private final long[] lastRead;
+
+    public SourceUpdates(int sources) {
+        slots = new Slot[sources];
+        for (int i = 0; i < sources; i++) {
+            slots[i] = new Slot();
+        }
+        lastRead = new long[sources];
+    }
+
+    public int getSourceCount() {
+        return slots.length;
+    }
+
+    /**
+     * Replace a source's update. Safe from any thread. Never waits for the reader; if another thread is writing the
+     * same source at the same moment it waits for that write to finish, so this one always replaces it.
+     */
+    public void write(int source, boolean repeating, Clip clip, float angle, float height, float distance,
+                      float gain, float pan, long originNanos) {
+        Slot slot = slots[source];
+        long sequence;
+        while (true) {
+            sequence = slot.sequence.get();
+            if ((sequence & 1) == 0 && slot.sequence.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+            //Another writer has the slot; let it finish if it was descheduled part way
+            Thread.yield();
+        }
+        slot.repeating = repeating;
+        slot.clip = clip;
+        slot.angle = angle;
+        slot.height = height;
+        slot.distance = distance;
+        slot.gain = gain;
+        slot.pan = pan;
+        slot.submitNanos = System.nanoTime();
+        slot.originNanos = originNanos;
+        slot.sequence.set(sequence + 2);
+    }
+
+    /**
+     * Copy a source's update into out if it has changed since the last read. Only one thread may read.
+     *
+     * @return true if out holds a new, consistent update; false if nothing has changed or a write was under way
+     */
+    public boolean read(int source, Update out) {
+        Slot slot = slots[source];
+        long before = slot.sequence.get();
+        if (before == lastRead[source] || (before & 1) != 0) {
+            return false;
+        }
+        out.repeating = slot.repeating;
+        out.clip = slot.clip;
+        out.angle = slot.angle;
+        out.height = slot.height;
+        out.distance = slot.distance;
+        out.gain = slot.gain;
+        out.pan = slot.pan;
+        out.submitNanos = slot.submitNanos;
+        out.originNanos = slot.originNanos;
+        if (slot.sequence.get() != before) {
+            return false;
+        }
+        //Each write adds 2 to the sequence number
+        out.superseded = (int) ((before - lastRead[source]) / 2 - 1);
+        lastRead[source] = before;
+        return true;
+    }
+}
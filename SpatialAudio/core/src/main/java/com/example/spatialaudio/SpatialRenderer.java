@@ -0,0 +1,341 @@
+package com.example.spatialaudio;
+
+/**
+ * Places a mono sound at an angle by delaying and attenuating the ear further from it.
+ *
+ * The interaural time delay follows Woodworth's spherical head model and is applied with a third order Lagrange
+ * fractional delay filter, so it is not rounded to whole samples and the angle can be anything, not just the 10
+ * degree steps of the pre-rendered files. All the trigonometry happens in {@link #setAngle}; rendering is four
+ * multiply-adds per ear per sample into buffers that were allocated up front.
+ *
+ * {@link #moveTo} glides to a new angle instead of jumping. The angle moves in control ticks of
+ * {@link #setControlFrames} frames: the delays and gains are worked out once per tick for where the angle will be at
+ * the end of it, and each sample in between takes its delay and gains by linear interpolation, with the Lagrange
+ * taps for that delay worked out by multiply-adds. A moving sound bends in pitch slightly, as a real one does.
+ *
+ * There is a {@link FixedPoint} version of rendering as well, for a renderer that is only used for one or the other.
+ */
+public class SpatialRenderer {
+    public static final float SPEED_OF_SOUND = 343.0f;
+    //The head width generateSoundFiles.py uses, in meters
+    public static final float DEFAULT_HEAD_WIDTH = 0.15f;
+    //How much quieter the far ear is for a sound directly to the side (about 6dB)
+    private static final float SHADOW_DEPTH = 0.5f;
+    //Every delay is at least this many samples so the Lagrange filter always has a sample on both sides
+    private static final int BASE_DELAY = 1;
+    public static final int DEFAULT_CONTROL_FRAMES = 32;
+
+    private final float sampleRate;
+    private final float headRadius;
+
+    //The mono input history, as a ring buffer
+    private final float[] history;
+    private final int mask;
+    private int writeIndex;
+
+    //Each ear's delay in samples (including BASE_DELAY) and gain
+    private float leftTotal;
+    private float rightTotal;
+    private float leftGain;
+    private float rightGain;
+    //The same as a whole sample delay and filter taps, for when the angle is still
+    private int leftDelay;
+    private int rightDelay;
+    private final float[] leftTaps = new float[4];
+    private final float[] rightTaps = new float[4];
+    //The same for fixed point, with the ear gains multiplied in
+    private final int[] fixedHistory;
+    private final int[] leftFixedTaps = new int[4];
+    private final int[] rightFixedTaps = new int[4];
+
+    //Where moveTo() is gliding to and how many frames it has left; the angle is where the last tick ended
+    private float angle;
+    private float targetAngle;
+    private int glideRemaining;
+    private int controlFrames = DEFAULT_CONTROL_FRAMES;
+
+    public SpatialRenderer(int sampleRate) {
+        this(sampleRate, DEFAULT_HEAD_WIDTH);
+    }
+
+    public SpatialRenderer(int sampleRate, float headWidth) {
+        this.sampleRate = sampleRate;
+        this.headRadius = headWidth / 2;
+        //The longest delay is for a sound at 90 degrees, plus room for the filter taps
+        int longest = (int) Math.ceil(maxDelaySeconds() * sampleRate) + BASE_DELAY + 4;
+        int size = Integer.highestOneBit(longest) << 1;
+        history = new float[size];
+        fixedHistory = new int[size];
+        mask = size - 1;
+        setAngle(0);
+    }
+
+    private float maxDelaySeconds() {
+        return (float) (headRadius / SPEED_OF_SOUND * (Math.PI / 2 + 1));
+    }
+
+    //How many frames of output are still to come after the input ends
+    public int getTailFrames() {
+        return history.length;
+    }
+
+    //Forget the previous input, e.g. before starting a new sound
+    public void reset() {
+        for (int i = 0; i < history.length; i++) {
+            history[i] = 0.0f;
+            fixedHistory[i] = 0;
+        }
+    }
+
+    //How many frames apart the delays and gains are worked out while gliding to a new angle
+    public void setControlFrames(int frames) {
+        controlFrames = Math.max(1, frames);
+    }
+
+    //Glide to a new angle over the given number of frames
+    public void moveTo(float angle, int glideFrames) {
+        targetAngle = angle;
+        glideRemaining = Math.max(1, glideFrames);
+    }
+
+    //Set the angle of the sound in degrees, positive to the left. Takes effect immediately.
+    public void setAngle(float angle) {
+        this.angle = angle;
+        targetAngle = angle;
+        glideRemaining = 0;
+        setEars(angle);
+        setStillTaps();
+    }
+
+    private void setStillTaps() {
+        leftDelay = setTaps(leftTaps, leftTotal);
+        rightDelay = setTaps(rightTaps, rightTotal);
+        for (int i = 0; i < 4; i++) {
+            leftFixedTaps[i] = FixedPoint.toFixed(leftTaps[i] * leftGain, FixedPoint.UNIT_BITS);
+            rightFixedTaps[i] = FixedPoint.toFixed(rightTaps[i] * rightGain, FixedPoint.UNIT_BITS);
+        }
+    }
+
+    //Work out each ear's delay and gain for an angle
+    private void setEars(float angle) {
+        double theta = Math.toRadians(Math.max(-90.0f, Math.min(angle, 90.0f)));
+        double lateral = Math.abs(theta);
+        //Woodworth: the extra path around the head to the far ear
+        float delaySamples = (float) (headRadius / SPEED_OF_SOUND * (lateral + Math.sin(lateral)) * sampleRate);
+        float farGain = farGain(angle);
+
+        if (theta > 0) {
+            //Sound on the left, so the right ear is further away
+            leftTotal = BASE_DELAY;
+            rightTotal = delaySamples + BASE_DELAY;
+            leftGain = 1.0f;
+            rightGain = farGain;
+        } else {
+            leftTotal = delaySamples + BASE_DELAY;
+            rightTotal = BASE_DELAY;
+            leftGain = farGain;
+            rightGain = 1.0f;
+        }
+    }
+
+    //How loud the far ear is for a sound at an angle, the near ear being 1
+    static float farGain(float angle) {
+        double lateral = Math.abs(Math.toRadians(Math.max(-90.0f, Math.min(angle, 90.0f))));
+        return (float) (1.0 - SHADOW_DEPTH * Math.sin(lateral));
+    }
+
+    //Work out the Lagrange taps for a total delay, returning the delay of the first tap
+    private static int setTaps(float[] taps, float total) {
+        int whole = (int) total;
+        //The taps sit at delays whole - 1 .. whole + 2, so the fraction is measured from the first one
+        float t = total - whole + 1;
+        taps[0] = -(t - 1) * (t - 2) * (t - 3) / 6;
+        taps[1] = t * (t - 2) * (t - 3) / 2;
+        taps[2] = -t * (t - 1) * (t - 3) / 2;
+        taps[3] = t * (t - 1) * (t - 2) / 6;
+        return whole - 1;
+    }
+
+    /**
+     * Render mono input into interleaved stereo output, starting outOffset frames into the output. The result is
+     * added to what is already in the output, scaled by gain, so several renderers can mix into one buffer.
+     */
+    public void render(float[] input, int frames, float[] stereoOut, int outOffset, float gain) {
+        int i = 0;
+        while (glideRemaining > 0 && i < frames) {
+            int count = Math.min(Math.min(controlFrames, glideRemaining), frames - i);
+            //Once per tick: where the angle will be at the end of it, and the delays and gains there
+            angle += (targetAngle - angle) * count / glideRemaining;
+            glideRemaining -= count;
+            float fromLeftTotal = leftTotal, fromRightTotal = rightTotal;
+            float fromLeftGain = leftGain, fromRightGain = rightGain;
+            setEars(glideRemaining == 0 ? targetAngle : angle);
+            renderGlide(input, i, count, stereoOut, outOffset, gain, fromLeftTotal, fromRightTotal, fromLeftGain, fromRightGain);
+            i += count;
+            if (glideRemaining == 0) {
+                angle = targetAngle;
+                setStillTaps();
+            }
+        }
+        if (i < frames) {
+            renderStill(input, i, frames - i, stereoOut, outOffset, gain);
+        }
+    }
+
+    //The same as render() in fixed point, without a gain
+    public void render(int[] input, int frames, int[] stereoOut, int outOffset) {
+        int i = 0;
+        while (glideRemaining > 0 && i < frames) {
+            int count = Math.min(Math.min(controlFrames, glideRemaining), frames - i);
+            angle += (targetAngle - angle) * count / glideRemaining;
+            glideRemaining -= count;
+            float fromLeftTotal = leftTotal, fromRightTotal = rightTotal;
+            float fromLeftGain = leftGain, fromRightGain = rightGain;
+            setEars(glideRemaining == 0 ? targetAngle : angle);
+            renderGlide(input, i, count, stereoOut, outOffset, fromLeftTotal, fromRightTotal,
+                    fromLeftGain, fromRightGain);
+            i += count;
+            if (glideRemaining == 0) {
+                angle = targetAngle;
+                setStillTaps();
+            }
+        }
+        if (i < frames) {
+            renderStill(input, i, frames - i, stereoOut, outOffset);
+        }
+    }
+
+    //Render with the delays and taps fixed
+    private void renderStill(float[] input, int start, int frames, float[] stereoOut, int outOffset, float gain) {
+        float[] h = history;
+        int m = mask;
+        float l0 = leftTaps[0], l1 = leftTaps[1], l2 = leftTaps[2], l3 = leftTaps[3];
+        float r0 = rightTaps[0], r1 = rightTaps[1], r2 = rightTaps[2], r3 = rightTaps[3];
+        float lg = leftGain * gain;
+        float rg = rightGain * gain;
+        int w = writeIndex;
+
+        for (int i = start; i < start + frames; i++) {
+            h[w] = input[i];
+            int l = w - leftDelay;
+            int r = w - rightDelay;
+            float left = l0 * h[l & m] + l1 * h[(l - 1) & m] + l2 * h[(l - 2) & m] + l3 * h[(l - 3) & m];
+            float right = r0 * h[r & m] + r1 * h[(r - 1) & m] + r2 * h[(r - 2) & m] + r3 * h[(r - 3) & m];
+            int out = 2 * (outOffset + i);
+            stereoOut[out] += left * lg;
+            stereoOut[out + 1] += right * rg;
+            w = (w + 1) & m;
+        }
+        writeIndex = w;
+    }
+
+    private void renderStill(int[] input, int start, int frames, int[] stereoOut, int outOffset) {
+        int[] h = fixedHistory;
+        int m = mask;
+        long l0 = leftFixedTaps[0], l1 = leftFixedTaps[1], l2 = leftFixedTaps[2], l3 = leftFixedTaps[3];
+        long r0 = rightFixedTaps[0], r1 = rightFixedTaps[1], r2 = rightFixedTaps[2], r3 = rightFixedTaps[3];
+        long half = 1L << (FixedPoint.UNIT_BITS - 1);
+        int w = writeIndex;
+
+        for (int i = start; i < start + frames; i++) {
+            h[w] = input[i];
+            int l = w - leftDelay;
+            int r = w - rightDelay;
+            long left = l0 * h[l & m] + l1 * h[(l - 1) & m] + l2 * h[(l - 2) & m] + l3 * h[(l - 3) & m];
+            long right = r0 * h[r & m] + r1 * h[(r - 1) & m] + r2 * h[(r - 2) & m] + r3 * h[(r - 3) & m];
+            int out = 2 * (outOffset + i);
+            stereoOut[out] += (int) ((left + half) >> FixedPoint.UNIT_BITS);
+            stereoOut[out + 1] += (int) ((right + half) >> FixedPoint.UNIT_BITS);
+            w = (w + 1) & m;
+        }
+        writeIndex = w;
+    }
+
+    //Render one control tick, interpolating each ear's delay and gain from the given ones to the current ones
+    private void renderGlide(float[] input, int start, int frames, float[] stereoOut, int outOffset, float gain,
+                             float leftFrom, float rightFrom, float leftGainFrom, float rightGainFrom) {
+        float[] h = history;
+        int m = mask;
+        int w = writeIndex;
+        float step = 1.0f / frames;
+        float leftDelayStep = (leftTotal - leftFrom) * step;
+        float rightDelayStep = (rightTotal - rightFrom) * step;
+        float leftGainStep = (leftGain - leftGainFrom) * step * gain;
+        float rightGainStep = (rightGain - rightGainFrom) * step * gain;
+        float ld = leftFrom, rd = rightFrom;
+        float lg = leftGainFrom * gain, rg = rightGainFrom * gain;
+
+        for (int i = start; i < start + frames; i++) {
+            h[w] = input[i];
+            ld += leftDelayStep;
+            rd += rightDelayStep;
+            lg += leftGainStep;
+            rg += rightGainStep;
+            int out = 2 * (outOffset + i);
+            stereoOut[out] += lagrange(h, w, m, ld) * lg;
+            stereoOut[out + 1] += lagrange(h, w, m, rd) * rg;
+            w = (w + 1) & m;
+        }
+        writeIndex = w;
+    }
+
+    private void renderGlide(int[] input, int start, int frames, int[] stereoOut, int outOffset,
+                             float leftFrom, float rightFrom, float leftGainFrom, float rightGainFrom) {
+        int[] h = fixedHistory;
+        int m = mask;
+        int w = writeIndex;
+        int ld = FixedPoint.toFixed(leftFrom, FixedPoint.DELAY_BITS);
+        int rd = FixedPoint.toFixed(rightFrom, FixedPoint.DELAY_BITS);
+        int lg = FixedPoint.toFixed(leftGainFrom, FixedPoint.UNIT_BITS);
+        int rg = FixedPoint.toFixed(rightGainFrom, FixedPoint.UNIT_BITS);
+        int leftDelayStep = (FixedPoint.toFixed(leftTotal, FixedPoint.DELAY_BITS) - ld) / frames;
+        int rightDelayStep = (FixedPoint.toFixed(rightTotal, FixedPoint.DELAY_BITS) - rd) / frames;
+        int leftGainStep = (FixedPoint.toFixed(leftGain, FixedPoint.UNIT_BITS) - lg) / frames;
+        int rightGainStep = (FixedPoint.toFixed(rightGain, FixedPoint.UNIT_BITS) - rg) / frames;
+
+        for (int i = start; i < start + frames; i++) {
+            h[w] = input[i];
+            ld += leftDelayStep;
+            rd += rightDelayStep;
+            lg += leftGainStep;
+            rg += rightGainStep;
+            int out = 2 * (outOffset + i);
+            stereoOut[out] += FixedPoint.round((long) lagrange(h, w, m, ld) * lg, FixedPoint.UNIT_BITS);
+            stereoOut[out + 1] += FixedPoint.round((long) lagrange(h, w, m, rd) * rg, FixedPoint.UNIT_BITS);
+            w = (w + 1) & m;
+        }
+        writeIndex = w;
+    }
+
+    //The input delayed by a fractional number of samples (at least BASE_DELAY), the taps worked out on the spot
+    private static float lagrange(float[] h, int w, int m, float delay) {
+        int whole = (int) delay;
+        float t = delay - whole + 1;
+        float a = t - 1, b = t - 2, c = t - 3;
+        float ab = a * b;
+        float tc = t * c;
+        int index = w - whole + 1;
+        return -ab * c * (1.0f / 6) * h[index & m] + tc * b * 0.5f * h[(index - 1) & m]
+                - tc * a * 0.5f * h[(index - 2) & m] + ab * t * (1.0f / 6) * h[(index - 3) & m];
+    }
+
+    //The same in fixed point, for a delay with DELAY_BITS fractional bits
+    private static int lagrange(int[] h, int w, int m, int delay) {
+        int bits = FixedPoint.DELAY_BITS;
+        long one = 1L << bits;
+        //A sixth, so there is no division
+        long sixth = (one + 3) / 6;
+        int whole = delay >> bits;
+        long t = (delay & (one - 1)) + one;
+        long a = t - one, b = t - 2 * one, c = t - 3 * one;
+        long ab = (a * b) >> bits;
+        long tc = (t * c) >> bits;
+        long tap0 = -(((ab * c) >> bits) * sixth >> bits);
+        long tap1 = ((tc * b) >> bits) >> 1;
+        long tap2 = -(((tc * a) >> bits) >> 1);
+        long tap3 = ((ab * t) >> bits) * sixth >> bits;
+        int index = w - whole + 1;
+        return FixedPoint.round(tap0 * h[index & m] + tap1 * h[(index - 1) & m] + tap2 * h[(index - 2) & m]
+                + tap3 * h[(index - 3) & m], bits);
+    }
+}
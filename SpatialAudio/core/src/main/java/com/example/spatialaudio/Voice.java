@@ -0,0 +1,648 @@
+package com.example.spatialaudio;
+
+/**
+ * One sound being played by the {@link AudioEngine}. Voices are preallocated and reused, so nothing here
+ * allocates once the engine is running.
+ *
+ * Stereo clips already have their position rendered in, so they are mixed as they are. Mono clips are placed at
+ * the voice's angle by a {@link SpatialRenderer}, or by a {@link BinauralConvolver} if the engine has an HRIR set.
+ * If the voice has an elevation it is filtered by an {@link ElevationFilter} as well, except when an HRIR set
+ * already places it in elevation. When a voice is moved to a new clip, both clips keep playing from
+ * the same frame while one fades out and the other fades in, so the sound never restarts or clicks.
+ *
+ * If the engine has a distance model the placed sound goes through a {@link DistanceFilter} too, turning it down
+ * and dulling it with distance.
+ *
+ * Each voice has a gain and a pan of its own on top of its position, applied as it is added to the mix.
+ *
+ * A move glides the angle, elevation, gain and pan to their new values over the fade time instead of jumping. They
+ * are worked out in control ticks of a few dozen frames: anything that needs trigonometry or a table lookup (the
+ * ear gains, the elevation filter's coefficients) is done once per tick, and the samples in between are linearly
+ * interpolated. The convolver can only change filters once per block, so with an HRIR set the angle moves per block.
+ *
+ * When the CPU is short a voice can be rendered cheaply instead: a mono clip is only panned to its angle, with none
+ * of the delay, HRIR or elevation filtering. A voice that is taken for another sound is released first, fading out
+ * instead of being cut off.
+ *
+ * A {@link CueSynth} is played like a mono clip, except that the samples come from the voice's own note of it, whose
+ * pitch and brightness glide with the height and distance when the voice is moved.
+ *
+ * A voice can be started in {@link FixedPoint} instead, to be mixed with {@link #mixFixed} into an integer bus. It
+ * does all the same except HRIR convolution, so the engine only does that without an HRIR set.
+ */
+class Voice {
+    private static final float SHORT_SCALE = 1.0f / 32768.0f;
+
+    //The id play() handed out for this voice
+    int id;
+    //The clip being played, or null when the voice is free
+    Clip clip;
+    //The next frame of the clip to play
+    int frame;
+    //How many frames to wait before the clip starts, so it can start part way into a buffer
+    private int startDelay;
+
+    //Where the sound is coming from
+    float angle;
+    float height;
+    //Degrees above ear level, or NaN for no elevation cues
+    float elevation;
+    float distance;
+    //1 is as recorded; the pan runs from -1 (right only) to 1 (left only), positive left like the angle
+    float gain;
+    float pan;
+    //Where the angle, elevation, distance, gain and pan were at the start of this block, and how many frames they have left
+    //to glide from there to the values above
+    private float startAngle;
+    private float startElevation;
+    private float startDistance;
+    private float startGain;
+    private float startPan;
+    private int glideRemaining;
+    //The channel gains the last control tick ended on, to glide from
+    private float leftGain;
+    private float rightGain;
+    //How much the sound matters, to choose which voice to take when they are all busy
+    float importance;
+    //Only pan the sound instead of rendering it properly. A mono clip is then panned to its angle by the ear gains.
+    private boolean panned;
+    private boolean panMono;
+    //Fading out before stopping, after being released
+    private int releaseRemaining;
+    private int releaseLength;
+
+    //The clip being faded out after a move, and how far through the fade we are
+    private Clip fadingClip;
+    private int fadeRemaining;
+    private int fadeLength;
+    //The clip when it is synthesized rather than recorded, otherwise null, and this voice's note of it
+    private CueSynth synth;
+    private final CueSynth.Note note = new CueSynth.Note();
+
+    private final SpatialRenderer renderer;
+    //Used instead of the renderer when the engine has an HRIR set, otherwise null
+    private final BinauralConvolver convolver;
+    private final HrirInterpolator hrirInterpolator;
+    //The voice has moved and the convolver hasn't been given the HRIRs for the new direction yet
+    private boolean directionChanged;
+    private final ElevationFilter elevationFilter;
+    private final DistanceFilter distanceFilter = new DistanceFilter();
+    //One block of mono input for the renderer, and of stereo output before the gain and pan
+    private final float[] monoBlock;
+    private final float[] stereoBlock;
+    //Mixed in fixed point, with the same blocks as ints
+    private boolean fixedPoint;
+    private final int[] fixedMonoBlock;
+    private final int[] fixedStereoBlock;
+
+    //hrirIndex and hrirFilters are null to place mono clips with the renderer
+    Voice(int sampleRate, int maxFrames, ElevationTable elevationTable, HrirIndex hrirIndex, HrirFilter[] hrirFilters) {
+        renderer = new SpatialRenderer(sampleRate);
+        elevationFilter = new ElevationFilter(elevationTable);
+        if (hrirFilters != null) {
+            hrirInterpolator = new HrirInterpolator(hrirIndex, hrirFilters);
+            convolver = new BinauralConvolver(hrirFilters[0]);
+        } else {
+            hrirInterpolator = null;
+            convolver = null;
+        }
+        monoBlock = new float[maxFrames];
+        stereoBlock = new float[maxFrames * 2];
+        fixedMonoBlock = new int[maxFrames];
+        fixedStereoBlock = new int[maxFrames * 2];
+    }
+
+    boolean isActive() {
+        return clip != null;
+    }
+
+    //Whether to mix with mixFixed() rather than mix()
+    boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    //distanceTable is null if the engine has no distance model. fixedPoint can't be used with an HRIR set.
+    void start(int id, Clip clip, float angle, float height, float elevation, float distance, float gain, float pan,
+               boolean panned, int startDelay, DistanceTable distanceTable, boolean fixedPoint) {
+        this.id = id;
+        this.fixedPoint = fixedPoint;
+        this.clip = clip;
+        this.frame = 0;
+        this.startDelay = startDelay;
+        this.angle = angle;
+        this.height = height;
+        this.elevation = elevation;
+        this.distance = distance;
+        this.gain = gain;
+        this.pan = pan;
+        this.panned = panned;
+        panMono = panned && clip.getChannels() == 1;
+        startAngle = angle;
+        startElevation = elevation;
+        startDistance = distance;
+        startGain = gain;
+        startPan = pan;
+        glideRemaining = 0;
+        releaseRemaining = 0;
+        leftGain = leftGain(gain, pan, angle);
+        rightGain = rightGain(gain, pan, angle);
+        fadingClip = null;
+        fadeRemaining = 0;
+        synth = clip instanceof CueSynth ? (CueSynth) clip : null;
+        if (synth != null) {
+            note.start(synth, height, distance);
+        }
+        if (!Float.isNaN(elevation)) {
+            elevationFilter.reset(elevation);
+        }
+        if (distanceTable != null) {
+            distanceFilter.reset(distanceTable, distance);
+        }
+        if (clip.getChannels() == 1 && !panned) {
+            if (convolver != null) {
+                convolver.setFilter(hrirInterpolator.interpolate(angle, hrirElevation(elevation)));
+                convolver.reset();
+                directionChanged = false;
+            } else {
+                renderer.reset();
+                renderer.setAngle(angle);
+            }
+        }
+    }
+
+    //Move to a new position and clip, fading over the given number of frames. A gain and pan set straight after
+    //glide over the same frames.
+    void move(Clip newClip, float angle, float height, float elevation, float distance, int fadeFrames) {
+        this.angle = angle;
+        this.height = height;
+        this.elevation = elevation;
+        this.distance = distance;
+        glideRemaining = Math.max(1, fadeFrames);
+        if (newClip != clip) {
+            if (newClip.getChannels() == clip.getChannels()) {
+                fadingClip = clip;
+                fadeLength = fadeFrames;
+                fadeRemaining = fadeFrames;
+            }
+            clip = newClip;
+            panMono = panned && clip.getChannels() == 1;
+            //A synth has no samples to fade from, so moving off one fades in from silence
+            synth = clip instanceof CueSynth ? (CueSynth) clip : null;
+            if (synth != null) {
+                note.start(synth, height, distance);
+            }
+        } else if (synth != null) {
+            note.glideTo(height, distance, fadeFrames);
+        }
+        if (clip.getChannels() == 1 && !panned) {
+            if (convolver != null) {
+                //Picked up at the next block, the convolver crossfades to it over one block
+                directionChanged = true;
+            } else {
+                renderer.moveTo(angle, fadeFrames);
+            }
+        }
+    }
+
+    void stop() {
+        clip = null;
+        fadingClip = null;
+        synth = null;
+        releaseRemaining = 0;
+    }
+
+    //Fade out over the given number of frames and then stop
+    void release(int frames) {
+        if (startDelay > 0) {
+            //Not heard yet, so there is nothing to fade
+            stop();
+        } else if (releaseRemaining == 0) {
+            releaseLength = Math.max(1, frames);
+            releaseRemaining = releaseLength;
+        }
+    }
+
+    boolean isReleasing() {
+        return releaseRemaining > 0;
+    }
+
+    //Where a parameter has glided to offset frames into this block
+    private float glide(float from, float to, int offset) {
+        if (offset >= glideRemaining || Float.isNaN(from)) {
+            return to;
+        }
+        return from + (to - from) * offset / glideRemaining;
+    }
+
+    //Add the next frames of this voice into the interleaved stereo mix buffer, working out the parameters every
+    //controlFrames frames. distanceTable is null if the engine has no distance model.
+    void mix(float[] mix, int frames, int controlFrames, DistanceTable distanceTable) {
+        int offset = startOffset(frames);
+        if (offset < 0) {
+            return;
+        }
+        boolean elevate = !panned && !Float.isNaN(elevation) && (clip.getChannels() == 2 || convolver == null);
+        int count = frames - offset;
+        float[] block = stereoBlock;
+        for (int i = 0; i < 2 * count; i++) {
+            block[i] = 0.0f;
+        }
+        if (clip.getChannels() == 2) {
+            mixStereo(block, 0, count);
+            if (elevate) {
+                elevate(block, count, 2, controlFrames);
+            }
+        } else {
+            renderer.setControlFrames(controlFrames);
+            mixMono(block, 0, count, elevate, controlFrames);
+        }
+        if (distanceTable != null) {
+            //Once per block, for where the distance will be at the end of it
+            distanceFilter.process(block, count, distanceTable, glide(startDistance, distance, count));
+        }
+        if (fadeRemaining > 0) {
+            fadeRemaining = Math.max(0, fadeRemaining - count);
+            if (fadeRemaining == 0) {
+                fadingClip = null;
+            }
+        }
+
+        if (releaseRemaining > 0) {
+            //Released, so fade out over what is left of the release and stop at the end of it
+            float step = 1.0f / releaseLength;
+            float fade = releaseRemaining * step;
+            for (int i = 0; i < 2 * count; i += 2) {
+                fade = Math.max(0.0f, fade - step);
+                block[i] *= fade;
+                block[i + 1] *= fade;
+            }
+            releaseRemaining -= count;
+            if (releaseRemaining <= 0) {
+                stop();
+            }
+        }
+
+        //Add the block into the mix, the channel gains worked out once per tick and interpolated in between
+        float left = leftGain;
+        float right = rightGain;
+        int out = 2 * offset;
+        for (int start = 0; start < count; start += controlFrames) {
+            int end = Math.min(start + controlFrames, count);
+            float tickGain = glide(startGain, gain, end);
+            float tickPan = glide(startPan, pan, end);
+            float tickAngle = glide(startAngle, angle, end);
+            float targetLeft = leftGain(tickGain, tickPan, tickAngle);
+            float targetRight = rightGain(tickGain, tickPan, tickAngle);
+            float step = 1.0f / (end - start);
+            float leftStep = (targetLeft - left) * step;
+            float rightStep = (targetRight - right) * step;
+            for (int i = 2 * start; i < 2 * end; i += 2) {
+                left += leftStep;
+                right += rightStep;
+                mix[out + i] += block[i] * left;
+                mix[out + i + 1] += block[i + 1] * right;
+            }
+            left = targetLeft;
+            right = targetRight;
+        }
+        leftGain = left;
+        rightGain = right;
+        endBlock(count);
+    }
+
+    //The same as mix() in fixed point
+    void mixFixed(int[] mix, int frames, int controlFrames, DistanceTable distanceTable) {
+        int offset = startOffset(frames);
+        if (offset < 0) {
+            return;
+        }
+        boolean elevate = !panned && !Float.isNaN(elevation);
+        int count = frames - offset;
+        int[] block = fixedStereoBlock;
+        for (int i = 0; i < 2 * count; i++) {
+            block[i] = 0;
+        }
+        if (clip.getChannels() == 2) {
+            mixStereo(block, count);
+            if (elevate) {
+                elevate(block, count, 2, controlFrames);
+            }
+        } else {
+            renderer.setControlFrames(controlFrames);
+            mixMono(block, count, elevate, controlFrames);
+        }
+        if (distanceTable != null) {
+            distanceFilter.process(block, count, distanceTable, glide(startDistance, distance, count));
+        }
+        if (fadeRemaining > 0) {
+            fadeRemaining = Math.max(0, fadeRemaining - count);
+            if (fadeRemaining == 0) {
+                fadingClip = null;
+            }
+        }
+
+        int unit = FixedPoint.UNIT_BITS;
+        long half = 1L << (unit - 1);
+        if (releaseRemaining > 0) {
+            int step = (1 << unit) / releaseLength;
+            int fade = releaseRemaining * step;
+            for (int i = 0; i < 2 * count; i += 2) {
+                fade = Math.max(0, fade - step);
+                block[i] = (int) (((long) block[i] * fade + half) >> unit);
+                block[i + 1] = (int) (((long) block[i + 1] * fade + half) >> unit);
+            }
+            releaseRemaining -= count;
+            if (releaseRemaining <= 0) {
+                stop();
+            }
+        }
+
+        int bits = FixedPoint.GAIN_BITS;
+        long gainHalf = 1L << (bits - 1);
+        int left = FixedPoint.toFixed(leftGain, bits);
+        int right = FixedPoint.toFixed(rightGain, bits);
+        int out = 2 * offset;
+        for (int start = 0; start < count; start += controlFrames) {
+            int end = Math.min(start + controlFrames, count);
+            float tickGain = glide(startGain, gain, end);
+            float tickPan = glide(startPan, pan, end);
+            float tickAngle = glide(startAngle, angle, end);
+            float targetLeft = leftGain(tickGain, tickPan, tickAngle);
+            float targetRight = rightGain(tickGain, tickPan, tickAngle);
+            int fixedLeft = FixedPoint.toFixed(targetLeft, bits);
+            int fixedRight = FixedPoint.toFixed(targetRight, bits);
+            int leftStep = (fixedLeft - left) / (end - start);
+            int rightStep = (fixedRight - right) / (end - start);
+            for (int i = 2 * start; i < 2 * end; i += 2) {
+                left += leftStep;
+                right += rightStep;
+                mix[out + i] += (int) (((long) block[i] * left + gainHalf) >> bits);
+                mix[out + i + 1] += (int) (((long) block[i + 1] * right + gainHalf) >> bits);
+            }
+            left = fixedLeft;
+            right = fixedRight;
+            leftGain = targetLeft;
+            rightGain = targetRight;
+        }
+        endBlock(count);
+    }
+
+    //How many frames into this block the voice starts, or -1 if it doesn't start in it
+    private int startOffset(int frames) {
+        if (startDelay == 0) {
+            return 0;
+        }
+        if (startDelay >= frames) {
+            startDelay -= frames;
+            return -1;
+        }
+        int offset = startDelay;
+        startDelay = 0;
+        return offset;
+    }
+
+    //Move the glides on by the frames just mixed
+    private void endBlock(int count) {
+        startAngle = glide(startAngle, angle, count);
+        startElevation = glide(startElevation, elevation, count);
+        startDistance = glide(startDistance, distance, count);
+        startGain = glide(startGain, gain, count);
+        startPan = glide(startPan, pan, count);
+        glideRemaining = Math.max(0, glideRemaining - count);
+    }
+
+    //Filter the elevation in, looking up the coefficients once per control tick
+    private void elevate(float[] buffer, int frames, int channels, int controlFrames) {
+        if (glideRemaining == 0) {
+            elevationFilter.setElevation(elevation);
+            elevationFilter.process(buffer, 0, frames, channels);
+            return;
+        }
+        for (int start = 0; start < frames; start += controlFrames) {
+            int end = Math.min(start + controlFrames, frames);
+            elevationFilter.setElevation(glide(startElevation, elevation, end));
+            elevationFilter.process(buffer, start, end - start, channels);
+        }
+    }
+
+    private void elevate(int[] buffer, int frames, int channels, int controlFrames) {
+        if (glideRemaining == 0) {
+            elevationFilter.setElevation(elevation);
+            elevationFilter.process(buffer, 0, frames, channels);
+            return;
+        }
+        for (int start = 0; start < frames; start += controlFrames) {
+            int end = Math.min(start + controlFrames, frames);
+            elevationFilter.setElevation(glide(startElevation, elevation, end));
+            elevationFilter.process(buffer, start, end - start, channels);
+        }
+    }
+
+    //A balance control: panning one way leaves that side alone and turns the other down.
+    //A mono sound that is only panned is as loud in the near ear as the renderer would make it, and quieter in the far one.
+    private float leftGain(float gain, float pan, float angle) {
+        float balance = gain * Math.max(0.0f, Math.min(1.0f, 1.0f + pan));
+        return panMono && angle <= 0 ? balance * SpatialRenderer.farGain(angle) : balance;
+    }
+
+    private float rightGain(float gain, float pan, float angle) {
+        float balance = gain * Math.max(0.0f, Math.min(1.0f, 1.0f - pan));
+        return panMono && angle > 0 ? balance * SpatialRenderer.farGain(angle) : balance;
+    }
+
+    private void mixStereo(float[] mix, int offset, int frames) {
+        short[] samples = clip.getSamples();
+        int count = Math.min(frames, clip.getFrameCount() - frame);
+        int in = frame * 2;
+        if (fadeRemaining > 0) {
+            //Fade the new clip in and the old one out, sample by sample
+            short[] old = fadingClip.getSamples();
+            int oldEnd = fadingClip.getFrameCount() * 2;
+            float step = 1.0f / fadeLength;
+            float mixIn = 1.0f - fadeRemaining * step;
+            for (int i = 0; i < count; i++) {
+                if (i < fadeRemaining) {
+                    mixIn += step;
+                }
+                float mixOut = 1.0f - mixIn;
+                int j = in + 2 * i;
+                float oldLeft = j < oldEnd ? old[j] : 0;
+                float oldRight = j + 1 < oldEnd ? old[j + 1] : 0;
+                int out = 2 * (offset + i);
+                mix[out] += (samples[j] * mixIn + oldLeft * mixOut) * SHORT_SCALE;
+                mix[out + 1] += (samples[j + 1] * mixIn + oldRight * mixOut) * SHORT_SCALE;
+            }
+        } else {
+            int out = 2 * offset;
+            for (int i = 0; i < count * 2; i++) {
+                mix[out + i] += samples[in + i] * SHORT_SCALE;
+            }
+        }
+
+        frame += count;
+        if (frame >= clip.getFrameCount()) {
+            stop();
+        }
+    }
+
+    private void mixMono(float[] mix, int offset, int frames, boolean elevate, int controlFrames) {
+        short[] samples = clip.getSamples();
+        int count = Math.max(0, Math.min(frames, clip.getFrameCount() - frame));
+        if (synth != null) {
+            note.render(monoBlock, frame, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                monoBlock[i] = samples[frame + i] * SHORT_SCALE;
+            }
+        }
+        //Past the end of the clip, keep feeding silence until the delayed ear has caught up
+        for (int i = count; i < frames; i++) {
+            monoBlock[i] = 0.0f;
+        }
+        if (fadeRemaining > 0) {
+            //Fade between the clips before they go into the renderer
+            short[] old = fadingClip.getSamples();
+            float step = 1.0f / fadeLength;
+            float mixIn = 1.0f - fadeRemaining * step;
+            for (int i = 0; i < count; i++) {
+                if (i < fadeRemaining) {
+                    mixIn += step;
+                }
+                int j = frame + i;
+                float oldSample = j < old.length ? old[j] * SHORT_SCALE : 0.0f;
+                monoBlock[i] = monoBlock[i] * mixIn + oldSample * (1.0f - mixIn);
+            }
+        }
+        if (elevate) {
+            elevate(monoBlock, frames, 1, controlFrames);
+        }
+        int tailFrames;
+        if (panned) {
+            //Straight into both ears, the channel gains do the panning
+            int out = 2 * offset;
+            for (int i = 0; i < frames; i++) {
+                mix[out] += monoBlock[i];
+                mix[out + 1] += monoBlock[i];
+                out += 2;
+            }
+            tailFrames = 0;
+        } else if (convolver != null) {
+            //Interpolate at most once per block, for where the angle will be at the end of it, and only once the last
+            //filter has been taken up
+            if (directionChanged && !convolver.isFilterPending()) {
+                convolver.setFilter(hrirInterpolator.interpolate(glide(startAngle, angle, frames),
+                        glide(hrirElevation(startElevation), hrirElevation(elevation), frames)));
+                directionChanged = glideRemaining > frames;
+            }
+            convolver.render(monoBlock, frames, mix, offset, 1.0f);
+            tailFrames = convolver.getTailFrames();
+        } else {
+            renderer.render(monoBlock, frames, mix, offset, 1.0f);
+            tailFrames = renderer.getTailFrames();
+        }
+
+        frame += frames;
+        if (frame >= clip.getFrameCount() + tailFrames) {
+            stop();
+        }
+    }
+
+    //Crossfade levels in fixed point: the level of the new clip climbs by step each sample until the fade is over
+    private long fadeInStart() {
+        return (1L << FixedPoint.UNIT_BITS) - (long) fadeRemaining * fadeStep();
+    }
+
+    private long fadeStep() {
+        return (1L << FixedPoint.UNIT_BITS) / fadeLength;
+    }
+
+    private void mixStereo(int[] mix, int frames) {
+        short[] samples = clip.getSamples();
+        int count = Math.min(frames, clip.getFrameCount() - frame);
+        int in = frame * 2;
+        if (fadeRemaining > 0) {
+            short[] old = fadingClip.getSamples();
+            int oldEnd = fadingClip.getFrameCount() * 2;
+            int unit = FixedPoint.UNIT_BITS;
+            long one = 1L << unit;
+            long step = fadeStep();
+            long mixIn = fadeInStart();
+            for (int i = 0; i < count; i++) {
+                if (i < fadeRemaining) {
+                    mixIn += step;
+                }
+                long mixOut = one - mixIn;
+                int j = in + 2 * i;
+                int oldLeft = j < oldEnd ? FixedPoint.fromShort(old[j]) : 0;
+                int oldRight = j + 1 < oldEnd ? FixedPoint.fromShort(old[j + 1]) : 0;
+                mix[2 * i] += FixedPoint.round(FixedPoint.fromShort(samples[j]) * mixIn + oldLeft * mixOut, unit);
+                mix[2 * i + 1] += FixedPoint.round(FixedPoint.fromShort(samples[j + 1]) * mixIn
+                        + oldRight * mixOut, unit);
+            }
+        } else {
+            for (int i = 0; i < count * 2; i++) {
+                mix[i] += FixedPoint.fromShort(samples[in + i]);
+            }
+        }
+
+        frame += count;
+        if (frame >= clip.getFrameCount()) {
+            stop();
+        }
+    }
+
+    private void mixMono(int[] mix, int frames, boolean elevate, int controlFrames) {
+        short[] samples = clip.getSamples();
+        int[] block = fixedMonoBlock;
+        int count = Math.max(0, Math.min(frames, clip.getFrameCount() - frame));
+        if (synth != null) {
+            note.render(block, frame, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                block[i] = FixedPoint.fromShort(samples[frame + i]);
+            }
+        }
+        for (int i = count; i < frames; i++) {
+            block[i] = 0;
+        }
+        if (fadeRemaining > 0) {
+            short[] old = fadingClip.getSamples();
+            int unit = FixedPoint.UNIT_BITS;
+            long one = 1L << unit;
+            long step = fadeStep();
+            long mixIn = fadeInStart();
+            for (int i = 0; i < count; i++) {
+                if (i < fadeRemaining) {
+                    mixIn += step;
+                }
+                int j = frame + i;
+                int oldSample = j < old.length ? FixedPoint.fromShort(old[j]) : 0;
+                block[i] = FixedPoint.round(block[i] * mixIn + oldSample * (one - mixIn), unit);
+            }
+        }
+        if (elevate) {
+            elevate(block, frames, 1, controlFrames);
+        }
+        int tailFrames;
+        if (panned) {
+            for (int i = 0; i < frames; i++) {
+                mix[2 * i] += block[i];
+                mix[2 * i + 1] += block[i];
+            }
+            tailFrames = 0;
+        } else {
+            renderer.render(block, frames, mix, 0);
+            tailFrames = renderer.getTailFrames();
+        }
+
+        frame += frames;
+        if (frame >= clip.getFrameCount() + tailFrames) {
+            stop();
+        }
+    }
+
+    //The HRIR set does the elevation cues itself; without an elevation the sound is at ear level
+    private static float hrirElevation(float elevation) {
+        return Float.isNaN(elevation) ? 0.0f : elevation;
+    }
+}
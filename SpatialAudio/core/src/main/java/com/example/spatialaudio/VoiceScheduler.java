@@ -0,0 +1,135 @@
+package com.example.spatialaudio;
+
+/**
+ * Decides how well each repeating source is rendered when there isn't the CPU to render all of them properly.
+ *
+ * Sources are ranked by importance: louder (in the CV app, bigger) and closer ones first, and the longer a source
+ * has gone without a beep the higher it climbs, so sources that were dropped get their turn. The top
+ * {@link #getFullLimit()} get full spatial rendering, the next {@link #getPanLimit()} are only panned, which costs
+ * little more than copying the clip, and the rest skip their beeps.
+ *
+ * The limits follow the measured render time. When rendering a buffer takes more than the budgeted share of the
+ * time the buffer lasts, the full tier shrinks, and once it is down to one source the panned tier shrinks too; when
+ * there is plenty of room they grow back. Only used on the render thread, apart from {@link #setBudget}.
+ */
+class VoiceScheduler {
+    static final int FULL = 0;
+    static final int PANNED = 1;
+    static final int DROPPED = 2;
+
+    //How much of a buffer's duration rendering may take, leaving the rest of the CPU for the camera and vision
+    static final float DEFAULT_BUDGET = 0.5f;
+    //Only grow when the load is this far under budget, so the limits don't flap
+    private static final float GROW_BELOW = 0.6f;
+    //How quickly the smoothed load follows the measured one
+    private static final float LOAD_SMOOTHING = 0.1f;
+    //How many buffers to wait after changing a limit before judging the change
+    private static final int HOLD_BUFFERS = 16;
+    //Distances are floored at this, so a source can't be infinitely important
+    private static final float MIN_DISTANCE = 0.001f;
+
+    private final int maxSources;
+    //The sources in order of importance, and the tier each one is in
+    private final int[] order;
+    private final int[] tiers;
+    private int fullLimit;
+    private int panLimit;
+    //Set from any thread
+    private volatile float budget = DEFAULT_BUDGET;
+    private float load;
+    private int hold;
+
+    VoiceScheduler(int maxSources) {
+        this.maxSources = maxSources;
+        order = new int[maxSources];
+        tiers = new int[maxSources];
+        fullLimit = maxSources;
+        panLimit = maxSources;
+    }
+
+    /**
+     * How much a sound matters: its gain over its distance, boosted by how many seconds it has gone without a
+     * beep. Only the order matters, so distance can be in any unit.
+     */
+    static float importance(float gain, float distance, float secondsSinceCue) {
+        return gain / Math.max(distance, MIN_DISTANCE) * (1.0f + secondsSinceCue);
+    }
+
+    void setBudget(float budget) {
+        this.budget = budget;
+    }
+
+    int getFullLimit() {
+        return fullLimit;
+    }
+
+    int getPanLimit() {
+        return panLimit;
+    }
+
+    //The smoothed share of each buffer's duration spent rendering it
+    float getLoad() {
+        return load;
+    }
+
+    /**
+     * Put every source in a tier from its score. A negative score means the source isn't playing and it isn't
+     * counted. Doesn't allocate.
+     */
+    void rank(float[] scores) {
+        int count = 0;
+        for (int source = 0; source < maxSources; source++) {
+            tiers[source] = DROPPED;
+            float score = scores[source];
+            if (score < 0) {
+                continue;
+            }
+            //Insertion sort, there are only a handful of sources
+            int i = count++;
+            while (i > 0 && scores[order[i - 1]] < score) {
+                order[i] = order[i - 1];
+                i--;
+            }
+            order[i] = source;
+        }
+        for (int rank = 0; rank < count; rank++) {
+            if (rank < fullLimit) {
+                tiers[order[rank]] = FULL;
+            } else if (rank < fullLimit + panLimit) {
+                tiers[order[rank]] = PANNED;
+            }
+        }
+    }
+
+    int tier(int source) {
+        return tiers[source];
+    }
+
+    //Adjust the limits after rendering a buffer of frames that took renderNanos
+    void update(long renderNanos, int frames, int sampleRate) {
+        float deadlineNanos = frames * 1e9f / sampleRate;
+        load += (renderNanos / deadlineNanos - load) * LOAD_SMOOTHING;
+        if (hold > 0) {
+            hold--;
+            return;
+        }
+        if (load > budget) {
+            if (fullLimit > 1) {
+                fullLimit--;
+                hold = HOLD_BUFFERS;
+            } else if (panLimit > 0) {
+                panLimit--;
+                hold = HOLD_BUFFERS;
+            }
+        } else if (load < budget * GROW_BELOW) {
+            //Bring back the cheap tier first, then upgrade sources to full rendering
+            if (panLimit < maxSources) {
+                panLimit++;
+                hold = HOLD_BUFFERS;
+            } else if (fullLimit < maxSources) {
+                fullLimit++;
+                hold = HOLD_BUFFERS;
+            }
+        }
+    }
+}
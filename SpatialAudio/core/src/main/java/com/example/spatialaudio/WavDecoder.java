@@ -0,0 +1,19 @@
+package com.example.spatialaudio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+
+/**
+ * Decodes uncompressed RIFF/WAVE files (the format generateSoundFiles.py writes), and AIFF files too, from a stream
+ * into {@link Clip}s. Built on {@link PcmStream}; use {@link PcmFile} instead when the file can be memory mapped.
+ */
+public class WavDecoder {
+    private WavDecoder() {
+    }
+
+    //Read a whole file. The stream is read to the end of the sample data but not closed.
+    public static Clip decode(InputStream input) throws IOException {
+        return new PcmStream(Channels.newChannel(input)).readClip();
+    }
+}
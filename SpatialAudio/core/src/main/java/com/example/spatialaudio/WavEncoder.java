@@ -0,0 +1,54 @@
+package com.example.spatialaudio;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes {@link Clip}s as 16 bit RIFF/WAVE files, the format {@link WavDecoder} reads. The whole file is built in
+ * one buffer, the samples copied in with one bulk put, and written with one channel write.
+ */
+public class WavEncoder {
+    private static final int HEADER_BYTES = 44;
+
+    private WavEncoder() {
+    }
+
+    //Build the file in memory
+    public static ByteBuffer encode(Clip clip) {
+        int dataSize = clip.getByteCount();
+        int channels = clip.getChannels();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(tag("RIFF")).putInt(36 + dataSize).put(tag("WAVE"));
+        buffer.put(tag("fmt ")).putInt(16);
+        //PCM, then the byte rate and the bytes per frame
+        buffer.putShort((short) 1).putShort((short) channels).putInt(clip.getSampleRate());
+        buffer.putInt(clip.getSampleRate() * channels * 2).putShort((short) (channels * 2)).putShort((short) 16);
+        buffer.put(tag("data")).putInt(dataSize);
+        buffer.asShortBuffer().put(clip.getSamples());
+        buffer.position(buffer.position() + dataSize);
+        buffer.flip();
+        return buffer;
+    }
+
+    //Write a clip to a file, replacing it
+    public static void write(File file, Clip clip) throws IOException {
+        ByteBuffer buffer = encode(clip);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] tag(String name) {
+        return new byte[]{(byte) name.charAt(0), (byte) name.charAt(1), (byte) name.charAt(2), (byte) name.charAt(3)};
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.spatialaudio.tools;
+
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.PackedBank;
+import com.example.spatialaudio.PackedBankWriter;
+import com.example.spatialaudio.PcmFile;
+import com.example.spatialaudio.SoundBankManifest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Packs a directory of heightXangleY.wav files (as written by generateSoundFiles.py, with an underscore for a
+ * negative angle) into one {@link PackedBank} file.
+ *
+ * Usage: BankPacker &lt;wav directory&gt; &lt;output file&gt;
+ */
+public class BankPacker {
+    private static final Pattern NAME = Pattern.compile("height(\\d+)angle(_?)(\\d+)\\.wav");
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BankPacker <wav directory> <output file>");
+            System.exit(1);
+        }
+        File output = new File(args[1]);
+        int clips = pack(new File(args[0]), output);
+        System.out.println("Packed " + clips + " clips into " + output + " (" + output.length() + " bytes)");
+    }
+
+    //Pack every matching wav file in a directory, returning how many were packed
+    public static int pack(File directory, File output) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Can't list " + directory);
+        }
+
+        //Find the grid the files cover
+        TreeSet<Integer> angles = new TreeSet<Integer>();
+        TreeSet<Integer> heights = new TreeSet<Integer>();
+        List<File> wavs = new ArrayList<File>();
+        for (File file : files) {
+            Matcher matcher = NAME.matcher(file.getName());
+            if (matcher.matches()) {
+                heights.add(Integer.parseInt(matcher.group(1)));
+                angles.add(angleOf(matcher));
+                wavs.add(file);
+            }
+        }
+        if (wavs.isEmpty()) {
+            throw new IOException("No heightXangleY.wav files in " + directory);
+        }
+        if (wavs.size() != angles.size() * heights.size()) {
+            throw new IOException("The files don't fill a grid of " + heights.size() + " heights by " + angles.size() + " angles");
+        }
+        int angleStep = angles.size() > 1 ? angles.higher(angles.first()) - angles.first() : 1;
+        int heightStep = heights.size() > 1 ? heights.higher(heights.first()) - heights.first() : 1;
+
+        //The files' angles are the centres of their cells; heights are the bottoms
+        Integer[] angleList = angles.toArray(new Integer[angles.size()]);
+        Integer[] heightList = heights.toArray(new Integer[heights.size()]);
+        Clip[] clips = new Clip[wavs.size()];
+        float[] clipAngles = new float[clips.length];
+        float[] clipHeights = new float[clips.length];
+        for (File wav : wavs) {
+            Matcher matcher = NAME.matcher(wav.getName());
+            matcher.matches();
+            int row = indexOf(heightList, Integer.parseInt(matcher.group(1)));
+            int column = indexOf(angleList, angleOf(matcher));
+            int cell = row * angleList.length + column;
+            clips[cell] = PcmFile.map(wav).toClip();
+            clipAngles[cell] = angleList[column];
+            clipHeights[cell] = heightList[row];
+        }
+
+        int[] ids = new int[clips.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+        }
+        SoundBankManifest manifest = new SoundBankManifest(angleList[0] - angleStep / 2.0f, angleStep, angleList.length,
+                heightList[0], heightStep, ids);
+        PackedBankWriter.write(output, manifest, clips, clipAngles, clipHeights);
+        return clips.length;
+    }
+
+    private static int angleOf(Matcher matcher) {
+        int angle = Integer.parseInt(matcher.group(3));
+        return matcher.group(2).isEmpty() ? angle : -angle;
+    }
+
+    private static int indexOf(Integer[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
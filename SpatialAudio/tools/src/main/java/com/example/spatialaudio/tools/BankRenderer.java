@@ -0,0 +1,274 @@
+package com.example.spatialaudio.tools;
+
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.PackedBankWriter;
+import com.example.spatialaudio.PcmFile;
+import com.example.spatialaudio.SoundBankManifest;
+import com.example.spatialaudio.SpatialRenderer;
+import com.example.spatialaudio.WavEncoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Renders the sound bank from the base sounds, what generateSoundFiles.py does, but every cell of the grid in
+ * parallel with fork/join and each file written in one go, so even a 1 degree grid takes seconds.
+ *
+ * The base sounds are &lt;base&gt;N.wav (or .aiff) in the source directory, one mono file per height N. Each is
+ * rendered at the centre of every angle cell, with the angles covering -90 to 90 degrees in steps of the given size.
+ * By default a cell is rendered the way the script does it, delaying one ear by a whole number of samples for a
+ * sound a meter away, so the shipped 10 degree bank comes out the same. With --woodworth it is rendered by the
+ * engine's own {@link SpatialRenderer} instead, with a fractional delay and the far ear quieter.
+ *
+ * Usage: BankRenderer [options] &lt;source directory&gt;
+ *   --wav &lt;directory&gt;    write heightXangleY.wav files, named like the script's (_ for a negative angle)
+ *   --bank &lt;file&gt;        write a packed bank
+ *   --angle-step &lt;deg&gt;   the width of an angle cell (default 10)
+ *   --head-width &lt;m&gt;     the distance between the ears (default 0.15)
+ *   --base &lt;name&gt;        the base sounds' name (default Piano)
+ *   --threads &lt;n&gt;        how many threads to render on (default one per core)
+ *   --woodworth          render with SpatialRenderer instead of the script's whole sample delay
+ */
+public class BankRenderer {
+    private static final double SPEED_OF_SOUND = 343.0;
+    //How far away the script puts the sound, in meters
+    private static final double SOURCE_DISTANCE = 1.0;
+
+    private final Clip[] sources;
+    private final int[] heights;
+    private final float[] angles;
+    private final float angleStep;
+    private final float headWidth;
+    private final boolean woodworth;
+    //Where to write each cell as it is rendered, or null
+    private final File wavDirectory;
+    //The cells, by height and then by angle
+    private final Clip[] clips;
+
+    BankRenderer(Clip[] sources, int[] heights, float angleStep, float headWidth, boolean woodworth,
+                 File wavDirectory) {
+        this.sources = sources;
+        this.heights = heights;
+        this.angleStep = angleStep;
+        this.headWidth = headWidth;
+        this.woodworth = woodworth;
+        this.wavDirectory = wavDirectory;
+        int angleCount = Math.round(180.0f / angleStep);
+        angles = new float[angleCount];
+        for (int i = 0; i < angleCount; i++) {
+            angles[i] = -90.0f + angleStep / 2 + i * angleStep;
+        }
+        clips = new Clip[heights.length * angleCount];
+    }
+
+    public static void main(String[] args) throws IOException {
+        File wavDirectory = null;
+        File bankFile = null;
+        float angleStep = 10.0f;
+        float headWidth = SpatialRenderer.DEFAULT_HEAD_WIDTH;
+        String base = "Piano";
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean woodworth = false;
+        File sourceDirectory = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--woodworth")) {
+                woodworth = true;
+            } else if (arg.startsWith("--") && i + 1 < args.length) {
+                String value = args[++i];
+                if (arg.equals("--wav")) {
+                    wavDirectory = new File(value);
+                } else if (arg.equals("--bank")) {
+                    bankFile = new File(value);
+                } else if (arg.equals("--angle-step")) {
+                    angleStep = Float.parseFloat(value);
+                } else if (arg.equals("--head-width")) {
+                    headWidth = Float.parseFloat(value);
+                } else if (arg.equals("--base")) {
+                    base = value;
+                } else if (arg.equals("--threads")) {
+                    threads = Integer.parseInt(value);
+                } else {
+                    usage();
+                }
+            } else if (!arg.startsWith("--") && sourceDirectory == null) {
+                sourceDirectory = new File(arg);
+            } else {
+                usage();
+            }
+        }
+        if (sourceDirectory == null || (wavDirectory == null && bankFile == null) || !(angleStep > 0)) {
+            usage();
+        }
+        if (wavDirectory != null && !wavDirectory.isDirectory() && !wavDirectory.mkdirs()) {
+            throw new IOException("Can't make " + wavDirectory);
+        }
+
+        //The heights are however many base sounds there are, from 0 up
+        List<Clip> sourceList = new ArrayList<Clip>();
+        File file;
+        while ((file = sourceFile(sourceDirectory, base + sourceList.size())) != null) {
+            Clip clip = PcmFile.map(file).toClip();
+            if (clip.getChannels() != 1) {
+                throw new IOException(file + " isn't mono");
+            }
+            sourceList.add(clip);
+        }
+        if (sourceList.isEmpty()) {
+            throw new IOException("No " + base + "0.wav or .aiff in " + sourceDirectory);
+        }
+        int[] heights = new int[sourceList.size()];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = i;
+        }
+
+        long start = System.nanoTime();
+        BankRenderer renderer = new BankRenderer(sourceList.toArray(new Clip[heights.length]), heights, angleStep,
+                headWidth, woodworth, wavDirectory);
+        renderer.render(new ForkJoinPool(threads));
+        if (bankFile != null) {
+            renderer.writeBank(bankFile);
+        }
+        System.out.println("Rendered " + renderer.clips.length + " clips (" + heights.length + " heights by "
+                + renderer.angles.length + " angles) on " + threads + " threads in "
+                + (System.nanoTime() - start) / 1000000 + "ms");
+    }
+
+    private static void usage() {
+        System.err.println("Usage: BankRenderer [--wav <directory>] [--bank <file>] [--angle-step <degrees>] "
+                + "[--head-width <meters>] [--base <name>] [--threads <n>] [--woodworth] <source directory>");
+        System.exit(1);
+    }
+
+    //Render every cell, writing the wav files as they are done if there is a directory for them
+    void render(ForkJoinPool pool) throws IOException {
+        CellTask task = new CellTask(0, clips.length);
+        pool.invoke(task);
+        if (task.failure != null) {
+            throw task.failure;
+        }
+    }
+
+    void writeBank(File file) throws IOException {
+        int[] ids = new int[clips.length];
+        float[] clipAngles = new float[clips.length];
+        float[] clipHeights = new float[clips.length];
+        for (int cell = 0; cell < clips.length; cell++) {
+            ids[cell] = cell;
+            clipAngles[cell] = angles[cell % angles.length];
+            clipHeights[cell] = heights[cell / angles.length];
+        }
+        SoundBankManifest manifest = new SoundBankManifest(-90.0f, angleStep, angles.length, heights[0], 1, ids);
+        PackedBankWriter.write(file, manifest, clips, clipAngles, clipHeights);
+    }
+
+    //Renders a range of cells, splitting it in two until there is one cell left
+    private class CellTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        //The first write that failed in this range
+        IOException failure;
+
+        CellTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    renderCell(from);
+                } catch (IOException e) {
+                    failure = e;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            CellTask first = new CellTask(from, middle);
+            CellTask second = new CellTask(middle, to);
+            invokeAll(first, second);
+            failure = first.failure != null ? first.failure : second.failure;
+        }
+    }
+
+    private void renderCell(int cell) throws IOException {
+        int row = cell / angles.length;
+        float angle = angles[cell % angles.length];
+        Clip clip = woodworth ? renderWoodworth(sources[row], angle) : renderWholeDelay(sources[row], angle);
+        clips[cell] = clip;
+        if (wavDirectory != null) {
+            WavEncoder.write(new File(wavDirectory, fileName(heights[row], angle)), clip);
+        }
+    }
+
+    /**
+     * What generateSoundFiles.py does: the left ear is headWidth from the right one, the sound is a meter from the
+     * right ear, and the ear the sound is further from is delayed by the difference, rounded down to whole samples.
+     */
+    private Clip renderWholeDelay(Clip source, float angle) {
+        double theta = Math.toRadians(angle);
+        double x = SOURCE_DISTANCE * Math.cos(theta);
+        double y = SOURCE_DISTANCE * Math.sin(theta) - headWidth;
+        double toLeft = Math.sqrt(x * x + y * y);
+        double delaySamples = (SOURCE_DISTANCE - toLeft) / SPEED_OF_SOUND * source.getSampleRate();
+        int delay = (int) Math.abs(delaySamples);
+
+        short[] mono = source.getSamples();
+        int frames = mono.length + delay;
+        short[] stereo = new short[frames * 2];
+        //Positive means the sound is nearer the left ear, so the right ear hears it later
+        int leftStart = delaySamples > 0 ? 0 : delay;
+        int rightStart = delaySamples > 0 ? delay : 0;
+        for (int i = 0; i < mono.length; i++) {
+            stereo[2 * (leftStart + i)] = mono[i];
+            stereo[2 * (rightStart + i) + 1] = mono[i];
+        }
+        return new Clip(stereo, 2, source.getSampleRate());
+    }
+
+    //The engine's own rendering, long enough for the delayed ear to finish
+    private Clip renderWoodworth(Clip source, float angle) {
+        SpatialRenderer renderer = new SpatialRenderer(source.getSampleRate(), headWidth);
+        renderer.setAngle(angle);
+        short[] mono = source.getSamples();
+        int frames = mono.length + renderer.getTailFrames();
+        float[] input = new float[frames];
+        for (int i = 0; i < mono.length; i++) {
+            input[i] = mono[i] / 32768.0f;
+        }
+        float[] output = new float[frames * 2];
+        renderer.render(input, frames, output, 0, 1.0f);
+        short[] stereo = new short[frames * 2];
+        for (int i = 0; i < stereo.length; i++) {
+            stereo[i] = (short) Math.max(-32768.0f, Math.min(output[i] * 32768.0f, 32767.0f));
+        }
+        return new Clip(stereo, 2, source.getSampleRate());
+    }
+
+    //heightXangleY.wav, with an underscore for a negative angle and a decimal point only if the angle needs one
+    static String fileName(int height, float angle) {
+        float magnitude = Math.abs(angle);
+        String number = magnitude == Math.rint(magnitude)
+                ? Integer.toString((int) magnitude) : Float.toString(magnitude);
+        return "height" + height + "angle" + (angle < 0 ? "_" : "") + number + ".wav";
+    }
+
+    //The wav or AIFF file with a name, or null if there isn't one
+    private static File sourceFile(File directory, String name) {
+        String[] extensions = {".wav", ".aiff", ".aif"};
+        for (String extension : extensions) {
+            File file = new File(directory, name + extension);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+}
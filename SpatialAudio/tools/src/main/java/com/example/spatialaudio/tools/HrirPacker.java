@@ -0,0 +1,211 @@
+package com.example.spatialaudio.tools;
+
+import com.example.spatialaudio.Clip;
+import com.example.spatialaudio.HrirSet;
+import com.example.spatialaudio.HrirSetWriter;
+import com.example.spatialaudio.WavDecoder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds an {@link HrirSet} file, either from measured responses or from a spherical head model.
+ *
+ * Measured responses are read from a directory tree of stereo wav files named like the MIT KEMAR set,
+ * H&lt;elevation&gt;e&lt;azimuth&gt;a.wav, with the left ear in the first channel. KEMAR azimuths go clockwise (to
+ * the right), so they are flipped to the positive-is-left convention used everywhere else.
+ *
+ * The model follows Brown and Duda's structural model: a delay and a one pole head shadow filter for each ear, plus
+ * two pinna reflections whose delay changes with elevation. It is nowhere near as good as a measured set, but it
+ * needs no data.
+ *
+ * Usage: HrirPacker &lt;wav directory&gt; &lt;output file&gt;
+ *        HrirPacker --spherical-head &lt;output file&gt; [sample rate]
+ */
+public class HrirPacker {
+    private static final Pattern NAME = Pattern.compile("H(-?\\d+)e(\\d+)a\\.wav", Pattern.CASE_INSENSITIVE);
+
+    //The model's head, in meters, and its response length
+    private static final double HEAD_RADIUS = 0.0875;
+    private static final double SPEED_OF_SOUND = 343.0;
+    private static final int MODEL_TAPS = 128;
+    //Taps before the earliest arrival, so the fractional delay filter has room either side
+    private static final double MODEL_LEAD = 8.0;
+    //Brown and Duda's head shadow: how far the far ear's highs drop, and at what angle from the ear they drop most
+    private static final double SHADOW_MIN = 0.1;
+    private static final double SHADOW_MIN_ANGLE = Math.toRadians(150);
+    //The first two pinna reflections: strength, and delay offset and depth in samples at 44.1kHz
+    private static final double[] PINNA_REFLECTION = {0.5, -1.0};
+    private static final double[] PINNA_OFFSET = {2.0, 4.0};
+    private static final double[] PINNA_DEPTH = {1.0, 5.0};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("--spherical-head")) {
+            File output = new File(args[1]);
+            int sampleRate = args.length > 2 ? Integer.parseInt(args[2]) : 44100;
+            int count = model(output, sampleRate);
+            System.out.println("Modelled " + count + " directions into " + output + " (" + output.length() + " bytes)");
+        } else if (args.length == 2) {
+            File output = new File(args[1]);
+            int count = pack(new File(args[0]), output);
+            System.out.println("Packed " + count + " measurements into " + output + " (" + output.length() + " bytes)");
+        } else {
+            System.err.println("Usage: HrirPacker <wav directory> <output file>");
+            System.err.println("       HrirPacker --spherical-head <output file> [sample rate]");
+            System.exit(1);
+        }
+    }
+
+    //Pack every H<e>e<a>a.wav under a directory, returning how many were packed
+    public static int pack(File directory, File output) throws IOException {
+        List<File> wavs = new ArrayList<File>();
+        findWavs(directory, wavs);
+        if (wavs.isEmpty()) {
+            throw new IOException("No H<elevation>e<azimuth>a.wav files under " + directory);
+        }
+        int count = wavs.size();
+        float[] azimuths = new float[count];
+        float[] elevations = new float[count];
+        float[][] left = new float[count][];
+        float[][] right = new float[count][];
+        int sampleRate = 0;
+        for (int i = 0; i < count; i++) {
+            Matcher matcher = NAME.matcher(wavs.get(i).getName());
+            matcher.matches();
+            elevations[i] = Integer.parseInt(matcher.group(1));
+            float clockwise = Integer.parseInt(matcher.group(2));
+            azimuths[i] = clockwise > 180 ? 360 - clockwise : -clockwise;
+
+            Clip clip = decode(wavs.get(i));
+            if (clip.getChannels() != 2) {
+                throw new IOException(wavs.get(i) + " is not stereo");
+            }
+            if (sampleRate != 0 && clip.getSampleRate() != sampleRate) {
+                throw new IOException(wavs.get(i) + " is at " + clip.getSampleRate() + "Hz, the others are at " + sampleRate + "Hz");
+            }
+            sampleRate = clip.getSampleRate();
+            short[] samples = clip.getSamples();
+            left[i] = new float[clip.getFrameCount()];
+            right[i] = new float[clip.getFrameCount()];
+            for (int t = 0; t < left[i].length; t++) {
+                left[i][t] = samples[2 * t] / 32768.0f;
+                right[i][t] = samples[2 * t + 1] / 32768.0f;
+            }
+        }
+        HrirSetWriter.write(output, sampleRate, azimuths, elevations, left, right);
+        return count;
+    }
+
+    private static void findWavs(File directory, List<File> wavs) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Can't list " + directory);
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                findWavs(file, wavs);
+            } else if (NAME.matcher(file.getName()).matches()) {
+                wavs.add(file);
+            }
+        }
+    }
+
+    //Model every 5 degrees of azimuth, and every 10 degrees of elevation from -40 to 90, returning how many
+    public static int model(File output, int sampleRate) throws IOException {
+        List<float[]> directions = new ArrayList<float[]>();
+        for (int elevation = -40; elevation <= 90; elevation += 10) {
+            //Only one direction straight up
+            int step = elevation == 90 ? 360 : 5;
+            for (int azimuth = -175; azimuth <= 180; azimuth += step) {
+                directions.add(new float[]{azimuth, elevation});
+            }
+        }
+        int count = directions.size();
+        float[] azimuths = new float[count];
+        float[] elevations = new float[count];
+        float[][] left = new float[count][];
+        float[][] right = new float[count][];
+        for (int i = 0; i < count; i++) {
+            azimuths[i] = directions.get(i)[0];
+            elevations[i] = directions.get(i)[1];
+            double a = Math.toRadians(azimuths[i]);
+            double e = Math.toRadians(elevations[i]);
+            //The angle between the sound and each ear, which sit on the left (+y) and right (-y) of the head
+            double y = Math.cos(e) * Math.sin(a);
+            left[i] = modelEar(Math.acos(y), e, sampleRate);
+            right[i] = modelEar(Math.acos(-y), e, sampleRate);
+        }
+        HrirSetWriter.write(output, sampleRate, azimuths, elevations, left, right);
+        return count;
+    }
+
+    //One ear's response to a sound at the given angle from the ear and elevation, both in radians
+    private static float[] modelEar(double earAngle, double elevation, int sampleRate) {
+        //Time to the ear relative to the centre of the head: shorter when facing it, longer around the back
+        double delaySeconds;
+        if (earAngle < Math.PI / 2) {
+            delaySeconds = -HEAD_RADIUS / SPEED_OF_SOUND * Math.cos(earAngle);
+        } else {
+            delaySeconds = HEAD_RADIUS / SPEED_OF_SOUND * (earAngle - Math.PI / 2);
+        }
+        double delay = MODEL_LEAD + (delaySeconds + HEAD_RADIUS / SPEED_OF_SOUND) * sampleRate;
+        double[] response = new double[MODEL_TAPS];
+        addImpulse(response, delay, 1.0);
+
+        //Pinna reflections arrive a little later the lower the sound is
+        double rate = sampleRate / 44100.0;
+        for (int r = 0; r < PINNA_REFLECTION.length; r++) {
+            double extra = (PINNA_DEPTH[r] * Math.cos(earAngle / 2) * Math.sin(Math.PI / 2 - elevation) + PINNA_OFFSET[r]) * rate;
+            addImpulse(response, delay + extra, PINNA_REFLECTION[r] * 0.5);
+        }
+
+        //Head shadow, H(s) = (1 + alpha*tau*s) / (1 + tau*s), through the bilinear transform
+        double alpha = (1 + SHADOW_MIN / 2) + (1 - SHADOW_MIN / 2) * Math.cos(earAngle / SHADOW_MIN_ANGLE * Math.PI);
+        double tau = HEAD_RADIUS / (2 * SPEED_OF_SOUND);
+        double k = 2.0 * sampleRate;
+        double a0 = 1 + tau * k;
+        double b0 = (1 + alpha * tau * k) / a0;
+        double b1 = (1 - alpha * tau * k) / a0;
+        double a1 = (1 - tau * k) / a0;
+        float[] taps = new float[MODEL_TAPS];
+        double previousIn = 0;
+        double previousOut = 0;
+        for (int n = 0; n < MODEL_TAPS; n++) {
+            double out = b0 * response[n] + b1 * previousIn - a1 * previousOut;
+            previousIn = response[n];
+            previousOut = out;
+            taps[n] = (float) out;
+        }
+        return taps;
+    }
+
+    //Add a Hann windowed sinc impulse at a fractional delay
+    private static void addImpulse(double[] response, double delay, double gain) {
+        int halfWidth = 8;
+        int centre = (int) Math.floor(delay);
+        for (int n = centre - halfWidth + 1; n <= centre + halfWidth; n++) {
+            if (n < 0 || n >= response.length) {
+                continue;
+            }
+            double t = n - delay;
+            double sinc = t == 0 ? 1 : Math.sin(Math.PI * t) / (Math.PI * t);
+            double window = 0.5 + 0.5 * Math.cos(Math.PI * t / halfWidth);
+            response[n] += gain * sinc * window;
+        }
+    }
+
+    private static Clip decode(File wav) throws IOException {
+        InputStream in = new FileInputStream(wav);
+        try {
+            return WavDecoder.decode(in);
+        } finally {
+            in.close();
+        }
+    }
+}